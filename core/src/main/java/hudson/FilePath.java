@@ -31,8 +31,10 @@ import static hudson.Util.fixEmpty;
 import static hudson.Util.fixEmptyAndTrim;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.jcraft.jzlib.Deflater;
 import com.jcraft.jzlib.GZIPInputStream;
 import com.jcraft.jzlib.GZIPOutputStream;
+import com.jcraft.jzlib.JZlib;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -86,6 +88,7 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.CopyOption;
 import java.nio.file.FileSystemException;
@@ -103,6 +106,7 @@ import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
@@ -129,6 +133,7 @@ import jenkins.security.MasterToSlaveCallable;
 import jenkins.util.ContextResettingExecutorService;
 import jenkins.util.SystemProperties;
 import jenkins.util.VirtualFile;
+import jenkins.util.io.ResumableCopy;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.fileupload.FileItem;
@@ -902,6 +907,22 @@ public final class FilePath implements SerializableOnlyOverRemoting {
             public OutputStream compress(OutputStream out) throws IOException {
                 return new GZIPOutputStream(new BufferedOutputStream(out));
             }
+        },
+        /**
+         * Gzip at the fastest compression level, trading some size for several times the throughput.
+         * @since TODO
+         */
+        GZIP_FAST {
+            @Override
+            public InputStream extract(InputStream in) throws IOException {
+                return GZIP.extract(in);
+            }
+
+            @Override
+            public OutputStream compress(OutputStream out) throws IOException {
+                // 32K window with a gzip header, as by default
+                return new GZIPOutputStream(new BufferedOutputStream(out), new Deflater(JZlib.Z_BEST_SPEED, 15 + 16), 8192, true);
+            }
         };
 
         public abstract InputStream extract(InputStream in) throws IOException;
@@ -1478,6 +1499,25 @@ public final class FilePath implements SerializableOnlyOverRemoting {
         }
     }
 
+    /**
+     * Deletes this directory, including all its contents recursively, on several threads.
+     * Meant for large trees such as stale workspaces.
+     */
+    @Restricted(NoExternalUse.class)
+    public void deleteRecursiveInParallel() throws IOException, InterruptedException {
+        act(new DeleteRecursiveInParallel());
+    }
+
+    private static class DeleteRecursiveInParallel extends MasterToSlaveFileCallable<Void> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Void invoke(File f, VirtualChannel channel) throws IOException {
+            Util.deleteRecursiveInParallel(fileToPath(f), path -> path.toFile());
+            return null;
+        }
+    }
+
     /**
      * Deletes all the contents of this directory, but not the directory itself
      */
@@ -1809,6 +1849,174 @@ public final class FilePath implements SerializableOnlyOverRemoting {
         }
     }
 
+    /**
+     * Gets the attributes of several files under this directory in a single call,
+     * rather than one call per file and attribute, which matters for remote agents.
+     *
+     * @param relativePaths paths relative to this directory, separated by {@code /}; the empty path denotes this directory
+     * @return the attributes of each path, in the same order
+     * @since TODO
+     */
+    @NonNull
+    public List<Stat> stat(@NonNull Collection<String> relativePaths) throws IOException, InterruptedException {
+        return act(new StatPaths(new ArrayList<>(relativePaths)));
+    }
+
+    private static class StatPaths extends MasterToSlaveFileCallable<List<Stat>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> relativePaths;
+
+        StatPaths(List<String> relativePaths) {
+            this.relativePaths = relativePaths;
+        }
+
+        @Override
+        public List<Stat> invoke(File dir, VirtualChannel channel) {
+            List<Stat> stats = new ArrayList<>(relativePaths.size());
+            for (String relativePath : relativePaths) {
+                stats.add(Stat.of(relativePath.isEmpty() ? dir : new File(dir, relativePath), relativePath));
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Gets the attributes of all files and directories under this directory, down to a given depth, in a single call.
+     * Symbolic links to directories are reported but not descended into.
+     *
+     * @param depth 1 for the children of this directory only, 2 to include grandchildren, and so on
+     * @return the attributes of each descendant, with each directory followed by its contents, sorted by name;
+     *         empty if this is not a directory
+     * @since TODO
+     */
+    @NonNull
+    public List<Stat> statTree(int depth) throws IOException, InterruptedException {
+        return act(new StatTree(depth));
+    }
+
+    private static class StatTree extends MasterToSlaveFileCallable<List<Stat>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int depth;
+
+        StatTree(int depth) {
+            this.depth = depth;
+        }
+
+        @Override
+        public List<Stat> invoke(File dir, VirtualChannel channel) {
+            List<Stat> stats = new ArrayList<>();
+            collect(dir, "", depth, stats);
+            return stats;
+        }
+
+        private static void collect(File dir, String prefix, int depth, List<Stat> stats) {
+            if (depth <= 0) {
+                return;
+            }
+            String[] names = dir.list();
+            if (names == null) {
+                return;
+            }
+            Arrays.sort(names);
+            for (String name : names) {
+                Stat stat = Stat.of(new File(dir, name), prefix + name);
+                stats.add(stat);
+                if (stat.isDirectory() && !stat.isSymlink()) {
+                    collect(new File(dir, name), prefix + name + '/', depth - 1, stats);
+                }
+            }
+        }
+    }
+
+    /**
+     * Attributes of a file, as returned by {@link #stat(Collection)} and {@link #statTree(int)}.
+     *
+     * @since TODO
+     */
+    public static final class Stat implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String path;
+        private final boolean exists;
+        private final boolean directory;
+        private final boolean symlink;
+        private final long length;
+        private final long lastModified;
+        private final boolean readable;
+
+        public Stat(@NonNull String path, boolean exists, boolean directory, boolean symlink, long length, long lastModified, boolean readable) {
+            this.path = path;
+            this.exists = exists;
+            this.directory = directory;
+            this.symlink = symlink;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.readable = readable;
+        }
+
+        static Stat of(File f, String path) {
+            boolean symlink;
+            try {
+                symlink = Util.isSymlink(f);
+            } catch (IOException x) {
+                symlink = false;
+            }
+            return new Stat(path, f.exists(), f.isDirectory(), symlink, f.length(), f.lastModified(), f.canRead());
+        }
+
+        /**
+         * The path relative to the directory which was queried, separated by {@code /}.
+         */
+        @NonNull
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @see FilePath#exists()
+         */
+        public boolean exists() {
+            return exists;
+        }
+
+        /**
+         * @see FilePath#isDirectory()
+         */
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * Whether the file itself is a symbolic link; the other attributes are those of its target.
+         */
+        public boolean isSymlink() {
+            return symlink;
+        }
+
+        /**
+         * @see FilePath#length()
+         */
+        public long length() {
+            return length;
+        }
+
+        /**
+         * @see FilePath#lastModified()
+         */
+        public long lastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @see File#canRead()
+         */
+        public boolean canRead() {
+            return readable;
+        }
+    }
+
     /**
      * Creates a file (if not already exist) and sets the timestamp.
      *
@@ -2247,6 +2455,28 @@ public final class FilePath implements SerializableOnlyOverRemoting {
         return inputStream;
     }
 
+    /**
+     * Like {@link #newInputStreamDenyingSymlinkAsNeeded} but opens a channel, so that ranges of the file can be read
+     * or transferred without going through a stream.
+     */
+    @Restricted(NoExternalUse.class)
+    public static FileChannel newChannelDenyingSymlinkAsNeeded(File file, String verificationRoot, OpenOption... openOptions) throws IOException {
+        FileChannel fileChannel = null;
+        try {
+            denyTmpDir(file, verificationRoot, openOptions);
+            denySymlink(file, verificationRoot, openOptions);
+            OpenOption[] options = stripLocalOptions(openOptions);
+            fileChannel = FileChannel.open(fileToPath(file), options == null ? new OpenOption[0] : options);
+            denySymlink(file, verificationRoot, openOptions);
+        } catch (IOException ioe) {
+            if (fileChannel != null) {
+                fileChannel.close();
+            }
+            throw ioe;
+        }
+        return fileChannel;
+    }
+
     public static InputStream openInputStream(File file, OpenOption[] openOptions) throws IOException {
         return Files.newInputStream(fileToPath(file), stripLocalOptions(openOptions));
     }
@@ -2831,6 +3061,37 @@ public final class FilePath implements SerializableOnlyOverRemoting {
             // local to local copy.
             return act(new CopyRecursiveLocal(target, scanner));
         } else
+        if (this.channel != null && target.channel != null) {
+            // remote -> remote copy; the two sides cannot reach each other, so relay the tar stream
+            final Pipe in = Pipe.createRemoteToLocal();
+            final Pipe out = Pipe.createLocalToRemote();
+
+            Future<Void> future = target.actAsync(new ReadFromTar(target, out, description, compression));
+            Future<Integer> future2 = actAsync(new CopyRecursiveRemoteToLocal(in, scanner, compression));
+            try (InputStream is = in.getIn(); OutputStream os = out.getOut()) {
+                is.transferTo(os);
+            } catch (IOException e) {
+                try {
+                    future.get(3, TimeUnit.SECONDS);
+                    future2.get(3, TimeUnit.SECONDS);
+                    throw e;
+                } catch (ExecutionException x) {
+                    // report both errors
+                    e.addSuppressed(x);
+                    throw e;
+                } catch (TimeoutException ignored) {
+                    // one side is hanging, just throw the original exception
+                    throw e;
+                }
+            }
+            try {
+                // JENKINS-9540 in case the reading side failed, report that error first
+                future.get();
+                return future2.get();
+            } catch (ExecutionException e) {
+                throw ioWithCause(e);
+            }
+        } else
         if (this.channel == null) {
             // local -> remote copy
             final Pipe pipe = Pipe.createLocalToRemote();
@@ -2872,6 +3133,109 @@ public final class FilePath implements SerializableOnlyOverRemoting {
         }
     }
 
+    /**
+     * Copies files according to a specified scanner to a target directory, which may be on another node,
+     * so that a copy which failed, for example because an agent disconnected, can be resumed.
+     *
+     * <p>
+     * Files are sent in chunks checked with CRC-32 rather than in a single tar stream.
+     * Calling this method again, possibly with a {@link FilePath} on the new channel of a reconnected agent,
+     * skips the files already copied, which have the size and timestamp of their source,
+     * and continues a partially copied file if its content matches the beginning of the source.
+     * @param scanner a way of enumerating some files (must be serializable for possible delivery to remote side)
+     * @param target the destination basedir
+     * @return the number of files copied or already present
+     * @since TODO
+     */
+    public int copyRecursiveToResumable(final DirScanner scanner, final FilePath target) throws IOException, InterruptedException {
+        return ResumableCopy.copy(this, scanner, target, false).getFiles();
+    }
+
+    /**
+     * Makes a target directory, which may be on another node, match the files of this directory, sending only what changed.
+     *
+     * <p>
+     * Files which have the same size and timestamp as their source are not sent.
+     * The other files which exist in the target directory are compared by blocks at the same offsets,
+     * and only the blocks which differ are sent, so that synchronizing a directory which changed little
+     * since the last time costs little more than the changed files, or parts of files when they were modified in place.
+     * As with {@link #copyRecursiveToResumable}, an interrupted synchronization can simply be run again.
+     * @param scanner a way of enumerating some files (must be serializable for possible delivery to remote side)
+     * @param target the destination basedir
+     * @param deleteExtraneous whether to delete the files of the target directory which are not in this directory,
+     *                         among those the scanner finds there, and the directories they leave empty;
+     *                         so files left out by the scanner, such as default excludes, are kept
+     * @return what was synchronized
+     * @since TODO
+     */
+    @NonNull
+    public SyncResult syncTo(@NonNull DirScanner scanner, @NonNull FilePath target, boolean deleteExtraneous) throws IOException, InterruptedException {
+        return ResumableCopy.copy(this, scanner, target, deleteExtraneous);
+    }
+
+    /**
+     * Outcome of {@link #syncTo}.
+     *
+     * @since TODO
+     */
+    public static final class SyncResult {
+        private final int files;
+        private final int changedFiles;
+        private final int deletedFiles;
+        private final long transferredBytes;
+        private final long totalBytes;
+
+        @Restricted(NoExternalUse.class)
+        public SyncResult(int files, int changedFiles, int deletedFiles, long transferredBytes, long totalBytes) {
+            this.files = files;
+            this.changedFiles = changedFiles;
+            this.deletedFiles = deletedFiles;
+            this.transferredBytes = transferredBytes;
+            this.totalBytes = totalBytes;
+        }
+
+        /**
+         * The number of files and symbolic links in the target directory which match the source.
+         */
+        public int getFiles() {
+            return files;
+        }
+
+        /**
+         * The number of files which were missing or different in the target directory.
+         */
+        public int getChangedFiles() {
+            return changedFiles;
+        }
+
+        /**
+         * The number of files and symbolic links deleted from the target directory.
+         */
+        public int getDeletedFiles() {
+            return deletedFiles;
+        }
+
+        /**
+         * The number of bytes of file contents which were sent.
+         */
+        public long getTransferredBytes() {
+            return transferredBytes;
+        }
+
+        /**
+         * The total size of the files.
+         */
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "SyncResult[files=" + files + ", changed=" + changedFiles + ", deleted=" + deletedFiles
+                    + ", transferred=" + transferredBytes + "/" + totalBytes + "]";
+        }
+    }
+
     private IOException ioWithCause(ExecutionException e) {
         Throwable cause = e.getCause();
         if (cause == null) cause = e;
@@ -99,6 +99,7 @@ import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.SimpleTimeZone;
 import java.util.StringTokenizer;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
@@ -331,6 +332,29 @@ public class Util {
         newPathRemover(pathChecker).forceRemoveRecursive(dir);
     }
 
+    /**
+     * Deletes the given directory and contents recursively using a filter, deleting the contents of directories on several threads.
+     * Only meant for large trees which nobody waits for, such as old builds and stale workspaces.
+     * @param dir a directory to delete
+     * @param pathChecker a security check to validate a path before deleting, which may be called from any thread
+     * @throws IOException if the operation fails
+     */
+    @Restricted(NoExternalUse.class)
+    public static void deleteRecursiveInParallel(@NonNull Path dir, @NonNull PathRemover.PathChecker pathChecker) throws IOException {
+        newPathRemover(pathChecker).parallel().forceRemoveRecursive(dir);
+    }
+
+    /**
+     * Deletes the given directory and contents recursively in a background thread, at a limited rate.
+     * The directory should already have been moved out of the way, for example renamed to a hidden name.
+     * @param dir a directory to delete
+     * @return a future completing once the directory is deleted
+     */
+    @Restricted(NoExternalUse.class)
+    public static Future<Void> deleteRecursiveInBackground(@NonNull Path dir) {
+        return newPathRemover(PathRemover.PathChecker.ALLOW_ALL).removeRecursiveInBackground(dir);
+    }
+
     /*
      * Copyright 2001-2004 The Apache Software Foundation.
      *
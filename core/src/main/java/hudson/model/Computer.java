@@ -43,6 +43,7 @@ import hudson.init.Initializer;
 import hudson.model.Descriptor.FormException;
 import hudson.model.Queue.FlyweightTask;
 import hudson.model.labels.LabelAtom;
+import hudson.model.labels.LabelBits;
 import hudson.model.queue.WorkUnit;
 import hudson.node_monitors.AbstractDiskSpaceMonitor;
 import hudson.node_monitors.DiskSpaceMonitorNodeProperty;
@@ -1790,6 +1791,8 @@ public /*transient*/ abstract class Computer extends Actionable implements Acces
             @Override
             public void onOnline(Computer c, TaskListener listener) throws IOException, InterruptedException {
                 c.cachedEnvironment = null;
+                // labels found by LabelFinder often depend on the connected agent
+                LabelBits.invalidate();
             }
         }
 
@@ -34,6 +34,7 @@ import hudson.Util;
 import hudson.XmlFile;
 import hudson.init.Initializer;
 import hudson.model.Descriptor.FormException;
+import hudson.model.labels.LabelAtom;
 import hudson.model.listeners.SaveableListener;
 import hudson.node_monitors.NodeMonitor;
 import hudson.slaves.NodeDescriptor;
@@ -49,10 +50,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
 import jenkins.model.Jenkins;
 import jenkins.model.ModelObjectWithChildren;
 import jenkins.model.ModelObjectWithContextMenu.ContextMenu;
@@ -63,8 +66,13 @@ import org.kohsuke.stapler.HttpResponse;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.DataWriter;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.export.Flavor;
+import org.kohsuke.stapler.export.Model;
+import org.kohsuke.stapler.export.ModelBuilder;
+import org.kohsuke.stapler.export.TreePruner;
 import org.kohsuke.stapler.interceptor.RequirePOST;
 import org.kohsuke.stapler.verb.POST;
 
@@ -240,6 +248,112 @@ public final class ComputerSet extends AbstractModelObject implements Describabl
         rsp.forwardToPreviousPage(req);
     }
 
+    /**
+     * Writes the status of the computers as compact JSON records, without the executors and other details
+     * of {@code api/json}, for clients polling many agents.
+     *
+     * <pre>
+     * {"computers":[{"name":"agent1","displayName":"agent1","offline":false,"temporarilyOffline":false,
+     *   "offlineCauseReason":"","numExecutors":2,"idleExecutors":1,"assignedLabels":["linux"],"monitorData":{...}}],
+     *  "next":"agent1"}
+     * </pre>
+     *
+     * @param label only include the computers of nodes matching this label expression
+     * @param after only include the computers whose name sorts after this one, to get the next page
+     * @param limit the maximum number of computers to include, if positive;
+     *              {@code next} is then set to the name to give as {@code after} if there are more
+     * @since TODO
+     */
+    public void doNodeStatus(StaplerRequest req, StaplerResponse rsp, @QueryParameter String label,
+                             @QueryParameter String after, @QueryParameter int limit) throws IOException {
+        Label l = null;
+        if (label != null && !label.isEmpty()) {
+            try {
+                l = Label.parseExpression(label);
+            } catch (IllegalArgumentException e) {
+                rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+        }
+        rsp.setContentType(Flavor.JSON.contentType);
+        DataWriter w = Flavor.JSON.createDataWriter(null, rsp);
+        w.startObject();
+        w.name("computers");
+        w.startArray();
+        int count = 0;
+        String last = null;
+        for (Computer c : Jenkins.get().getComputers()) {
+            if (after != null && c.getName().compareTo(after) <= 0) {
+                continue;
+            }
+            Node n = c.getNode();
+            if (n == null || l != null && !l.matches(n)) {
+                continue;
+            }
+            if (limit > 0 && count == limit) {
+                w.endArray();
+                w.name("next");
+                w.value(last);
+                w.endObject();
+                return;
+            }
+            writeStatus(c, n, w);
+            count++;
+            last = c.getName();
+        }
+        w.endArray();
+        w.endObject();
+    }
+
+    private static void writeStatus(Computer c, Node n, DataWriter w) throws IOException {
+        w.startObject();
+        w.name("name");
+        w.value(c.getName());
+        w.name("displayName");
+        w.value(c.getDisplayName());
+        w.name("offline");
+        w.valuePrimitive(c.isOffline());
+        w.name("temporarilyOffline");
+        w.valuePrimitive(c.isTemporarilyOffline());
+        w.name("offlineCauseReason");
+        w.value(c.getOfflineCauseReason());
+        w.name("numExecutors");
+        w.valuePrimitive(c.getNumExecutors());
+        w.name("idleExecutors");
+        w.valuePrimitive(c.countIdle());
+        w.name("assignedLabels");
+        w.startArray();
+        LabelAtom self = n.getSelfLabel();
+        for (LabelAtom a : new TreeSet<>(n.getAssignedLabels())) {
+            if (!a.equals(self)) {
+                w.value(a.getName());
+            }
+        }
+        w.endArray();
+        w.name("monitorData");
+        w.startObject();
+        if (c.hasPermission(Computer.CONNECT)) {
+            for (NodeMonitor monitor : NodeMonitor.getAll()) {
+                w.name(monitor.getClass().getName());
+                Object data = monitor.data(c);
+                if (data == null) {
+                    w.valueNull();
+                } else if (data instanceof Number || data instanceof Boolean) {
+                    w.valuePrimitive(data);
+                } else if (data.getClass().isAnnotationPresent(ExportedBean.class)) {
+                    Model m = MODEL_BUILDER.get(data.getClass());
+                    m.writeTo(data, new TreePruner.ByDepth(1), w);
+                } else {
+                    w.value(data.toString());
+                }
+            }
+        }
+        w.endObject();
+        w.endObject();
+    }
+
+    private static final ModelBuilder MODEL_BUILDER = new ModelBuilder();
+
     /**
      * First check point in creating a new agent.
      */
@@ -33,21 +33,30 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.LinkOption;
 import java.nio.file.OpenOption;
 import java.text.Collator;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -388,6 +397,13 @@ public final class DirectoryBrowserSupport implements HttpResponse {
             LOGGER.fine("Serving " + baseFile + " with lastModified=" + lastModified + ", length=" + length);
 
         if (view) {
+            // for binary files, provide the file name for download
+            rsp.setHeader("Content-Disposition", "inline; filename=" + baseFile.getName());
+
+            if (serveRange(req, rsp, baseFile, lastModified, length, "plain.txt")) {
+                return;
+            }
+
             InputStream in;
             try {
                 in = baseFile.open(getOpenOptions());
@@ -396,9 +412,6 @@ public final class DirectoryBrowserSupport implements HttpResponse {
                 return;
             }
 
-            // for binary files, provide the file name for download
-            rsp.setHeader("Content-Disposition", "inline; filename=" + baseFile.getName());
-
             // pseudo file name to let the Stapler set text/plain
             rsp.serveFile(req, in, lastModified, -1, length, "plain.txt");
         } else {
@@ -416,6 +429,9 @@ public final class DirectoryBrowserSupport implements HttpResponse {
                         }
                     }
                 }
+                if (serveRange(req, rsp, baseFile, lastModified, length, baseFile.getName())) {
+                    return;
+                }
                 InputStream in;
                 try {
                     in = baseFile.open(getOpenOptions());
@@ -428,6 +444,129 @@ public final class DirectoryBrowserSupport implements HttpResponse {
         }
     }
 
+    /**
+     * Serves a file without {@link StaplerResponse#serveFile} when a single byte range of it is requested,
+     * so that interrupted downloads can be resumed and large files fetched in several parts at once.
+     * @param fileName the name used to determine the content type
+     * @return false if the whole file has to be served by {@link StaplerResponse#serveFile}
+     */
+    private static boolean serveRange(StaplerRequest req, StaplerResponse rsp, VirtualFile file, long lastModified, long length,
+                                      String fileName) throws IOException {
+        rsp.setHeader("Accept-Ranges", "bytes");
+        long[] range = parseRange(req.getHeader("Range"), req.getHeader("If-Range"), lastModified, length);
+        if (range == UNSATISFIABLE_RANGE) {
+            rsp.setHeader("Content-Range", "bytes */" + length);
+            rsp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return true;
+        }
+        if (range == null) {
+            return false;
+        }
+        FileChannel channel;
+        try {
+            channel = file.openChannel(getOpenOptions());
+        } catch (IOException ioe) {
+            rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return true;
+        }
+        rsp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        rsp.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+        String contentType = req.getServletContext().getMimeType(fileName);
+        rsp.setContentType(contentType != null ? contentType : "application/octet-stream");
+        if (lastModified > 0) {
+            rsp.setDateHeader("Last-Modified", lastModified);
+        }
+        long count = range[1] - range[0] + 1;
+        rsp.setContentLengthLong(count);
+        if (req.getMethod().equals("HEAD")) {
+            if (channel != null) {
+                channel.close();
+            }
+            return true;
+        }
+        if (channel != null) {
+            // read from the start of the range rather than skipping through a stream
+            try (FileChannel ch = channel; WritableByteChannel out = Channels.newChannel(rsp.getOutputStream())) {
+                long position = range[0];
+                long end = position + count;
+                while (position < end) {
+                    long transferred = ch.transferTo(position, end - position, out);
+                    if (transferred <= 0) {
+                        break; // truncated in the meantime
+                    }
+                    position += transferred;
+                }
+            }
+        } else {
+            InputStream in;
+            try {
+                in = file.open(getOpenOptions());
+            } catch (IOException ioe) {
+                rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return true;
+            }
+            try (in; OutputStream out = rsp.getOutputStream()) {
+                IOUtils.copyLarge(in, out, range[0], count);
+            }
+        }
+        return true;
+    }
+
+    private static final long[] UNSATISFIABLE_RANGE = new long[0];
+
+    /**
+     * Parses a {@code Range} header requesting a single range of bytes.
+     * Multiple ranges, or a header which cannot be parsed, are ignored as allowed by RFC 9110.
+     * @param ifRange the {@code If-Range} header; since no entity tags are sent, only a date equal to the last modification counts
+     * @return the positions of the first and last bytes, {@link #UNSATISFIABLE_RANGE}, or null to serve the whole file
+     */
+    static long[] parseRange(String range, String ifRange, long lastModified, long length) {
+        if (range == null || !range.regionMatches(true, 0, "bytes=", 0, 6) || range.indexOf(',') != -1) {
+            return null;
+        }
+        if (ifRange != null) {
+            long date;
+            try {
+                date = ifRange.startsWith("\"") || ifRange.startsWith("W/") ? -1 : ZonedDateTime.parse(ifRange.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            } catch (DateTimeParseException x) {
+                date = -1;
+            }
+            if (date == -1 || date / 1000 != lastModified / 1000) {
+                return null;
+            }
+        }
+        String spec = range.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return null;
+                }
+                if (suffix == 0 || length == 0) {
+                    return UNSATISFIABLE_RANGE;
+                }
+                return new long[] {Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return UNSATISFIABLE_RANGE;
+            }
+            return new long[] {start, Math.min(end, length - 1)};
+        } catch (NumberFormatException x) {
+            return null;
+        }
+    }
+
     private static final class IsAbsolute extends MasterToSlaveCallable<Boolean, IOException> {
         private final String fragment;
 
@@ -829,9 +968,22 @@ public final class DirectoryBrowserSupport implements HttpResponse {
             Collection<String> files = baseDir.list(pattern, null, /* TODO what is the user expectation? */true, getOpenOptions());
 
             if (!files.isEmpty()) {
+                // get the attributes of all matches and of their parent directories at once
+                Set<String> paths = new LinkedHashSet<>();
+                for (String match : files) {
+                    for (int slash = match.indexOf('/'); slash != -1; slash = match.indexOf('/', slash + 1)) {
+                        paths.add(match.substring(0, slash));
+                    }
+                    paths.add(match);
+                }
+                Map<String, FilePath.Stat> stats = new HashMap<>();
+                for (FilePath.Stat stat : baseDir.stat(paths)) {
+                    stats.put(stat.getPath(), stat);
+                }
+
                 List<List<Path>> r = new ArrayList<>(files.size());
                 for (String match : files) {
-                    List<Path> file = buildPathList(baseDir, baseDir.child(match), baseRef);
+                    List<Path> file = buildPathList(match, stats, baseRef);
                     r.add(file);
                 }
                 return r;
@@ -843,30 +995,27 @@ public final class DirectoryBrowserSupport implements HttpResponse {
         /**
          * Builds a path list from the current workspace directory down to the specified file path.
          */
-        private static List<Path> buildPathList(VirtualFile baseDir, VirtualFile filePath, String baseRef) throws IOException {
+        private static List<Path> buildPathList(String match, Map<String, FilePath.Stat> stats, String baseRef) {
             List<Path> pathList = new ArrayList<>();
             StringBuilder href = new StringBuilder(baseRef);
+            int start = 0;
+            while (true) {
+                int slash = match.indexOf('/', start);
+                String name = match.substring(start, slash == -1 ? match.length() : slash);
+                FilePath.Stat stat = stats.get(slash == -1 ? match : match.substring(0, slash));
+
+                href.append(Util.rawEncode(name));
+                if (stat.isDirectory()) {
+                    href.append("/");
+                }
 
-            buildPathList(baseDir, filePath, pathList, href);
-            return pathList;
-        }
-
-        /**
-         * Builds the path list and href recursively top-down.
-         */
-        private static void buildPathList(VirtualFile baseDir, VirtualFile filePath, List<Path> pathList, StringBuilder href) throws IOException {
-            VirtualFile parent = filePath.getParent();
-            if (!baseDir.equals(parent)) {
-                buildPathList(baseDir, parent, pathList, href);
-            }
-
-            href.append(Util.rawEncode(filePath.getName()));
-            if (filePath.isDirectory()) {
-                href.append("/");
+                Path path = new Path(href.toString(), name, stat.isDirectory(), stat.length(), stat.canRead(), stat.lastModified());
+                pathList.add(path);
+                if (slash == -1) {
+                    return pathList;
+                }
+                start = slash + 1;
             }
-
-            Path path = new Path(href.toString(), filePath.getName(), filePath.isDirectory(), filePath.length(), filePath.canRead(), filePath.lastModified());
-            pathList.add(path);
         }
 
     private static OpenOption[] getOpenOptions() {
@@ -35,6 +35,7 @@ import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Util;
 import hudson.model.labels.LabelAtom;
+import hudson.model.labels.LabelBits;
 import hudson.model.labels.LabelExpression;
 import hudson.model.labels.LabelExpression.And;
 import hudson.model.labels.LabelExpression.Binary;
@@ -71,6 +72,7 @@ import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.DoNotUse;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
@@ -93,6 +95,7 @@ public abstract class Label extends Actionable implements Comparable<Label>, Mod
     private transient volatile Set<Node> nodes;
     private transient volatile Set<Cloud> clouds;
     private transient volatile int tiedJobsCount;
+    private transient volatile LabelBits.Matcher matcher;
 
     @Exported
     @NonNull
@@ -129,6 +132,11 @@ public abstract class Label extends Actionable implements Comparable<Label>, Mod
                 final Label l = item.getAssignedLabelFor(subTask);
                 return l != null && Label.this.matches(l.name);
             }
+
+            @Override
+            int countQueueLength(Counts counts) {
+                return counts.queueLength(Label.this.name);
+            }
         };
         this.nodeProvisioner = new NodeProvisioner(this, loadStatistics);
     }
@@ -186,19 +194,24 @@ public abstract class Label extends Actionable implements Comparable<Label>, Mod
      * {@link LabelAtom}s.
      */
     public final boolean matches(final Collection<LabelAtom> labels) {
-        return matches(new VariableResolver<>() {
-            @Override
-            public Boolean resolve(String name) {
-                for (LabelAtom a : labels)
-                    if (a.getName().equals(name))
-                        return true;
-                return false;
-            }
-        });
+        return matches(LabelBits.of(labels));
     }
 
     public final boolean matches(Node n) {
-        return matches(n.getAssignedLabels());
+        return matches(n.getLabelBits());
+    }
+
+    /**
+     * Evaluates whether the label expression is true for the given set of {@link LabelAtom}s,
+     * using the {@link LabelBits#compile compiled} expression.
+     */
+    @Restricted(NoExternalUse.class)
+    public final boolean matches(@NonNull LabelBits labels) {
+        LabelBits.Matcher m = matcher;
+        if (m == null || !m.isCurrent()) {
+            matcher = m = LabelBits.compile(this);
+        }
+        return m.matches(labels);
     }
 
     /**
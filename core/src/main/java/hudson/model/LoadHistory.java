@@ -0,0 +1,353 @@
+package hudson.model;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jenkins.util.SystemProperties;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * History of the queue length and of the busy and idle executors, as counted by {@link LoadStatistics} snapshots.
+ *
+ * <p>
+ * Unlike the exponential moving averages of {@link LoadStatistics}, the values are kept as sampled,
+ * so that short spikes remain visible, in fixed size ring buffers of primitive arrays at three resolutions:
+ * every sample for the last hour, then means and maxima over 5 minutes for the last day and over an hour for the last week.
+ * Periods during which no sample was taken are recorded as -1.
+ *
+ * <p>
+ * Meant to be read through the remote API by external dashboards.
+ *
+ * @see jenkins.model.LoadHistoryAction
+ * @since TODO
+ */
+@ExportedBean
+public final class LoadHistory {
+
+    private static final int RAW_SIZE = SystemProperties.getInteger(LoadHistory.class.getName() + ".rawSize", 360);
+    private static final int MEDIUM_SIZE = SystemProperties.getInteger(LoadHistory.class.getName() + ".mediumSize", 288);
+    private static final int LONG_SIZE = SystemProperties.getInteger(LoadHistory.class.getName() + ".longSize", 168);
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Recorded series, in this order: queue length, busy executors, idle executors.
+     */
+    private static final int SERIES = 3;
+
+    private final Ring[] rings;
+
+    /**
+     * @param clock the time in milliseconds between two samples
+     */
+    public LoadHistory(long clock) {
+        rings = new Ring[] {
+            new Ring(clock, RAW_SIZE, false),
+            new Ring(TimeUnit.MINUTES.toMillis(5), MEDIUM_SIZE, true),
+            new Ring(TimeUnit.HOURS.toMillis(1), LONG_SIZE, true),
+        };
+    }
+
+    /**
+     * Records a sample.
+     */
+    public synchronized void record(long time, @NonNull LoadStatistics.LoadStatisticsSnapshot snapshot) {
+        record(time, snapshot.getQueueLength(), snapshot.getBusyExecutors(), snapshot.getIdleExecutors());
+    }
+
+    /**
+     * Records a sample.
+     */
+    public synchronized void record(long time, int queueLength, int busyExecutors, int idleExecutors) {
+        float[] values = {queueLength, busyExecutors, idleExecutors};
+        for (Ring r : rings) {
+            r.add(time, values);
+        }
+    }
+
+    /**
+     * The recorded values, from the finest to the coarsest resolution.
+     */
+    @Exported(inline = true)
+    public synchronized List<Tier> getTiers() {
+        List<Tier> r = new ArrayList<>(rings.length);
+        for (Ring ring : rings) {
+            r.add(ring.toTier());
+        }
+        return r;
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /**
+     * Values recorded at one resolution, oldest first.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Tier {
+        private final long period;
+        private final long end;
+        private final float[][] mean;
+        private final float[][] max;
+
+        private Tier(long period, long end, float[][] mean, float[][] max) {
+            this.period = period;
+            this.end = end;
+            this.mean = mean;
+            this.max = max;
+        }
+
+        /**
+         * Time in milliseconds covered by each value.
+         */
+        @Exported
+        public long getPeriod() {
+            return period;
+        }
+
+        /**
+         * Time of the last value, or -1 if nothing was recorded yet.
+         * The last value of a tier with maxima may still change until its period ends.
+         */
+        @Exported
+        public long getEnd() {
+            return end;
+        }
+
+        @Exported
+        public float[] getQueueLength() {
+            return mean[0];
+        }
+
+        @Exported
+        public float[] getBusyExecutors() {
+            return mean[1];
+        }
+
+        @Exported
+        public float[] getIdleExecutors() {
+            return mean[2];
+        }
+
+        /**
+         * Maximum queue length over each period, or null for the tier of raw samples.
+         */
+        @Exported
+        @CheckForNull
+        public float[] getQueueLengthMax() {
+            return max == null ? null : max[0];
+        }
+
+        @Exported
+        @CheckForNull
+        public float[] getBusyExecutorsMax() {
+            return max == null ? null : max[1];
+        }
+
+        @Exported
+        @CheckForNull
+        public float[] getIdleExecutorsMax() {
+            return max == null ? null : max[2];
+        }
+    }
+
+    /**
+     * Ring buffer of the values at one resolution.
+     */
+    private static final class Ring {
+        private final long period;
+        private final int size;
+        private final float[][] mean;
+        /**
+         * Null if every sample is kept.
+         */
+        private final float[][] max;
+        /**
+         * Index of the next value to write.
+         */
+        private int head;
+        /**
+         * Number of values written, at most {@link #size}.
+         */
+        private int count;
+        /**
+         * Time of the last value written, or -1.
+         */
+        private long end = -1;
+
+        /**
+         * Start of the period being aggregated, -1 if none.
+         */
+        private long bucket = -1;
+        private final float[] sum = new float[SERIES];
+        private final float[] peak = new float[SERIES];
+        private int samples;
+
+        Ring(long period, int size, boolean aggregate) {
+            this.period = period;
+            this.size = Math.max(size, 1);
+            this.mean = new float[SERIES][this.size];
+            this.max = aggregate ? new float[SERIES][this.size] : null;
+        }
+
+        void add(long time, float[] values) {
+            if (max == null) {
+                // samples are not aligned on the period, but only a missed sample leaves a gap of two periods
+                if (end >= 0) {
+                    fillGap((time - end + period / 2) / period - 1);
+                }
+                write(values, values);
+                end = time;
+                return;
+            }
+            long b = time - time % period;
+            if (b != bucket) {
+                flush();
+                if (end >= 0) {
+                    fillGap((b - end) / period - 1);
+                    end = b - period;
+                }
+                bucket = b;
+            }
+            for (int i = 0; i < SERIES; i++) {
+                sum[i] += values[i];
+                peak[i] = samples == 0 ? values[i] : Math.max(peak[i], values[i]);
+            }
+            samples++;
+        }
+
+        private void flush() {
+            if (samples == 0) {
+                return;
+            }
+            float[] m = new float[SERIES];
+            for (int i = 0; i < SERIES; i++) {
+                m[i] = sum[i] / samples;
+            }
+            write(m, peak);
+            end = bucket;
+            Arrays.fill(sum, 0);
+            samples = 0;
+        }
+
+        private void fillGap(long missing) {
+            float[] none = {-1, -1, -1};
+            for (long i = Math.min(missing, size); i > 0; i--) {
+                write(none, none);
+            }
+        }
+
+        private void write(float[] m, float[] p) {
+            for (int i = 0; i < SERIES; i++) {
+                mean[i][head] = m[i];
+                if (max != null) {
+                    max[i][head] = p[i];
+                }
+            }
+            head = (head + 1) % size;
+            count = Math.min(count + 1, size);
+        }
+
+        Tier toTier() {
+            boolean partial = samples > 0;
+            int n = Math.min(count + (partial ? 1 : 0), size);
+            int written = partial ? n - 1 : n;
+            float[][] m = new float[SERIES][n];
+            float[][] p = max == null ? null : new float[SERIES][n];
+            int start = (head - written + size) % size;
+            for (int i = 0; i < SERIES; i++) {
+                for (int j = 0; j < written; j++) {
+                    m[i][j] = mean[i][(start + j) % size];
+                    if (p != null) {
+                        p[i][j] = max[i][(start + j) % size];
+                    }
+                }
+                if (partial) {
+                    m[i][n - 1] = sum[i] / samples;
+                    p[i][n - 1] = peak[i];
+                }
+            }
+            return new Tier(period, partial ? bucket : end, m, p);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(period);
+            out.writeInt(size);
+            out.writeInt(head);
+            out.writeInt(count);
+            out.writeLong(end);
+            out.writeLong(bucket);
+            out.writeInt(samples);
+            for (int i = 0; i < SERIES; i++) {
+                out.writeFloat(sum[i]);
+                out.writeFloat(peak[i]);
+                for (int j = 0; j < size; j++) {
+                    out.writeFloat(mean[i][j]);
+                    if (max != null) {
+                        out.writeFloat(max[i][j]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return false if the data was written with another configuration, in which case it is not read
+         */
+        boolean read(DataInputStream in) throws IOException {
+            if (in.readLong() != period || in.readInt() != size) {
+                return false;
+            }
+            head = in.readInt();
+            count = in.readInt();
+            end = in.readLong();
+            bucket = in.readLong();
+            samples = in.readInt();
+            for (int i = 0; i < SERIES; i++) {
+                sum[i] = in.readFloat();
+                peak[i] = in.readFloat();
+                for (int j = 0; j < size; j++) {
+                    mean[i][j] = in.readFloat();
+                    if (max != null) {
+                        max[i][j] = in.readFloat();
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes the recorded values, so that they can be {@link #read} after a restart.
+     */
+    public synchronized void write(@NonNull DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(rings.length);
+        for (Ring r : rings) {
+            r.write(out);
+        }
+    }
+
+    /**
+     * Reads values {@link #write written} earlier.
+     * Values recorded with a different configuration are discarded.
+     */
+    public synchronized void read(@NonNull DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION || in.readInt() != rings.length) {
+            return;
+        }
+        for (int i = 0; i < rings.length; i++) {
+            if (!rings[i].read(in)) {
+                rings[i] = new Ring(rings[i].period, rings[i].size, rings[i].max != null);
+                return;
+            }
+        }
+    }
+}
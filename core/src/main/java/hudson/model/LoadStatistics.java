@@ -27,6 +27,7 @@ package hudson.model;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.Extension;
+import hudson.Util;
 import hudson.model.MultiStageTimeSeries.TimeScale;
 import hudson.model.MultiStageTimeSeries.TrendChart;
 import hudson.model.queue.SubTask;
@@ -38,9 +39,13 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import jenkins.model.Jenkins;
+import jenkins.model.LoadHistoryAction;
 import jenkins.util.SystemProperties;
 import org.jenkinsci.Symbol;
 import org.jfree.chart.ChartFactory;
@@ -80,6 +85,12 @@ public abstract class LoadStatistics {
      */
     private final boolean modern;
 
+    /**
+     * Whether this class customizes {@link #computeSnapshot()}, respectively {@link #computeSnapshot(Iterable)},
+     * in which case snapshots are not computed from {@link Counts}.
+     */
+    private final boolean customSnapshot, customQueueSnapshot;
+
     /**
      * Number of executors defined for Jenkins and how it changes over time.
      * @since 1.607
@@ -155,6 +166,8 @@ public abstract class LoadStatistics {
                 Messages._LoadStatistics_Legends_QueueLength(), ColorPalette.GREY, 0, DECAY);
         this.totalExecutors = onlineExecutors;
         modern = isModern(getClass());
+        customSnapshot = Util.isOverridden(LoadStatistics.class, getClass(), "computeSnapshot");
+        customQueueSnapshot = Util.isOverridden(LoadStatistics.class, getClass(), "computeSnapshot", Iterable.class);
     }
 
     /*package*/ static boolean isModern(Class<? extends LoadStatistics> clazz) {
@@ -370,6 +383,79 @@ public abstract class LoadStatistics {
         return builder.withQueueLength(q).build();
     }
 
+    /**
+     * Computes the snapshot from counts shared with the other statistics being updated,
+     * rather than by inspecting all the nodes and queue items again.
+     */
+    /*package*/ LoadStatisticsSnapshot computeSnapshot(Counts counts) {
+        if (!modern || customSnapshot) {
+            return computeSnapshot();
+        }
+        if (customQueueSnapshot) {
+            return computeSnapshot(counts.queue);
+        }
+        LoadStatisticsSnapshot.Builder builder = LoadStatisticsSnapshot.builder();
+        Iterable<Node> nodes = getNodes();
+        if (nodes != null) {
+            for (Node node : nodes) {
+                builder.add(counts.of(node));
+            }
+        }
+        return builder.withQueueLength(countQueueLength(counts)).build();
+    }
+
+    /**
+     * Counts the buildable subtasks {@link #matches matching} these statistics.
+     */
+    /*package*/ int countQueueLength(Counts counts) {
+        int q = 0;
+        for (Queue.BuildableItem item : counts.queue) {
+            for (SubTask st : item.task.getSubTasks()) {
+                if (matches(item, st)) {
+                    q++;
+                }
+            }
+        }
+        return q;
+    }
+
+    /**
+     * Executor counts of each node and queue length of each assigned label, computed once per {@link LoadStatisticsUpdater} run.
+     * This makes updating the statistics of all labels proportional to the size of the labels
+     * rather than to the number of labels times the number of nodes and queue items.
+     */
+    /*package*/ static final class Counts {
+        private final List<Queue.BuildableItem> queue;
+        private final Map<Node, LoadStatisticsSnapshot> nodes = new IdentityHashMap<>();
+        private Map<String, Integer> labels;
+
+        /*package*/ Counts(List<Queue.BuildableItem> queue) {
+            this.queue = queue;
+        }
+
+        /*package*/ LoadStatisticsSnapshot of(Node node) {
+            return nodes.computeIfAbsent(node, n -> LoadStatisticsSnapshot.builder().with(n).build());
+        }
+
+        /**
+         * Number of buildable subtasks assigned to the label of this name.
+         */
+        /*package*/ int queueLength(String label) {
+            if (labels == null) {
+                labels = new HashMap<>();
+                for (Queue.BuildableItem item : queue) {
+                    for (SubTask st : item.task.getSubTasks()) {
+                        Label l = item.getAssignedLabelFor(st);
+                        if (l != null) {
+                            labels.merge(l.getName(), 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+            return labels.getOrDefault(label, 0);
+        }
+    }
+
     /**
      * With 0.90 decay ratio for every 10sec, half reduction is about 1 min.
      *
@@ -396,16 +482,25 @@ public abstract class LoadStatistics {
         protected void doRun() {
             Jenkins j = Jenkins.get();
             List<Queue.BuildableItem> bis = j.getQueue().getBuildableItems();
+            Counts counts = new Counts(bis);
+            LoadHistoryAction history = LoadHistoryAction.get();
+            long now = System.currentTimeMillis();
 
             // update statistics on agents
             for (Label l : j.getLabels()) {
-                l.loadStatistics.updateCounts(l.loadStatistics.computeSnapshot(bis));
+                LoadStatisticsSnapshot snapshot = l.loadStatistics.computeSnapshot(counts);
+                l.loadStatistics.updateCounts(snapshot);
+                history.recordLabel(now, l, snapshot);
             }
 
             // update statistics of the entire system
-            j.unlabeledLoad.updateCounts(j.unlabeledLoad.computeSnapshot(bis));
+            LoadStatisticsSnapshot unlabeled = j.unlabeledLoad.computeSnapshot(counts);
+            j.unlabeledLoad.updateCounts(unlabeled);
+
+            LoadStatisticsSnapshot overall = j.overallLoad.computeSnapshot(counts);
+            j.overallLoad.updateCounts(overall);
 
-            j.overallLoad.updateCounts(j.overallLoad.computeSnapshot(bis));
+            history.record(now, overall, unlabeled, bis);
         }
 
         private int count(List<Queue.BuildableItem> bis, Label l) {
@@ -615,6 +710,16 @@ public abstract class LoadStatistics {
                 );
             }
 
+            /*package*/ Builder add(LoadStatisticsSnapshot snapshot) {
+                definedExecutors += snapshot.getDefinedExecutors();
+                onlineExecutors += snapshot.getOnlineExecutors();
+                connectingExecutors += snapshot.getConnectingExecutors();
+                busyExecutors += snapshot.getBusyExecutors();
+                idleExecutors += snapshot.getIdleExecutors();
+                availableExecutors += snapshot.getAvailableExecutors();
+                return this;
+            }
+
             public Builder withQueueLength(int queueLength) {
                 this.queueLength = queueLength;
                 return this;
@@ -38,6 +38,7 @@ import hudson.Util;
 import hudson.model.Descriptor.FormException;
 import hudson.model.Queue.Task;
 import hudson.model.labels.LabelAtom;
+import hudson.model.labels.LabelBits;
 import hudson.model.queue.CauseOfBlockage;
 import hudson.remoting.Callable;
 import hudson.remoting.VirtualChannel;
@@ -55,6 +56,7 @@ import hudson.util.EnumConverter;
 import hudson.util.TagCloud;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -329,6 +331,39 @@ public abstract class Node extends AbstractModelObject implements Reconfigurable
         return Collections.unmodifiableSet(r);
     }
 
+    /**
+     * Returns the {@link #getAssignedLabels() assigned labels} as a bit set for {@link Label#matches(Node)},
+     * cached until the labels are {@link LabelBits#invalidate() invalidated},
+     * or the label string or name of this node change.
+     * {@link LabelFinder Dynamic labels} are only looked up again once invalidated, for example when an agent comes online,
+     * as {@link Label#getNodes()} does.
+     * Not cached if {@link #getAssignedLabels()} is overridden.
+     */
+    @NonNull
+    @Restricted(NoExternalUse.class)
+    public LabelBits getLabelBits() {
+        if (ASSIGNED_LABELS_OVERRIDDEN.get(getClass())) {
+            return LabelBits.of(getAssignedLabels());
+        }
+        // getLabelAtomSet() may be parsed again on each call, so compare what it is parsed from;
+        // asking every LabelFinder here would cost more than matching without the bit set
+        List<String> source = Arrays.asList(getLabelString(), getNodeName());
+        LabelBits bits = labelBits;
+        if (bits == null || !bits.isCurrent(source)) {
+            labelBits = bits = LabelBits.of(getAssignedLabels(), source);
+        }
+        return bits;
+    }
+
+    private transient volatile LabelBits labelBits;
+
+    private static final ClassValue<Boolean> ASSIGNED_LABELS_OVERRIDDEN = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return Util.isOverridden(Node.class, type, "getAssignedLabels");
+        }
+    };
+
     /**
      * Return all the labels assigned dynamically to this node.
      * This calls all the LabelFinder implementations with the node converts
@@ -121,6 +121,7 @@ import jenkins.security.MasterToSlaveCallable;
 import jenkins.util.SystemProperties;
 import jenkins.util.VirtualFile;
 import jenkins.util.io.OnMaster;
+import jenkins.util.io.PathRemover;
 import net.sf.json.JSONObject;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.jelly.XMLOutput;
@@ -1666,13 +1667,19 @@ public abstract class Run<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
                 throw new IOException(rootDir + " is in use", ex);
             }
 
-            Util.deleteRecursive(tmp);
-            // some user reported that they see some left-over .xyz files in the workspace,
-            // so just to make sure we've really deleted it, schedule the deletion on VM exit, too.
-            if (tmp.exists()) {
-                tmp.deleteOnExit();
+            if (DELETE_IN_BACKGROUND) {
+                // the build directory is already out of the way, so do not keep the caller waiting
+                Util.deleteRecursiveInBackground(Util.fileToPath(tmp));
+                LOGGER.log(FINE, "{0}: {1} queued for deletion as {2}", new Object[] {this, rootDir, tmp});
+            } else {
+                Util.deleteRecursiveInParallel(Util.fileToPath(tmp), PathRemover.PathChecker.ALLOW_ALL);
+                // some user reported that they see some left-over .xyz files in the workspace,
+                // so just to make sure we've really deleted it, schedule the deletion on VM exit, too.
+                if (tmp.exists()) {
+                    tmp.deleteOnExit();
+                }
+                LOGGER.log(FINE, "{0}: {1} successfully deleted", new Object[] {this, rootDir});
             }
-            LOGGER.log(FINE, "{0}: {1} successfully deleted", new Object[] {this, rootDir});
             removeRunFromParent();
         }
     }
@@ -2665,6 +2672,13 @@ public abstract class Run<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
     @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
     public static /* Script Console modifiable */ boolean SKIP_PERMISSION_CHECK = SystemProperties.getBoolean(Run.class.getName() + ".skipPermissionCheck");
 
+    /**
+     * Whether {@link #delete} returns once the build directory is renamed, leaving its contents to be deleted in the background.
+     */
+    @Restricted(NoExternalUse.class)
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static /* Script Console modifiable */ boolean DELETE_IN_BACKGROUND = SystemProperties.getBoolean(Run.class.getName() + ".deleteInBackground");
+
 
     public static class RedirectUp {
         public void doDynamic(StaplerRequest req, StaplerResponse rsp) throws IOException {
@@ -0,0 +1,404 @@
+package hudson.model.labels;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.util.VariableResolver;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Set of {@link LabelAtom}s as a bit set, against which {@link #compile compiled} label expressions are evaluated
+ * with a few word operations instead of comparing label names.
+ *
+ * <p>
+ * Only atoms used in a compiled expression get an id, so the bit sets stay small however many agents
+ * (and self labels) come and go. The ids are renumbered when most of them are no longer in use,
+ * and bit sets and compiled expressions of different numberings are never mixed.
+ *
+ * <p>
+ * The bit set of the labels of a {@link Node} is cached until its label string or name change or labels are {@link #invalidate invalidated},
+ * which happens whenever {@link Label#getNodes()} caches are reset, when new atoms get an id and when an agent comes online.
+ * Only then are its dynamic labels looked up again.
+ */
+@Restricted(NoExternalUse.class)
+public final class LabelBits {
+
+    private static final Logger LOGGER = Logger.getLogger(LabelBits.class.getName());
+
+    private static volatile Ids ids = new Ids();
+
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private final Ids table;
+    /**
+     * Atoms having an id lower than this one are represented.
+     */
+    private final int known;
+    private final long generation;
+    private final long[] words;
+    private final Collection<LabelAtom> atoms;
+    private final Object source;
+
+    private LabelBits(Collection<LabelAtom> atoms, Object source) {
+        this.generation = GENERATION.get();
+        this.table = ids;
+        this.known = table.next.get();
+        this.atoms = atoms;
+        this.source = source;
+        long[] w = new long[0];
+        for (LabelAtom a : atoms) {
+            Integer id = table.ids.get(a.getName());
+            if (id != null) {
+                if (id >> 6 >= w.length) {
+                    w = Arrays.copyOf(w, (id >> 6) + 1);
+                }
+                w[id >> 6] |= 1L << id;
+            }
+        }
+        this.words = w;
+    }
+
+    /**
+     * Bit set of the given atoms.
+     */
+    @NonNull
+    public static LabelBits of(@NonNull Collection<LabelAtom> atoms) {
+        return new LabelBits(atoms, null);
+    }
+
+    /**
+     * Bit set of the {@link Node#getAssignedLabels() labels of a node}.
+     *
+     * @param source what the labels of the node are computed from, compared with {@link Object#equals}
+     */
+    @NonNull
+    public static LabelBits of(@NonNull Collection<LabelAtom> atoms, @NonNull Object source) {
+        return new LabelBits(atoms, source);
+    }
+
+    /**
+     * Whether this bit set can still be used for a node whose labels come from the given source.
+     */
+    public boolean isCurrent(@NonNull Object source) {
+        return generation == GENERATION.get() && source.equals(this.source);
+    }
+
+    /**
+     * The atoms of this set, as given.
+     */
+    @NonNull
+    public Collection<LabelAtom> getAtoms() {
+        return atoms;
+    }
+
+    /**
+     * Discards the bit sets cached for nodes, so that they are computed again from their {@link Node#getAssignedLabels() labels}.
+     *
+     * @param liveLabels the number of labels in use, used to decide whether to renumber the atoms
+     */
+    public static void invalidate(int liveLabels) {
+        Ids t = ids;
+        if (t.next.get() > Math.max(1024, 2 * liveLabels)) {
+            LOGGER.log(Level.FINE, "Renumbering {0} label atoms, {1} labels in use", new Object[] {t.next.get(), liveLabels});
+            ids = new Ids();
+        }
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Discards the bit sets cached for nodes.
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Compiles a label expression.
+     */
+    @NonNull
+    public static Matcher compile(@NonNull Label label) {
+        Ids t = ids;
+        int before = t.next.get();
+        Expr e;
+        try {
+            e = label.accept(COMPILER, t);
+        } catch (RuntimeException x) {
+            // a label implemented outside of core
+            LOGGER.log(Level.FINE, "Cannot compile " + label, x);
+            e = null;
+        }
+        if (t.next.get() != before) {
+            // nodes cached before the new atoms had an id do not have their bits
+            invalidate();
+        }
+        return new Matcher(label, t, e);
+    }
+
+    /**
+     * A compiled label expression.
+     */
+    public static final class Matcher {
+        private final Label label;
+        private final Ids table;
+        /**
+         * Null if the label could not be compiled.
+         */
+        private final Expr expr;
+        /**
+         * Highest atom id used by the expression.
+         */
+        private final int maxId;
+
+        private Matcher(Label label, Ids table, Expr expr) {
+            this.label = label;
+            this.table = table;
+            this.expr = expr;
+            this.maxId = expr == null ? Integer.MAX_VALUE : expr.maxId();
+        }
+
+        @NonNull
+        public Label getLabel() {
+            return label;
+        }
+
+        /**
+         * Whether this compilation uses the current atom ids.
+         */
+        public boolean isCurrent() {
+            return table == ids;
+        }
+
+        /**
+         * Evaluates the expression against the given atoms.
+         */
+        public boolean matches(@NonNull LabelBits bits) {
+            if (bits.table != table || maxId >= bits.known) {
+                // a bit set and an expression compiled with different ids, or an expression which could not be compiled
+                return label.matches(resolver(bits.atoms));
+            }
+            return expr.test(bits.words);
+        }
+    }
+
+    /**
+     * Evaluates atoms by comparing their names.
+     */
+    private static VariableResolver<Boolean> resolver(@NonNull Collection<LabelAtom> atoms) {
+        return name -> {
+            for (LabelAtom a : atoms) {
+                if (a.getName().equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Numbering of the atoms.
+     */
+    private static final class Ids {
+        final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        final AtomicInteger next = new AtomicInteger();
+
+        /**
+         * The entry is added before {@link #next} is incremented, so that the ids lower than {@link #next} can always be looked up.
+         */
+        synchronized int idOf(String name) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = next.get();
+                ids.put(name, id);
+                next.incrementAndGet();
+            }
+            return id;
+        }
+    }
+
+    private abstract static class Expr {
+        abstract boolean test(long[] words);
+
+        abstract int maxId();
+    }
+
+    private static long word(long[] words, int i) {
+        return i < words.length ? words[i] : 0;
+    }
+
+    /**
+     * All of the atoms are present; a single atom or a conjunction of atoms.
+     */
+    private static final class AllOf extends Expr {
+        final long[] mask;
+
+        AllOf(long[] mask) {
+            this.mask = mask;
+        }
+
+        @Override
+        boolean test(long[] words) {
+            for (int i = 0; i < mask.length; i++) {
+                if ((word(words, i) & mask[i]) != mask[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        int maxId() {
+            return LabelBits.maxId(mask);
+        }
+    }
+
+    /**
+     * Any of the atoms is present; a disjunction of atoms.
+     */
+    private static final class AnyOf extends Expr {
+        final long[] mask;
+
+        AnyOf(long[] mask) {
+            this.mask = mask;
+        }
+
+        @Override
+        boolean test(long[] words) {
+            for (int i = 0; i < mask.length; i++) {
+                if ((word(words, i) & mask[i]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        int maxId() {
+            return LabelBits.maxId(mask);
+        }
+    }
+
+    private static final class Not extends Expr {
+        final Expr base;
+
+        Not(Expr base) {
+            this.base = base;
+        }
+
+        @Override
+        boolean test(long[] words) {
+            return !base.test(words);
+        }
+
+        @Override
+        int maxId() {
+            return base.maxId();
+        }
+    }
+
+    private static final class Binary extends Expr {
+        final LabelExpression.Binary op;
+        final Expr lhs, rhs;
+
+        Binary(LabelExpression.Binary op, Expr lhs, Expr rhs) {
+            this.op = op;
+            this.lhs = lhs;
+            this.rhs = rhs;
+        }
+
+        @Override
+        boolean test(long[] words) {
+            return op.op(lhs.test(words), rhs.test(words));
+        }
+
+        @Override
+        int maxId() {
+            return Math.max(lhs.maxId(), rhs.maxId());
+        }
+    }
+
+    private static int maxId(long[] mask) {
+        for (int i = mask.length - 1; i >= 0; i--) {
+            if (mask[i] != 0) {
+                return i * 64 + 63 - Long.numberOfLeadingZeros(mask[i]);
+            }
+        }
+        return -1;
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        long[] r = Arrays.copyOf(a, Math.max(a.length, b.length));
+        for (int i = 0; i < b.length; i++) {
+            r[i] |= b[i];
+        }
+        return r;
+    }
+
+    private static final LabelVisitor<Expr, Ids> COMPILER = new LabelVisitor<>() {
+        @Override
+        public Expr onAtom(LabelAtom a, Ids t) {
+            int id = t.idOf(a.getName());
+            long[] mask = new long[(id >> 6) + 1];
+            mask[id >> 6] = 1L << id;
+            return new AllOf(mask);
+        }
+
+        @Override
+        public Expr onParen(LabelExpression.Paren p, Ids t) {
+            return p.base.accept(this, t);
+        }
+
+        @Override
+        public Expr onNot(LabelExpression.Not p, Ids t) {
+            return new Not(p.base.accept(this, t));
+        }
+
+        @Override
+        public Expr onAnd(LabelExpression.And p, Ids t) {
+            Expr lhs = p.lhs.accept(this, t);
+            Expr rhs = p.rhs.accept(this, t);
+            if (lhs instanceof AllOf && rhs instanceof AllOf) {
+                return new AllOf(union(((AllOf) lhs).mask, ((AllOf) rhs).mask));
+            }
+            return new Binary(p, lhs, rhs);
+        }
+
+        @Override
+        public Expr onOr(LabelExpression.Or p, Ids t) {
+            Expr lhs = anyOf(p.lhs.accept(this, t));
+            Expr rhs = anyOf(p.rhs.accept(this, t));
+            if (lhs instanceof AnyOf && rhs instanceof AnyOf) {
+                return new AnyOf(union(((AnyOf) lhs).mask, ((AnyOf) rhs).mask));
+            }
+            return new Binary(p, lhs, rhs);
+        }
+
+        /**
+         * A single atom is also a disjunction.
+         */
+        private Expr anyOf(Expr e) {
+            if (e instanceof AllOf && Arrays.stream(((AllOf) e).mask).map(Long::bitCount).sum() == 1) {
+                return new AnyOf(((AllOf) e).mask);
+            }
+            return e;
+        }
+
+        @Override
+        public Expr onIff(LabelExpression.Iff p, Ids t) {
+            return new Binary(p, p.lhs.accept(this, t), p.rhs.accept(this, t));
+        }
+
+        @Override
+        public Expr onImplies(LabelExpression.Implies p, Ids t) {
+            return new Binary(p, p.lhs.accept(this, t), p.rhs.accept(this, t));
+        }
+    };
+}
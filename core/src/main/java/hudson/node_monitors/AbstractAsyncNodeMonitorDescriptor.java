@@ -5,16 +5,21 @@ import static java.util.logging.Level.WARNING;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.Functions;
 import hudson.model.Computer;
 import hudson.remoting.Callable;
 import hudson.remoting.VirtualChannel;
 import hudson.slaves.SlaveComputer;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -23,16 +28,30 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
 
 /**
  * Sophisticated version of {@link AbstractNodeMonitorDescriptor} that
  * performs monitoring on all agents concurrently and asynchronously.
  *
+ * <p>
+ * At most {@code hudson.node_monitors.AbstractAsyncNodeMonitorDescriptor.maxConcurrency} agents are monitored at a time,
+ * each for at most {@link #getMonitoringTimeOut()}, and each result is visible through {@link #get(Computer)} as soon as it arrives.
+ *
  * @param <T>
  *     represents the result of the monitoring.
  * @author Kohsuke Kawaguchi
  */
 public abstract class AbstractAsyncNodeMonitorDescriptor<T> extends AbstractNodeMonitorDescriptor<T> {
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console and tests")
+    static /* non-final for script console */ int MAX_CONCURRENCY =
+            SystemProperties.getInteger(AbstractAsyncNodeMonitorDescriptor.class.getName() + ".maxConcurrency", 100);
+
+    /**
+     * How long to wait at most for a result before checking for others.
+     */
+    private static final long POLL_INTERVAL = 100;
+
     protected AbstractAsyncNodeMonitorDescriptor() {
     }
 
@@ -80,41 +99,64 @@ public abstract class AbstractAsyncNodeMonitorDescriptor<T> extends AbstractNode
      * Perform monitoring with detailed reporting.
      */
     protected final @NonNull Result<T> monitorDetailed() throws InterruptedException {
-        Map<Computer, Future<T>> futures = new HashMap<>();
+        Deque<Computer> queue = new ArrayDeque<>(getComputersToMonitor());
+        // in the order they were started, so that the oldest one is waited for
+        Map<Computer, Future<T>> futures = new LinkedHashMap<>();
+        Map<Computer, Long> started = new HashMap<>();
         Set<Computer> skipped = new HashSet<>();
+        final Map<Computer, T> data = new HashMap<>();
+        final long timeout = getMonitoringTimeOut();
 
-        for (Computer c : Jenkins.get().getComputers()) {
-            try {
-                VirtualChannel ch = c.getChannel();
-                futures.put(c, null);    // sentinel value
-                if (ch != null) {
-                    Callable<T, ?> cc = createCallable(c);
-                    if (cc != null)
-                        futures.put(c, ch.callAsync(cc));
+        while (!queue.isEmpty() || !futures.isEmpty()) {
+            while (futures.size() < Math.max(1, MAX_CONCURRENCY) && !queue.isEmpty()) {
+                Computer c = queue.poll();
+                data.put(c, null);  // sentinel value
+                try {
+                    VirtualChannel ch = c.getChannel();
+                    Callable<T, ?> cc = ch == null ? null : createCallable(c);
+                    if (cc == null) {
+                        skipped.add(c);
+                        continue;
+                    }
+                    started.put(c, System.currentTimeMillis());
+                    futures.put(c, ch.callAsync(cc));
+                } catch (RuntimeException | IOException e) {
+                    error(c, e);
                 }
-            } catch (RuntimeException | IOException e) {
-                error(c, e);
             }
-        }
-
-        final long now = System.currentTimeMillis();
-        final long end = now + getMonitoringTimeOut();
-
-        final Map<Computer, T> data = new HashMap<>();
+            if (futures.isEmpty()) {
+                continue;
+            }
 
-        for (Map.Entry<Computer, Future<T>> e : futures.entrySet()) {
-            Computer c = e.getKey();
-            Future<T> f = futures.get(c);
-            data.put(c, null);  // sentinel value
+            Map.Entry<Computer, Future<T>> oldest = futures.entrySet().iterator().next();
+            long wait = started.get(oldest.getKey()) + timeout - System.currentTimeMillis();
+            try {
+                oldest.getValue().get(Math.max(0, Math.min(wait, POLL_INTERVAL)), MILLISECONDS);
+            } catch (RuntimeException | TimeoutException | ExecutionException x) {
+                // reported below
+            }
 
-            if (f != null) {
-                try {
-                    data.put(c, f.get(Math.max(0, end - System.currentTimeMillis()), MILLISECONDS));
-                } catch (RuntimeException | TimeoutException | ExecutionException x) {
-                    error(c, x);
+            long now = System.currentTimeMillis();
+            for (Iterator<Map.Entry<Computer, Future<T>>> it = futures.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Computer, Future<T>> e = it.next();
+                Computer c = e.getKey();
+                Future<T> f = e.getValue();
+                long latency = now - started.get(c);
+                if (f.isDone()) {
+                    it.remove();
+                    T value = null;
+                    try {
+                        value = f.get();
+                        data.put(c, value);
+                    } catch (RuntimeException | ExecutionException x) {
+                        error(c, x);
+                    }
+                    publish(c, value, latency);
+                } else if (latency >= timeout) {
+                    it.remove();
+                    error(c, new TimeoutException("No result after " + latency + "ms"));
+                    timedOut(c, latency);
                 }
-            } else {
-                skipped.add(c);
             }
         }
 
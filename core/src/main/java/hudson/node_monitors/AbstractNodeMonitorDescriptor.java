@@ -24,6 +24,8 @@
 
 package hudson.node_monitors;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Util;
 import hudson.model.AdministrativeMonitor;
 import hudson.model.Computer;
@@ -32,10 +34,17 @@ import hudson.model.Descriptor;
 import hudson.slaves.OfflineCause;
 import hudson.triggers.SafeTimerTask;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -43,6 +52,8 @@ import jenkins.model.Jenkins;
 import jenkins.util.SystemProperties;
 import jenkins.util.Timer;
 import net.jcip.annotations.GuardedBy;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Convenient base class for common {@link NodeMonitor} implementation
@@ -142,6 +153,18 @@ public abstract class AbstractNodeMonitorDescriptor<T> extends Descriptor<NodeMo
     @GuardedBy("this")
     private transient long inProgressStarted = Long.MIN_VALUE;
 
+    /**
+     * Computers to monitor once the update activity in progress completes.
+     */
+    @GuardedBy("this")
+    private final transient Set<Computer> pending = new HashSet<>();
+
+    /**
+     * Results of the update activity in progress, visible before it completes.
+     * Null results are not kept, so that the previous ones remain visible.
+     */
+    private final transient Map<Computer, T> published = new ConcurrentHashMap<>();
+
     /**
      * Performs monitoring of the given computer object.
      * This method is invoked periodically to perform the monitoring of the computer.
@@ -164,14 +187,18 @@ public abstract class AbstractNodeMonitorDescriptor<T> extends Descriptor<NodeMo
      */
     protected Map<Computer, T> monitor() throws InterruptedException {
         Map<Computer, T> data = new HashMap<>();
-        for (Computer c : Jenkins.get().getComputers()) {
+        for (Computer c : getComputersToMonitor()) {
             try {
                 Thread.currentThread().setName("Monitoring " + c.getDisplayName() + " for " + getDisplayName());
 
                 if (c.getChannel() == null)
                     data.put(c, null);
-                else
-                    data.put(c, monitor(c));
+                else {
+                    long start = System.currentTimeMillis();
+                    T value = monitor(c);
+                    data.put(c, value);
+                    publish(c, value, System.currentTimeMillis() - start);
+                }
             } catch (RuntimeException | IOException e) {
                 LOGGER.log(Level.WARNING, "Failed to monitor " + c.getDisplayName() + " for " + getDisplayName(), e);
             } catch (InterruptedException e) {
@@ -181,6 +208,54 @@ public abstract class AbstractNodeMonitorDescriptor<T> extends Descriptor<NodeMo
         return data;
     }
 
+    /**
+     * The computers to monitor in {@link #monitor()}: all of them,
+     * or those given to {@link #triggerUpdate(Collection)} when only these are monitored.
+     */
+    /*package*/ Collection<Computer> getComputersToMonitor() {
+        Thread t = Thread.currentThread();
+        if (t instanceof AbstractNodeMonitorDescriptor.Record) {
+            AbstractNodeMonitorDescriptor<?>.Record r = (AbstractNodeMonitorDescriptor<?>.Record) t;
+            if (r.getDescriptor() == this && r.computers != null) {
+                Jenkins j = Jenkins.get();
+                List<Computer> computers = new ArrayList<>(r.computers);
+                computers.removeIf(c -> j.getComputer(c.getName()) != c);
+                return computers;
+            }
+        }
+        return Arrays.asList(Jenkins.get().getComputers());
+    }
+
+    /**
+     * Makes the result of monitoring a computer visible through {@link #get(Computer)} before the update activity completes,
+     * and records how long it took.
+     *
+     * @param value null if no value was obtained
+     * @param latency the time in milliseconds it took to obtain the value
+     */
+    /*package*/ void publish(Computer c, @CheckForNull T value, long latency) {
+        if (value != null) {
+            published.put(c, value);
+        }
+        progress(c, latency, false);
+    }
+
+    /**
+     * Records that monitoring a computer timed out.
+     */
+    /*package*/ void timedOut(Computer c, long latency) {
+        progress(c, latency, true);
+    }
+
+    private void progress(Computer c, long latency, boolean timedOut) {
+        Thread t = Thread.currentThread();
+        if (t instanceof AbstractNodeMonitorDescriptor.Record) {
+            AbstractNodeMonitorDescriptor<?>.Record r = (AbstractNodeMonitorDescriptor<?>.Record) t;
+            r.latency.add(c, latency, timedOut);
+            r.lastProgress = System.currentTimeMillis();
+        }
+    }
+
     /**
      * Obtains the monitoring result currently available, or null if no data is available.
      *
@@ -188,6 +263,10 @@ public abstract class AbstractNodeMonitorDescriptor<T> extends Descriptor<NodeMo
      * If no data is available, a background task to collect data will be started.
      */
     public T get(Computer c) {
+        T value = published.get(c);
+        if (value != null) {
+            return value;
+        }
         if (record == null || !record.data.containsKey(c)) {
             // if we don't have the data, schedule the check now
             triggerUpdate();
@@ -216,6 +295,16 @@ public abstract class AbstractNodeMonitorDescriptor<T> extends Descriptor<NodeMo
         return Util.getTimeSpanString(System.currentTimeMillis() - record.timestamp);
     }
 
+    /**
+     * Summary of the time it took to monitor each computer during the last update, or null if no data is available.
+     */
+    @Restricted(NoExternalUse.class)
+    @CheckForNull
+    public String getLatencyString() {
+        Record r = record;
+        return r == null ? null : r.latency.toString();
+    }
+
     /**
      * Is this monitor currently ignored?
      */
@@ -269,23 +358,41 @@ public abstract class AbstractNodeMonitorDescriptor<T> extends Descriptor<NodeMo
      * @see NodeMonitor#triggerUpdate()
      */
     /*package*/ synchronized Thread triggerUpdate() {
+        return startUpdate(null);
+    }
+
+    /**
+     * Monitors only the given computers, such as agents which just came online, and keeps the data of the others.
+     * If an update activity is in progress, the computers are monitored once it completes.
+     *
+     * @return the update activity started or in progress, null if there is nothing to monitor
+     */
+    /*package*/ synchronized @CheckForNull Thread triggerUpdate(@NonNull Collection<Computer> computers) {
+        return computers.isEmpty() ? null : startUpdate(new HashSet<>(computers));
+    }
+
+    private synchronized Thread startUpdate(@CheckForNull Set<Computer> computers) {
         if (inProgress != null) {
             if (!inProgress.isAlive()) {
                 LOGGER.log(Level.WARNING, "Previous {0} monitoring activity died without cleaning up after itself",
                     getDisplayName());
                 inProgress = null;
-            } else if (System.currentTimeMillis() > inProgressStarted + getMonitoringTimeOut() + 1000) {
+            } else if (System.currentTimeMillis() > Math.max(inProgressStarted, inProgress.lastProgress) + getMonitoringTimeOut() + 1000) {
                 // maybe it got stuck?
                 LOGGER.log(Level.WARNING, "Previous {0} monitoring activity still in progress. Interrupting",
                         getDisplayName());
                 inProgress.interrupt();
                 inProgress = null; // we interrupted the old one so it's now dead to us.
             } else {
+                if (computers != null) {
+                    pending.addAll(computers);
+                }
                 // return the in progress
                 return inProgress;
             }
         }
-        final Record t = new Record();
+        published.clear();
+        final Record t = new Record(computers);
         t.start();
         // only store the new thread if we started it
         inProgress = t;
@@ -312,8 +419,26 @@ public abstract class AbstractNodeMonitorDescriptor<T> extends Descriptor<NodeMo
 
         private long timestamp;
 
-        Record() {
+        /**
+         * The computers to monitor, or null to monitor all of them.
+         */
+        @CheckForNull
+        private final Set<Computer> computers;
+
+        private final Latency latency = new Latency();
+
+        /**
+         * When a computer was last monitored.
+         */
+        private volatile long lastProgress = Long.MIN_VALUE;
+
+        Record(@CheckForNull Set<Computer> computers) {
             super("Monitoring thread for " + getDisplayName() + " started on " + new Date());
+            this.computers = computers;
+        }
+
+        AbstractNodeMonitorDescriptor<T> getDescriptor() {
+            return AbstractNodeMonitorDescriptor.this;
         }
 
         @Override
@@ -321,25 +446,76 @@ public abstract class AbstractNodeMonitorDescriptor<T> extends Descriptor<NodeMo
             try {
                 long startTime = System.currentTimeMillis();
                 String oldName = getName();
-                data = monitor();
+                Map<Computer, T> result = monitor();
                 setName(oldName);
 
-                timestamp = System.currentTimeMillis();
+                Record previous = record;
+                if (computers != null && previous != null) {
+                    // the other computers keep the data and the time of the previous update
+                    Map<Computer, T> merged = new HashMap<>(previous.data);
+                    merged.putAll(result);
+                    result = merged;
+                    timestamp = previous.timestamp;
+                } else {
+                    timestamp = System.currentTimeMillis();
+                }
+                data = result;
+                latency.duration = System.currentTimeMillis() - startTime;
                 record = this;
+                published.clear();
 
-                LOGGER.log(Level.FINE, "Node monitoring {0} completed in {1}ms", new Object[] {getDisplayName(), System.currentTimeMillis() - startTime});
+                LOGGER.log(Level.FINE, "Node monitoring {0} completed in {1}ms: {2}", new Object[] {getDisplayName(), latency.duration, latency});
             } catch (InterruptedException x) {
                 // interrupted by new one, fine
             } catch (Throwable t) {
                 LOGGER.log(Level.WARNING, "Unexpected node monitoring termination: " + getDisplayName(), t);
             } finally {
                 synchronized (AbstractNodeMonitorDescriptor.this) {
-                    if (inProgress == this)
+                    if (inProgress == this) {
                         inProgress = null;
+                        if (!pending.isEmpty()) {
+                            Set<Computer> next = new HashSet<>(pending);
+                            pending.clear();
+                            startUpdate(next);
+                        }
+                    }
                 }
             }
         }
     }
 
+    /**
+     * How long monitoring each computer took during an update.
+     */
+    private static final class Latency {
+        private int count;
+        private long total;
+        private long max;
+        private String slowest;
+        private int timeouts;
+        private volatile long duration;
+
+        synchronized void add(Computer c, long millis, boolean timedOut) {
+            count++;
+            total += millis;
+            if (millis >= max) {
+                max = millis;
+                slowest = c.getDisplayName();
+            }
+            if (timedOut) {
+                timeouts++;
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            if (count == 0) {
+                return Messages.AbstractNodeMonitorDescriptor_NoDataYet();
+            }
+            return Messages.AbstractNodeMonitorDescriptor_Latency(count, Util.getTimeSpanString(duration),
+                    total / count, max, slowest, timeouts);
+        }
+    }
+
     private static final Logger LOGGER = Logger.getLogger(AbstractNodeMonitorDescriptor.class.getName());
 }
@@ -1,6 +1,7 @@
 package hudson.node_monitors;
 
 import hudson.Extension;
+import hudson.Util;
 import hudson.model.AdministrativeMonitor;
 import hudson.model.Computer;
 import hudson.model.ComputerSet;
@@ -8,28 +9,21 @@ import hudson.model.TaskListener;
 import hudson.slaves.ComputerListener;
 import hudson.util.Futures;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import jenkins.model.Jenkins;
 import jenkins.util.Timer;
 
 /**
- * When an agent is connected, redo the node monitoring.
+ * When agents are connected, monitor them.
  *
  * @author Kohsuke Kawaguchi
  */
 @Extension
 public class NodeMonitorUpdater extends ComputerListener {
 
-    private static final Runnable MONITOR_UPDATER = new Runnable() {
-        @Override
-        public void run() {
-            for (NodeMonitor nm : ComputerSet.getMonitors()) {
-                nm.triggerUpdate();
-            }
-        }
-    };
-
     private static final Runnable MARKEDOFFLINE_UPDATER = new Runnable() {
         @Override
         public void run() {
@@ -49,15 +43,39 @@ public class NodeMonitorUpdater extends ComputerListener {
 
     private Future<?> future = Futures.precomputed(null);
 
+    private Future<?> onlineFuture = Futures.precomputed(null);
+
+    /**
+     * Agents which came online since the last update.
+     */
+    private final Set<Computer> online = new HashSet<>();
+
     /**
      * Triggers the update with 5 seconds quiet period, to avoid triggering data check too often
      * when multiple agents become online at about the same time.
+     * Only the agents which came online are monitored, unless the monitor {@link NodeMonitor#triggerUpdate() updates} itself.
      */
     @Override
     public void onOnline(Computer c, TaskListener listener) throws IOException, InterruptedException {
         synchronized (this) {
-            future.cancel(false);
-            future = Timer.get().schedule(MONITOR_UPDATER, 5, TimeUnit.SECONDS);
+            online.add(c);
+            onlineFuture.cancel(false);
+            onlineFuture = Timer.get().schedule(this::updateOnline, 5, TimeUnit.SECONDS);
+        }
+    }
+
+    private void updateOnline() {
+        Set<Computer> computers;
+        synchronized (this) {
+            computers = new HashSet<>(online);
+            online.clear();
+        }
+        for (NodeMonitor nm : ComputerSet.getMonitors()) {
+            if (Util.isOverridden(NodeMonitor.class, nm.getClass(), "triggerUpdate")) {
+                nm.triggerUpdate();
+            } else {
+                nm.getDescriptor().triggerUpdate(computers);
+            }
         }
     }
 
@@ -30,6 +30,8 @@ import static java.util.Calendar.MINUTE;
 import static java.util.Calendar.MONTH;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.ZoneId;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Locale;
@@ -39,6 +41,8 @@ import java.util.regex.Pattern;
 import jenkins.util.antlr.JenkinsANTLRErrorListener;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Table for driving scheduled tasks.
@@ -68,6 +72,11 @@ public final class CronTab {
      */
     private @CheckForNull String specTimezone;
 
+    /**
+     * Evaluates this tab without going through {@link Calendar}.
+     */
+    private CronTabEvaluator evaluator;
+
     /**
      * @param format the crontab entry to be parsed
      * @throws IllegalArgumentException if the crontab entry cannot be parsed
@@ -141,6 +150,7 @@ public final class CronTab {
             dayOfWeek |= 1; // copy bit 7 over to bit 0
             dayOfWeek &= ~(1 << 7); // clear bit 7 or CalendarField#ceil will return an invalid value 7
         }
+        evaluator = new CronTabEvaluator(bits, dayOfWeek, timezone == null ? null : TimeZone.getTimeZone(timezone).toZoneId());
     }
 
 
@@ -483,6 +493,51 @@ public final class CronTab {
         }
     }
 
+    /**
+     * Returns true if the given time matches, like {@link #check(Calendar)} but without allocating a {@link Calendar}.
+     *
+     * @param time milliseconds since the epoch
+     * @param defaultZone
+     *      the time zone in which to evaluate this tab if it does not specify one
+     * @since TODO
+     */
+    @Restricted(NoExternalUse.class)
+    public boolean check(long time, @NonNull ZoneId defaultZone) {
+        return evaluator.check(time, defaultZone);
+    }
+
+    /**
+     * Computes the nearest future time that matches this cron tab, like {@link #ceil(Calendar)}
+     * but without allocating a {@link Calendar}.
+     *
+     * @param time milliseconds since the epoch
+     * @param defaultZone
+     *      the time zone in which to evaluate this tab if it does not specify one
+     * @return milliseconds since the epoch
+     * @throws RareOrImpossibleDateException if the date isn't hit in the 2 years after the given time
+     * @since TODO
+     */
+    @Restricted(NoExternalUse.class)
+    public long ceil(long time, @NonNull ZoneId defaultZone) {
+        return evaluator.ceil(time, defaultZone);
+    }
+
+    /**
+     * Computes the nearest past time that matched this cron tab, like {@link #floor(Calendar)}
+     * but without allocating a {@link Calendar}.
+     *
+     * @param time milliseconds since the epoch
+     * @param defaultZone
+     *      the time zone in which to evaluate this tab if it does not specify one
+     * @return milliseconds since the epoch
+     * @throws RareOrImpossibleDateException if the date isn't hit in the 2 years before the given time
+     * @since TODO
+     */
+    @Restricted(NoExternalUse.class)
+    public long floor(long time, @NonNull ZoneId defaultZone) {
+        return evaluator.floor(time, defaultZone);
+    }
+
     /**
      * @param format the crontab entry to be parsed
      * @throws IllegalArgumentException if the crontab entry cannot be parsed
@@ -0,0 +1,422 @@
+package hudson.scheduler;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Evaluates a {@link CronTab} against times in milliseconds since the epoch.
+ *
+ * <p>
+ * Instead of adjusting a {@link java.util.Calendar} field by field, local dates are computed arithmetically
+ * and each field is advanced through a table of the next (or previous) matching value.
+ * The offset of the time zone is cached until its next transition,
+ * so no object is allocated except when crossing such a transition.
+ *
+ * <p>
+ * Searches walk forward (or backward) in absolute time, so a local time skipped by a daylight saving
+ * transition never matches and one repeated by it matches twice, exactly as {@link CronTab#check(java.util.Calendar)} does.
+ */
+final class CronTabEvaluator {
+
+    private static final int MINUTES = 0;
+    private static final int HOURS = 1;
+    private static final int DAYS = 2;
+    private static final int MONTHS = 3;
+    private static final int DAYS_OF_WEEK = 4;
+
+    /**
+     * Number of values of each field, including the unused 0 of days and months.
+     */
+    private static final int[] SIZES = {60, 24, 32, 13, 7};
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * How far searches go before giving up, as {@link CronTab#ceil(java.util.Calendar)} does.
+     */
+    private static final long SEARCH_LIMIT_MINUTES = 2 * 366 * MINUTES_PER_DAY;
+
+    private final long[] masks;
+
+    /**
+     * For each field, the smallest matching value greater than or equal to each value, or -1.
+     */
+    private final byte[][] next = new byte[SIZES.length][];
+
+    /**
+     * For each field, the largest matching value less than or equal to each value, or -1.
+     */
+    private final byte[][] previous = new byte[SIZES.length][];
+
+    @CheckForNull
+    private final ZoneId zone;
+
+    private volatile OffsetWindow window;
+
+    CronTabEvaluator(long[] bits, int dayOfWeek, @CheckForNull ZoneId zone) {
+        this.masks = new long[] {bits[0], bits[1], bits[2], bits[3], dayOfWeek};
+        this.zone = zone;
+        for (int f = 0; f < SIZES.length; f++) {
+            int size = SIZES[f];
+            // days and months start at 1
+            int first = f == DAYS || f == MONTHS ? 1 : 0;
+            next[f] = new byte[size];
+            previous[f] = new byte[size];
+            byte n = -1;
+            for (int i = size - 1; i >= 0; i--) {
+                if (i >= first && matches(f, i)) {
+                    n = (byte) i;
+                }
+                next[f][i] = n;
+            }
+            byte p = -1;
+            for (int i = 0; i < size; i++) {
+                if (i >= first && matches(f, i)) {
+                    p = (byte) i;
+                }
+                previous[f][i] = p;
+            }
+        }
+    }
+
+    private boolean matches(int field, int value) {
+        return (masks[field] & (1L << value)) != 0;
+    }
+
+    /**
+     * @see CronTab#check(long, ZoneId)
+     */
+    boolean check(long time, @NonNull ZoneId defaultZone) {
+        long epochSecond = Math.floorDiv(time, 1000L);
+        long localMinute = Math.floorDiv(epochSecond + window(epochSecond, defaultZone).offset, 60L);
+        return matches(localMinute);
+    }
+
+    private boolean matches(long localMinute) {
+        long day = Math.floorDiv(localMinute, MINUTES_PER_DAY);
+        int minuteOfDay = (int) Math.floorMod(localMinute, MINUTES_PER_DAY);
+        long date = civil(day);
+        return matches(MINUTES, minuteOfDay % 60)
+                && matches(HOURS, minuteOfDay / 60)
+                && matches(DAYS, dayOfMonth(date))
+                && matches(MONTHS, month(date))
+                && matches(DAYS_OF_WEEK, dayOfWeek(day));
+    }
+
+    /**
+     * @see CronTab#ceil(long, ZoneId)
+     */
+    long ceil(long time, @NonNull ZoneId defaultZone) {
+        // like the Calendar based implementation, keep seconds and milliseconds as they are
+        long remainder = Math.floorMod(time, 60_000L);
+        long minute = Math.floorDiv(time, 60_000L);
+        long limit = minute + SEARCH_LIMIT_MINUTES;
+        while (minute <= limit) {
+            OffsetWindow w = window(minute * 60, defaultZone);
+            long local = Math.floorDiv(minute * 60 + w.offset, 60L);
+            long candidate = nextLocalMinute(local);
+            if (candidate == local) {
+                return minute * 60_000L + remainder;
+            }
+            if (candidate == Long.MAX_VALUE) {
+                break;
+            }
+            // the offset may change before the candidate, in which case look again from there
+            long target = minute + (candidate - local);
+            long until = w.until == Long.MAX_VALUE ? Long.MAX_VALUE : Math.floorDiv(w.until + 59, 60L);
+            minute = Math.min(target, until);
+        }
+        throw new RareOrImpossibleDateException();
+    }
+
+    /**
+     * @see CronTab#floor(long, ZoneId)
+     */
+    long floor(long time, @NonNull ZoneId defaultZone) {
+        long remainder = Math.floorMod(time, 60_000L);
+        long minute = Math.floorDiv(time, 60_000L);
+        long limit = minute - SEARCH_LIMIT_MINUTES;
+        while (minute >= limit) {
+            OffsetWindow w = window(minute * 60, defaultZone);
+            long local = Math.floorDiv(minute * 60 + w.offset, 60L);
+            long candidate = previousLocalMinute(local);
+            if (candidate == local) {
+                return minute * 60_000L + remainder;
+            }
+            if (candidate == Long.MIN_VALUE) {
+                break;
+            }
+            long target = minute - (local - candidate);
+            long before = w.from == Long.MIN_VALUE ? Long.MIN_VALUE : Math.floorDiv(w.from + 59, 60L) - 1;
+            minute = Math.max(target, before);
+        }
+        throw new RareOrImpossibleDateException();
+    }
+
+    /**
+     * Finds the first local minute at or after the given one matching all fields.
+     *
+     * @return the matching minute, or {@link Long#MAX_VALUE} if there is none within the search limit
+     */
+    private long nextLocalMinute(long localMinute) {
+        long day = Math.floorDiv(localMinute, MINUTES_PER_DAY);
+        int minuteOfDay = (int) Math.floorMod(localMinute, MINUTES_PER_DAY);
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        long lastDay = day + SEARCH_LIMIT_MINUTES / MINUTES_PER_DAY;
+        while (day <= lastDay) {
+            long date = civil(day);
+            int year = year(date);
+            int month = month(date);
+            int dayOfMonth = dayOfMonth(date);
+
+            int m = next[MONTHS][month];
+            if (m != month) {
+                if (m < 0) {
+                    year++;
+                    m = next[MONTHS][1];
+                    if (m < 0) {
+                        return Long.MAX_VALUE;
+                    }
+                }
+                day = epochDay(year, m, 1);
+                hour = 0;
+                minute = 0;
+                continue;
+            }
+
+            if (!matches(DAYS, dayOfMonth) || !matches(DAYS_OF_WEEK, dayOfWeek(day))) {
+                int d = next[DAYS][dayOfMonth];
+                if (d < 0 || d > lengthOfMonth(year, month)) {
+                    day = epochDay(year, month, 1) + lengthOfMonth(year, month);
+                } else if (d != dayOfMonth) {
+                    day += d - dayOfMonth;
+                } else {
+                    // the day of week does not match
+                    day++;
+                }
+                hour = 0;
+                minute = 0;
+                continue;
+            }
+
+            int h = next[HOURS][hour];
+            if (h < 0) {
+                day++;
+                hour = 0;
+                minute = 0;
+                continue;
+            }
+            if (h != hour) {
+                hour = h;
+                minute = 0;
+            }
+
+            int min = next[MINUTES][minute];
+            if (min < 0) {
+                minute = 0;
+                if (++hour == 24) {
+                    day++;
+                    hour = 0;
+                }
+                continue;
+            }
+            return day * MINUTES_PER_DAY + hour * 60 + min;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Finds the last local minute at or before the given one matching all fields.
+     *
+     * @return the matching minute, or {@link Long#MIN_VALUE} if there is none within the search limit
+     */
+    private long previousLocalMinute(long localMinute) {
+        long day = Math.floorDiv(localMinute, MINUTES_PER_DAY);
+        int minuteOfDay = (int) Math.floorMod(localMinute, MINUTES_PER_DAY);
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        long firstDay = day - SEARCH_LIMIT_MINUTES / MINUTES_PER_DAY;
+        while (day >= firstDay) {
+            long date = civil(day);
+            int year = year(date);
+            int month = month(date);
+            int dayOfMonth = dayOfMonth(date);
+
+            int m = previous[MONTHS][month];
+            if (m != month) {
+                if (m < 0) {
+                    year--;
+                    m = previous[MONTHS][12];
+                    if (m < 0) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+                day = epochDay(year, m, lengthOfMonth(year, m));
+                hour = 23;
+                minute = 59;
+                continue;
+            }
+
+            if (!matches(DAYS, dayOfMonth) || !matches(DAYS_OF_WEEK, dayOfWeek(day))) {
+                int d = previous[DAYS][dayOfMonth];
+                if (d < 0) {
+                    day = epochDay(year, month, 1) - 1;
+                } else if (d != dayOfMonth) {
+                    day -= dayOfMonth - d;
+                } else {
+                    // the day of week does not match
+                    day--;
+                }
+                hour = 23;
+                minute = 59;
+                continue;
+            }
+
+            int h = previous[HOURS][hour];
+            if (h < 0) {
+                day--;
+                hour = 23;
+                minute = 59;
+                continue;
+            }
+            if (h != hour) {
+                hour = h;
+                minute = 59;
+            }
+
+            int min = previous[MINUTES][minute];
+            if (min < 0) {
+                minute = 59;
+                if (--hour < 0) {
+                    day--;
+                    hour = 23;
+                }
+                continue;
+            }
+            return day * MINUTES_PER_DAY + hour * 60 + min;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private OffsetWindow window(long epochSecond, ZoneId defaultZone) {
+        ZoneId z = zone != null ? zone : defaultZone;
+        OffsetWindow w = window;
+        if (w == null || !w.contains(z, epochSecond)) {
+            window = w = OffsetWindow.of(z, epochSecond);
+        }
+        return w;
+    }
+
+    /**
+     * A period during which the offset of a time zone does not change.
+     */
+    private static final class OffsetWindow {
+        private final ZoneId zone;
+        /**
+         * Epoch second when the period starts, inclusive.
+         */
+        private final long from;
+        /**
+         * Epoch second when the period ends, exclusive.
+         */
+        private final long until;
+        private final int offset;
+
+        private OffsetWindow(ZoneId zone, long from, long until, int offset) {
+            this.zone = zone;
+            this.from = from;
+            this.until = until;
+            this.offset = offset;
+        }
+
+        boolean contains(ZoneId z, long epochSecond) {
+            return from <= epochSecond && epochSecond < until && zone.equals(z);
+        }
+
+        static OffsetWindow of(ZoneId zone, long epochSecond) {
+            ZoneRules rules = zone.getRules();
+            Instant instant = Instant.ofEpochSecond(epochSecond);
+            int offset = rules.getOffset(instant).getTotalSeconds();
+            if (rules.isFixedOffset()) {
+                return new OffsetWindow(zone, Long.MIN_VALUE, Long.MAX_VALUE, offset);
+            }
+            ZoneOffsetTransition previousTransition = rules.previousTransition(instant);
+            ZoneOffsetTransition nextTransition = rules.nextTransition(instant);
+            long from;
+            if (previousTransition == null) {
+                from = Long.MIN_VALUE;
+            } else if (previousTransition.getOffsetAfter().getTotalSeconds() == offset) {
+                from = Math.min(previousTransition.toEpochSecond(), epochSecond);
+            } else {
+                // a transition happens exactly at this instant
+                from = epochSecond;
+            }
+            long until = nextTransition == null ? Long.MAX_VALUE : nextTransition.toEpochSecond();
+            return new OffsetWindow(zone, from, until, offset);
+        }
+    }
+
+    // Proleptic Gregorian calendar arithmetic, after Howard Hinnant's "chrono-Compatible Low-Level Date Algorithms".
+    // A date is packed as year << 9 | month << 5 | day of month.
+
+    static long civil(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year << 9 | month << 5 | day;
+    }
+
+    static long epochDay(int year, int month, int dayOfMonth) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int year(long date) {
+        return (int) (date >> 9);
+    }
+
+    private static int month(long date) {
+        return (int) (date >> 5 & 0xF);
+    }
+
+    private static int dayOfMonth(long date) {
+        return (int) (date & 0x1F);
+    }
+
+    /**
+     * 0 for Sunday, as in cron.
+     */
+    private static int dayOfWeek(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return (int) Math.floorMod(epochDay + 4, 7L);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
@@ -27,6 +27,7 @@ package hudson.scheduler;
 import antlr.ANTLRException;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.ZoneId;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.TimeZone;
@@ -159,5 +160,43 @@ public final class CronTabList {
         return nearest;
     }
 
+    /**
+     * Returns true if the given time matches, evaluating tabs without a time zone in the given one.
+     *
+     * @param time milliseconds since the epoch
+     */
+    @Restricted(NoExternalUse.class)
+    public synchronized boolean check(long time, @NonNull ZoneId defaultZone) {
+        for (CronTab tab : tabs) {
+            if (tab.check(time, defaultZone))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Computes the earliest time at or after the given one matched by any of the tabs,
+     * evaluating tabs without a time zone in the default one.
+     *
+     * @param t a time in milliseconds, normally at the start of a minute
+     * @return the matching time in milliseconds, or -1 if no tab matches within the next two years
+     */
+    @Restricted(NoExternalUse.class)
+    public synchronized long ceil(long t) {
+        ZoneId defaultZone = ZoneId.systemDefault();
+        long nearest = -1;
+        for (CronTab tab : tabs) {
+            try {
+                long scheduled = tab.ceil(t, defaultZone);
+                if (nearest < 0 || scheduled < nearest) {
+                    nearest = scheduled;
+                }
+            } catch (RareOrImpossibleDateException e) {
+                LOGGER.log(Level.FINE, "No upcoming match for " + tab, e);
+            }
+        }
+        return nearest;
+    }
+
     private static final Logger LOGGER = Logger.getLogger(CronTabList.class.getName());
 }
@@ -0,0 +1,149 @@
+package hudson.scm;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Lets polls of the same {@link SCM#getPollingIdentity polling identity} share a single query of the repository.
+ *
+ * <p>
+ * A poll of an identity that is already being polled waits for that poll and uses its result.
+ * A result is also reused by polls starting less than {@link #WINDOW} seconds after it was obtained.
+ * Failed polls are not shared: polls waiting for them query the repository themselves.
+ */
+@Restricted(NoExternalUse.class)
+public final class PollingCoalescer {
+
+    private static final Logger LOGGER = Logger.getLogger(PollingCoalescer.class.getName());
+
+    /**
+     * Number of seconds during which the result of a poll is reused. 0 only shares concurrent polls.
+     */
+    private static final int WINDOW = SystemProperties.getInteger(PollingCoalescer.class.getName() + ".WINDOW", 10);
+
+    private static final PollingCoalescer INSTANCE = new PollingCoalescer(TimeUnit.SECONDS.toMillis(WINDOW));
+
+    public static PollingCoalescer get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queries the repository.
+     */
+    @FunctionalInterface
+    interface Poll {
+        PollingResult call() throws IOException, InterruptedException;
+    }
+
+    private static final class Shared {
+        /**
+         * Full name of the item whose poll queries the repository.
+         */
+        private final String owner;
+        /**
+         * Completed with null if the poll failed.
+         */
+        private final CompletableFuture<PollingResult> result = new CompletableFuture<>();
+        private volatile long completed;
+
+        private Shared(String owner) {
+            this.owner = owner;
+        }
+
+        private boolean isReusable(long now, long window) {
+            if (!result.isDone()) {
+                return true;
+            }
+            return result.getNow(null) != null && now - completed < window;
+        }
+    }
+
+    private final long window;
+
+    private final Map<Object, Shared> polls = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    PollingCoalescer(long window) {
+        this.window = window;
+    }
+
+    /**
+     * Polls, or waits for a concurrent poll of the same identity.
+     *
+     * @param identity see {@link SCM#getPollingIdentity}
+     * @param owner full name of the polled item
+     */
+    PollingResult poll(@NonNull Object identity, @NonNull String owner, @NonNull TaskListener listener, @NonNull Poll poll) throws IOException, InterruptedException {
+        requests.incrementAndGet();
+        Shared mine = new Shared(owner);
+        long now = System.currentTimeMillis();
+        Shared s = polls.compute(identity, (k, old) -> old != null && old.isReusable(now, window) ? old : mine);
+
+        if (s == mine) {
+            PollingResult r = null;
+            try {
+                r = poll.call();
+                return r;
+            } finally {
+                s.completed = System.currentTimeMillis();
+                s.result.complete(r);
+                if (r == null || window <= 0) {
+                    polls.remove(identity, s);
+                }
+                polls.values().removeIf(e -> !e.isReusable(s.completed, window));
+            }
+        }
+
+        listener.getLogger().println("Using the result of polling the same repository for " + s.owner);
+        PollingResult r;
+        try {
+            r = s.result.get();
+        } catch (ExecutionException e) {
+            throw new IOException(e); // never completed exceptionally
+        }
+        if (r == null) {
+            listener.getLogger().println("That polling failed, polling again");
+            LOGGER.log(Level.FINE, "Shared polling of {0} by {1} failed, {2} polls again", new Object[] {identity, s.owner, owner});
+            return poll.call();
+        }
+        shared.incrementAndGet();
+        LOGGER.log(Level.FINER, "{0} used the result of polling {1} by {2}", new Object[] {owner, identity, s.owner});
+        return r;
+    }
+
+    /**
+     * Number of polls of SCMs having a polling identity.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Number of polls that used the result of another poll.
+     */
+    public long getSharedCount() {
+        return shared.get();
+    }
+
+    /**
+     * Percentage of polls that used the result of another poll.
+     */
+    public int getHitRate() {
+        long total = requests.get();
+        return total == 0 ? 0 : (int) (shared.get() * 100 / total);
+    }
+}
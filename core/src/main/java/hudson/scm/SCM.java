@@ -419,6 +419,31 @@ public abstract class SCM implements Describable<SCM>, ExtensionPoint {
         return compareRemoteRevisionWith((Job) project, launcher, workspace, listener, baseline);
     }
 
+    /**
+     * Identifies what {@link #compareRemoteRevisionWith(Job, Launcher, FilePath, TaskListener, SCMRevisionState)}
+     * queries, so that several projects polling the same repository can share a single query.
+     *
+     * <p>
+     * Polls of equal identities that run concurrently, or shortly after one another, are given the same
+     * {@link PollingResult}. The identity must therefore capture everything the result depends on,
+     * typically the repository URL, the branches, the credentials and the baseline, and must implement
+     * {@link Object#equals(Object)} and {@link Object#hashCode()} accordingly.
+     * Polling that depends on the workspace or on the project itself should not be shared.
+     *
+     * <p>
+     * The default implementation returns null, which never shares polling.
+     *
+     * @param baseline
+     *      The revision state the remote repository is compared with.
+     * @return
+     *      null if polling of this project should not be shared.
+     * @since TODO
+     */
+    @CheckForNull
+    public Object getPollingIdentity(@NonNull Job<?, ?> project, @CheckForNull SCMRevisionState baseline) {
+        return null;
+    }
+
     /**
      * Convenience method for the caller to handle the backward compatibility between pre 1.345 SCMs.
      */
@@ -433,7 +458,12 @@ public abstract class SCM implements Describable<SCM>, ExtensionPoint {
                 baseline2 = calcRevisionsFromBuild(project.getLastBuild(), launcher, listener);
             }
 
-            return compareRemoteRevisionWith(project, launcher, workspace, listener, baseline2);
+            Object identity = getPollingIdentity(project, baseline2);
+            if (identity == null) {
+                return compareRemoteRevisionWith(project, launcher, workspace, listener, baseline2);
+            }
+            return PollingCoalescer.get().poll(identity, project.getFullName(), listener,
+                    () -> compareRemoteRevisionWith(project, launcher, workspace, listener, baseline2));
         } else {
             return pollChanges(project, launcher, workspace, listener) ? PollingResult.SIGNIFICANT : PollingResult.NO_CHANGES;
         }
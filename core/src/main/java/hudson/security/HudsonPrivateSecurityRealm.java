@@ -1090,7 +1090,8 @@ public class HudsonPrivateSecurityRealm extends AbstractPasswordBasedSecurityRea
         @Override
         public boolean matches(CharSequence rawPassword, String encPass) {
             if (isPasswordHashed(encPass)) {
-                return PASSWORD_HASH_ENCODER.matches(rawPassword, encPass.substring(getPasswordHeader().length()));
+                // hashing is expensive on purpose, keep it off the request threads
+                return PasswordHashVerifier.INSTANCE.matches(rawPassword, encPass.substring(getPasswordHeader().length()), PASSWORD_HASH_ENCODER::matches);
             } else {
                 return false;
             }
@@ -0,0 +1,222 @@
+package hudson.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Runs the deliberately expensive password hash comparisons of {@link HudsonPrivateSecurityRealm}
+ * on a dedicated, bounded pool.
+ *
+ * <p>A burst of logins or of basic authentication with real passwords can otherwise keep every
+ * request thread busy hashing. Once the pool and its queue are full, further verifications are
+ * refused immediately with an {@link AuthenticationServiceException} rather than queued behind them.
+ *
+ * <p>Optionally, successful verifications are remembered for a short time so that clients sending the same
+ * password with each request do not pay for the hash every time. Only a keyed hash of the password is kept,
+ * indexed by the stored password hash, so that changing the password invalidates the entry.
+ */
+@Restricted(NoExternalUse.class)
+public final class PasswordHashVerifier {
+
+    private static final Logger LOGGER = Logger.getLogger(PasswordHashVerifier.class.getName());
+
+    private static final String PREFIX = PasswordHashVerifier.class.getName();
+
+    /**
+     * Maximum number of password hashes computed in parallel.
+     */
+    private static final int THREADS = SystemProperties.getInteger(PREFIX + ".THREADS", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Maximum number of verifications waiting for a thread before new ones are refused.
+     */
+    private static final int QUEUE_SIZE = SystemProperties.getInteger(PREFIX + ".QUEUE_SIZE", 64);
+
+    /**
+     * Maximum time in milliseconds a request waits for its verification, including the time spent in the queue.
+     */
+    private static final long TIMEOUT = SystemProperties.getLong(PREFIX + ".TIMEOUT", TimeUnit.SECONDS.toMillis(30));
+
+    /**
+     * Number of seconds a successful verification is remembered. Disabled by default.
+     */
+    private static final int CACHE_SECONDS = SystemProperties.getInteger(PREFIX + ".CACHE_SECONDS", 0);
+
+    static final PasswordHashVerifier INSTANCE = new PasswordHashVerifier(THREADS, QUEUE_SIZE, TIMEOUT, CACHE_SECONDS);
+
+    /**
+     * The verifier used by {@link HudsonPrivateSecurityRealm}, for monitoring.
+     */
+    public static PasswordHashVerifier get() {
+        return INSTANCE;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    @CheckForNull
+    private final Cache<String, byte[]> verified;
+    private final SecretKeySpec cacheKey;
+
+    private final AtomicLong verificationCount = new AtomicLong();
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+
+    PasswordHashVerifier(int threads, int queueSize, long timeoutMillis, int cacheSeconds) {
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                new ExceptionCatchingThreadFactory(new NamingThreadFactory(new DaemonThreadFactory(), "PasswordHashVerifier")));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timeoutMillis = timeoutMillis;
+        this.verified = cacheSeconds > 0
+                ? CacheBuilder.newBuilder().expireAfterWrite(cacheSeconds, TimeUnit.SECONDS).maximumSize(10_000).build()
+                : null;
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.cacheKey = new SecretKeySpec(key, "HmacSHA256");
+    }
+
+    /**
+     * Checks a password against its stored hash.
+     *
+     * @param rawPassword the password to verify
+     * @param encodedPassword the stored hash
+     * @param hashMatcher the actual, expensive comparison
+     * @throws AuthenticationServiceException if the verification could not be performed in time
+     */
+    boolean matches(CharSequence rawPassword, String encodedPassword, BiPredicate<CharSequence, String> hashMatcher) {
+        byte[] fingerprint = null;
+        if (verified != null) {
+            fingerprint = fingerprint(rawPassword);
+            byte[] known = verified.getIfPresent(encodedPassword);
+            if (known != null && MessageDigest.isEqual(known, fingerprint)) {
+                cacheHitCount.incrementAndGet();
+                return true;
+            }
+        }
+
+        long submitted = System.nanoTime();
+        AtomicLong started = new AtomicLong();
+        Future<Boolean> result;
+        try {
+            result = executor.submit(() -> {
+                started.set(System.nanoTime());
+                return hashMatcher.test(rawPassword, encodedPassword);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            LOGGER.log(Level.FINE, "Too many concurrent password verifications, refusing one", e);
+            throw new AuthenticationServiceException("Too many concurrent password verifications", e);
+        }
+
+        boolean matches;
+        try {
+            matches = result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Interrupted while verifying the password", e);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejectedCount.incrementAndGet();
+            throw new AuthenticationServiceException("Timed out while verifying the password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new AuthenticationServiceException("Failed to verify the password", cause);
+        }
+
+        long done = System.nanoTime();
+        verificationCount.incrementAndGet();
+        totalWaitNanos.addAndGet(started.get() - submitted);
+        totalHashNanos.addAndGet(done - started.get());
+
+        if (matches && verified != null) {
+            verified.put(encodedPassword, fingerprint);
+        }
+        return matches;
+    }
+
+    private byte[] fingerprint(CharSequence rawPassword) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(cacheKey);
+            return mac.doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new AssertionError("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * Number of passwords hashed.
+     */
+    public long getVerificationCount() {
+        return verificationCount.get();
+    }
+
+    /**
+     * Number of verifications answered from the cache of successful verifications.
+     */
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    /**
+     * Number of verifications refused because the pool was saturated or too slow.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Number of verifications currently waiting for a thread of the pool.
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Average time in milliseconds spent waiting for a thread of the pool.
+     */
+    public double getAverageWaitMillis() {
+        long count = verificationCount.get();
+        return count == 0 ? 0 : (double) totalWaitNanos.get() / count / 1_000_000;
+    }
+
+    /**
+     * Average time in milliseconds spent computing a password hash.
+     */
+    public double getAverageHashMillis() {
+        long count = verificationCount.get();
+        return count == 0 ? 0 : (double) totalHashNanos.get() / count / 1_000_000;
+    }
+}
@@ -27,11 +27,13 @@ package hudson.security;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.model.Hudson;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import jenkins.model.Jenkins;
 import net.sf.json.util.JSONUtils;
 import org.jvnet.localizer.Localizable;
@@ -112,6 +114,17 @@ public final class Permission {
      */
     private final @NonNull Set<PermissionScope> scopes;
 
+    /**
+     * Position of this permission in {@link BitSet}s of permissions, assigned on first use.
+     * Zero until then.
+     */
+    private transient volatile int index;
+
+    /**
+     * {@link #index} of this permission and of all the permissions implying it.
+     */
+    private transient volatile BitSet implying;
+
     /**
      * Defines a new permission.
      *
@@ -263,6 +276,45 @@ public final class Permission {
         return enabled;
     }
 
+    /**
+     * Checks whether holding the given permission also grants this one,
+     * that is whether it is this permission or one of the {@link #impliedBy} chain.
+     *
+     * @since TODO
+     */
+    public boolean isImpliedBy(@NonNull Permission p) {
+        return implying().get(p.index());
+    }
+
+    /*package*/ int index() {
+        int i = index;
+        if (i == 0) {
+            synchronized (this) {
+                i = index;
+                if (i == 0) {
+                    index = i = NEXT_INDEX.incrementAndGet();
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Bits set at the {@link #index()} of this permission and of all the permissions implying it.
+     * Must not be modified.
+     */
+    /*package*/ BitSet implying() {
+        BitSet b = implying;
+        if (b == null) {
+            b = new BitSet();
+            for (Permission p = this; p != null; p = p.impliedBy) {
+                b.set(p.index());
+            }
+            implying = b;
+        }
+        return b;
+    }
+
     /**
      * Returns all the {@link Permission}s available in the system.
      * @return
@@ -277,6 +329,8 @@ public final class Permission {
      */
     private static final List<Permission> ALL = new CopyOnWriteArrayList<>();
 
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
     private static final List<Permission> ALL_VIEW = Collections.unmodifiableList(ALL);
 
 //
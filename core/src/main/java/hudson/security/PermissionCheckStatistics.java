@@ -0,0 +1,100 @@
+package hudson.security;
+
+import hudson.init.Initializer;
+import hudson.util.PluginServletFilter;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Counts the permission checks performed by {@link SidACL}s, and how many were answered from remembered decisions.
+ *
+ * <p>Totals are always maintained. Counts per HTTP request are logged at {@code FINE} level by this class's logger,
+ * which helps finding pages performing an excessive number of checks.
+ */
+@Restricted(NoExternalUse.class)
+public final class PermissionCheckStatistics {
+
+    private static final Logger LOGGER = Logger.getLogger(PermissionCheckStatistics.class.getName());
+
+    private static final LongAdder CHECKS = new LongAdder();
+    private static final LongAdder REMEMBERED = new LongAdder();
+
+    /**
+     * Counts of the request being processed by the current thread, if they are being logged:
+     * number of checks, then number of checks answered from remembered decisions.
+     */
+    private static final ThreadLocal<long[]> CURRENT_REQUEST = new ThreadLocal<>();
+
+    private PermissionCheckStatistics() {}
+
+    static void record(boolean remembered) {
+        CHECKS.increment();
+        if (remembered) {
+            REMEMBERED.increment();
+        }
+        long[] current = CURRENT_REQUEST.get();
+        if (current != null) {
+            current[0]++;
+            if (remembered) {
+                current[1]++;
+            }
+        }
+    }
+
+    /**
+     * Total number of permission checks performed by {@link SidACL}s.
+     */
+    public static long getCheckCount() {
+        return CHECKS.sum();
+    }
+
+    /**
+     * Number of permission checks answered from remembered decisions.
+     */
+    public static long getRememberedCount() {
+        return REMEMBERED.sum();
+    }
+
+    @Initializer
+    public static void registerFilter() throws ServletException {
+        PluginServletFilter.addFilter(new Filter() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse rsp, FilterChain chain) throws IOException, ServletException {
+                if (!LOGGER.isLoggable(Level.FINE) || CURRENT_REQUEST.get() != null) {
+                    chain.doFilter(req, rsp);
+                    return;
+                }
+                long[] counts = new long[2];
+                CURRENT_REQUEST.set(counts);
+                try {
+                    chain.doFilter(req, rsp);
+                } finally {
+                    CURRENT_REQUEST.remove();
+                    if (counts[0] > 0 && req instanceof HttpServletRequest) {
+                        LOGGER.log(Level.FINE, "{0} permission checks ({1} remembered) for {2}",
+                                new Object[] {counts[0], counts[1], ((HttpServletRequest) req).getRequestURI()});
+                    }
+                }
+            }
+
+            @Override
+            public void init(FilterConfig filterConfig) {
+            }
+
+            @Override
+            public void destroy() {
+            }
+        });
+    }
+}
@@ -29,10 +29,23 @@ import static java.util.logging.Level.FINER;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
 import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
 import org.acegisecurity.acls.sid.GrantedAuthoritySid;
 import org.acegisecurity.acls.sid.PrincipalSid;
 import org.acegisecurity.acls.sid.Sid;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 
@@ -40,10 +53,53 @@ import org.springframework.security.core.GrantedAuthority;
  * {@link ACL} that checks permissions based on {@link GrantedAuthority}
  * of the {@link Authentication}.
  *
+ * <p>
+ * If {@code hudson.security.SidACL.DECISION_CACHE_DURATION} is set, decisions are remembered per {@link SidACL} instance
+ * and {@link Authentication} for that long, so that pages checking the same permissions over and over
+ * (e.g., once per item of a large view) only walk the {@link Sid}s and {@link Permission#impliedBy} chains once.
+ * They are forgotten when the authorization strategy or the configuration of any
+ * {@link AccessControlled} object is saved; implementations changing their decisions otherwise must call
+ * {@link #invalidateDecisions()}.
+ * Since group memberships may change without either, a decision may be out of date for up to that duration.
+ *
  * @author Kohsuke Kawaguchi
  */
 public abstract class SidACL extends ACL {
 
+    /**
+     * How long, in milliseconds, decisions are remembered. 0, the default, disables remembering them.
+     */
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console and tests")
+    @Restricted(NoExternalUse.class)
+    public static /* non-final for script console */ long DECISION_CACHE_DURATION = SystemProperties.getLong(SidACL.class.getName() + ".DECISION_CACHE_DURATION", 0L);
+
+    /**
+     * Maximum number of distinct {@link Authentication}s remembered per ACL.
+     */
+    private static final int DECISION_CACHE_AUTHENTICATIONS = 64;
+
+    /**
+     * Incremented whenever remembered decisions of all ACLs must be forgotten.
+     */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    /**
+     * Remembered decisions, created on the second check made through this ACL,
+     * so that short-lived ACLs do not pay for it.
+     */
+    private volatile Decisions decisions;
+    private volatile boolean checkedBefore;
+
+    private static final class Decisions {
+        private final long generation = GENERATION.get();
+        private final long expiry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DECISION_CACHE_DURATION);
+        private final Map<Authentication, Map<Permission, Boolean>> byAuthentication = new ConcurrentHashMap<>();
+
+        private boolean isValid() {
+            return generation == GENERATION.get() && System.nanoTime() - expiry < 0;
+        }
+    }
+
     @Override
     public boolean hasPermission2(@NonNull Authentication a, Permission permission) {
         if (a.equals(SYSTEM2)) {
@@ -51,6 +107,75 @@ public abstract class SidACL extends ACL {
                 LOGGER.fine("hasPermission(" + a + "," + permission + ")=>SYSTEM user has full access");
             return true;
         }
+        return decide(a, permission, this::hasPermissionUncached);
+    }
+
+    /**
+     * Returns the remembered decision for this authentication and permission, or computes and remembers it.
+     * Nothing is remembered while {@link #LOGGER} is at {@code FINE} level, so that each check is logged.
+     *
+     * @param decider computes the decision, not considering {@link #SYSTEM2}
+     */
+    /*package*/ final boolean decide(@NonNull Authentication a, Permission permission, @NonNull BiPredicate<Authentication, Permission> decider) {
+        if (DECISION_CACHE_DURATION <= 0 || permission == null || !remembersDecisions() || LOGGER.isLoggable(FINE)) {
+            PermissionCheckStatistics.record(false);
+            return decider.test(a, permission);
+        }
+        if (!checkedBefore) {
+            checkedBefore = true;
+            PermissionCheckStatistics.record(false);
+            return decider.test(a, permission);
+        }
+        Decisions d = decisions;
+        if (d == null || !d.isValid()) {
+            decisions = d = new Decisions();
+        }
+        Map<Permission, Boolean> byPermission = d.byAuthentication.get(a);
+        if (byPermission == null) {
+            if (d.byAuthentication.size() >= DECISION_CACHE_AUTHENTICATIONS) {
+                d.byAuthentication.clear();
+            }
+            byPermission = d.byAuthentication.computeIfAbsent(a, k -> new ConcurrentHashMap<>());
+        }
+        Boolean b = byPermission.get(permission);
+        if (b != null) {
+            PermissionCheckStatistics.record(true);
+            return b;
+        }
+        PermissionCheckStatistics.record(false);
+        boolean result = decider.test(a, permission);
+        byPermission.put(permission, result);
+        return result;
+    }
+
+    /**
+     * Whether this ACL may remember its decisions.
+     * ACLs whose decisions depend on other ACLs, which would not forget them when those change, must not.
+     */
+    /*package*/ boolean remembersDecisions() {
+        return true;
+    }
+
+    /**
+     * Forgets the decisions remembered by this ACL.
+     * Must be called by implementations whenever their entries change.
+     *
+     * @since TODO
+     */
+    protected void invalidateDecisions() {
+        decisions = null;
+    }
+
+    /**
+     * Forgets the decisions remembered by all ACLs.
+     *
+     * @since TODO
+     */
+    public static void invalidateAllDecisions() {
+        GENERATION.incrementAndGet();
+    }
+
+    private boolean hasPermissionUncached(@NonNull Authentication a, Permission permission) {
         Boolean b = _hasPermission(a, permission);
 
         if (LOGGER.isLoggable(FINE))
@@ -147,8 +272,29 @@ public abstract class SidACL extends ACL {
                 if (b != null) return b;
                 return parent.hasPermission(p, permission);
             }
+
+            @Override
+            boolean remembersDecisions() {
+                // the child and parent would not make it forget their changes
+                return false;
+            }
         };
     }
 
+    /**
+     * Forgets remembered decisions when the configuration of anything that may hold permissions changes.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class DecisionsInvalidator extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            // builds are saved often and do not define permissions
+            if (o instanceof AccessControlled && !(o instanceof Run)) {
+                invalidateAllDecisions();
+            }
+        }
+    }
+
     private static final Logger LOGGER = Logger.getLogger(SidACL.class.getName());
 }
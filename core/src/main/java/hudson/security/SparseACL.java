@@ -28,7 +28,10 @@ import static java.util.logging.Level.FINE;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 import org.acegisecurity.acls.sid.Sid;
 import org.springframework.security.core.Authentication;
@@ -53,6 +56,18 @@ public class SparseACL extends SidACL {
     }
 
     private final List<Entry> entries = new ArrayList<>();
+    /**
+     * {@link #entries} indexed by {@link Sid}, keeping only the first entry for each permission.
+     */
+    private final Map<Sid, SidEntries> entriesBySid = new HashMap<>();
+
+    private static final class SidEntries {
+        private final Map<Permission, Boolean> allowed = new HashMap<>();
+        /**
+         * {@link Permission#index()} of the permissions in {@link #allowed}.
+         */
+        private final BitSet permissions = new BitSet();
+    }
     /**
      * Parent to delegate to. Can be null.
      */
@@ -64,6 +79,11 @@ public class SparseACL extends SidACL {
 
     public void add(Entry e) {
         entries.add(e);
+        SidEntries sidEntries = entriesBySid.computeIfAbsent(e.sid, k -> new SidEntries());
+        if (sidEntries.allowed.putIfAbsent(e.permission, e.allowed) == null) {
+            sidEntries.permissions.set(e.permission.index());
+        }
+        invalidateDecisions();
     }
 
     public void add(Sid sid, Permission permission, boolean allowed) {
@@ -73,6 +93,10 @@ public class SparseACL extends SidACL {
     @Override
     public boolean hasPermission2(Authentication a, Permission permission) {
         if (a.equals(SYSTEM2))   return true;
+        return decide(a, permission, this::hasPermissionUncached);
+    }
+
+    private boolean hasPermissionUncached(Authentication a, Permission permission) {
         Boolean b = _hasPermission(a, permission);
         if (b != null) return b;
 
@@ -89,11 +113,15 @@ public class SparseACL extends SidACL {
     @SuppressFBWarnings(value = "NP_BOOLEAN_RETURN_NULL", justification = "converting this to YesNoMaybe would break backward compatibility")
     @Override
     protected Boolean hasPermission(Sid p, Permission permission) {
+        SidEntries sidEntries = entriesBySid.get(p);
+        if (sidEntries == null || permission == null || !sidEntries.permissions.intersects(permission.implying())) {
+            return null;
+        }
+        // the most specific permission wins
         for ( ; permission != null; permission = permission.impliedBy) {
-            for (Entry e : entries) {
-                if (e.permission == permission && e.sid.equals(p))
-                    return e.allowed;
-            }
+            Boolean b = sidEntries.allowed.get(permission);
+            if (b != null)
+                return b;
         }
         return null;
     }
@@ -33,6 +33,7 @@ import hudson.AbortException;
 import hudson.Extension;
 import hudson.ExtensionPoint;
 import hudson.model.Computer;
+import hudson.model.Executor;
 import hudson.model.Label;
 import hudson.model.LoadStatistics;
 import hudson.model.MultiStageTimeSeries;
@@ -40,6 +41,7 @@ import hudson.model.MultiStageTimeSeries.TimeScale;
 import hudson.model.Node;
 import hudson.model.PeriodicWork;
 import hudson.model.Queue;
+import hudson.model.queue.QueueListener;
 import java.awt.Color;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -60,6 +62,8 @@ import jenkins.util.SystemProperties;
 import jenkins.util.Timer;
 import net.jcip.annotations.GuardedBy;
 import org.jenkinsci.Symbol;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Uses the {@link LoadStatistics} and determines when we need to allocate
@@ -406,11 +410,11 @@ public class NodeProvisioner {
         private int additionalPlannedCapacity;
 
         /**
-         * Should only be instantiated by {@link NodeProvisioner#update()}
+         * Should only be instantiated by {@link NodeProvisioner#update()}, and by tests.
          * @param label the label.
          * @param plannedCapacitySnapshot the planned executor count.
          */
-        private StrategyState(LoadStatistics.LoadStatisticsSnapshot snapshot, @CheckForNull Label label, int plannedCapacitySnapshot) {
+        /*package*/ StrategyState(LoadStatistics.LoadStatisticsSnapshot snapshot, @CheckForNull Label label, int plannedCapacitySnapshot) {
             this.snapshot = snapshot;
             this.label = label;
             this.plannedCapacitySnapshot = plannedCapacitySnapshot;
@@ -697,45 +701,7 @@ public class NodeProvisioner {
                                     snapshot.getConnectingExecutors(),
                             });
 
-                    CLOUD:
-                    for (Cloud c : Jenkins.get().clouds) {
-                        if (excessWorkload < 0) {
-                            break;  // enough agents allocated
-                        }
-                        Cloud.CloudState cloudState = new Cloud.CloudState(state.getLabel(), state.getAdditionalPlannedCapacity());
-
-                        // Make sure this cloud actually can provision for this label.
-                        if (c.canProvision(cloudState)) {
-                            // provisioning a new node should be conservative --- for example if excessWorkload is 1.4,
-                            // we don't want to allocate two nodes but just one.
-                            // OTOH, because of the exponential decay, even when we need one agent,
-                            // excess workload is always
-                            // something like 0.95, in which case we want to allocate one node.
-                            // so the threshold here is 1-MARGIN, and hence floor(excessWorkload+MARGIN) is needed to
-                            // handle this.
-
-                            int workloadToProvision = (int) Math.round(Math.floor(excessWorkload + m));
-
-                            for (CloudProvisioningListener cl : CloudProvisioningListener.all()) {
-                                if (cl.canProvision(c, cloudState, workloadToProvision) != null) {
-                                    // consider displaying reasons in a future cloud ux
-                                    continue CLOUD;
-                                }
-                            }
-
-                            Collection<PlannedNode> additionalCapacities = c.provision(cloudState, workloadToProvision);
-
-                            fireOnStarted(c, state.getLabel(), additionalCapacities);
-
-                            for (PlannedNode ac : additionalCapacities) {
-                                excessWorkload -= ac.numExecutors;
-                                LOGGER.log(Level.INFO, "Started provisioning {0} from {1} with {2,number,integer} "
-                                                + "executors. Remaining excess workload: {3,number,#.###}",
-                                        new Object[]{ac.displayName, c.name, ac.numExecutors, excessWorkload});
-                            }
-                            state.recordPendingLaunches(additionalCapacities);
-                        }
-                    }
+                    excessWorkload = provision(state, excessWorkload, m);
                     // we took action, only pass on to other strategies if our action was insufficient
                     return excessWorkload > 1 - m ? StrategyDecision.CONSULT_REMAINING_STRATEGIES : StrategyDecision.PROVISIONING_COMPLETED;
                 }
@@ -791,6 +757,139 @@ public class NodeProvisioner {
         }
     }
 
+    /**
+     * A strategy provisioning for the current length of the queue rather than for its moving average,
+     * so that bursts of builds get agents as soon as they are reviewed.
+     * To avoid provisioning agents that would only be online after the builds could have run anyway,
+     * busy executors whose build is estimated to end within {@link #LEAD_TIME} milliseconds,
+     * the time typically needed to bring a new agent online, are counted as available.
+     *
+     * <p>
+     * This strategy is consulted before {@link StandardStrategyImpl} once enabled
+     * with the {@code hudson.slaves.NodeProvisioner.PredictiveStrategyImpl.enabled} system property.
+     * It then completes provisioning unless the clouds could not provide enough executors.
+     *
+     * @since TODO
+     */
+    @Extension(ordinal = 100) @Symbol("predictive")
+    public static class PredictiveStrategyImpl extends Strategy {
+
+        @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+        public static /* non-final for Groovy */ boolean ENABLED = SystemProperties.getBoolean(PredictiveStrategyImpl.class.getName() + ".enabled");
+
+        @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+        public static /* non-final for Groovy */ long LEAD_TIME = SystemProperties.getLong(PredictiveStrategyImpl.class.getName() + ".leadTime", TimeUnit.MINUTES.toMillis(1));
+
+        @NonNull
+        @Override
+        public StrategyDecision apply(@NonNull StrategyState state) {
+            if (!ENABLED) {
+                return StrategyDecision.CONSULT_REMAINING_STRATEGIES;
+            }
+            LoadStatistics.LoadStatisticsSnapshot snapshot = state.getSnapshot();
+            int endingSoon = countExecutorsEndingWithin(state.getLabel(), LEAD_TIME);
+            int excessWorkload = excessWorkload(snapshot.getQueueLength(), snapshot.getAvailableExecutors(),
+                    snapshot.getConnectingExecutors(), state.getPlannedCapacitySnapshot() + state.getAdditionalPlannedCapacity(),
+                    endingSoon);
+            LOGGER.log(Level.FINE, "Excess workload {0,number,integer} for {1} (queue length={2,number,integer}, "
+                            + "available={3,number,integer}, connecting={4,number,integer}, planned={5,number,integer}, "
+                            + "ending soon={6,number,integer})",
+                    new Object[]{excessWorkload, state.getLabel(), snapshot.getQueueLength(), snapshot.getAvailableExecutors(),
+                            snapshot.getConnectingExecutors(), state.getPlannedCapacitySnapshot() + state.getAdditionalPlannedCapacity(),
+                            endingSoon});
+            if (excessWorkload > 0 && provision(state, excessWorkload, 0) > 0) {
+                return StrategyDecision.CONSULT_REMAINING_STRATEGIES;
+            }
+            return StrategyDecision.PROVISIONING_COMPLETED;
+        }
+
+        /**
+         * Computes the number of executors to provision.
+         *
+         * @param queueLength the number of buildable items
+         * @param available the number of idle executors
+         * @param connecting the number of executors of agents being connected
+         * @param planned the number of executors of agents being provisioned
+         * @param endingSoon the number of busy executors expected to become idle before a new agent could be online
+         */
+        static int excessWorkload(int queueLength, int available, int connecting, int planned, int endingSoon) {
+            return Math.max(0, queueLength - available - connecting - planned - endingSoon);
+        }
+
+        /**
+         * Counts the busy executors of the label whose build is estimated to end within the given time.
+         */
+        private static int countExecutorsEndingWithin(@CheckForNull Label label, long time) {
+            int r = 0;
+            for (Computer c : Jenkins.get().getComputers()) {
+                Node node = c.getNode();
+                if (node == null || !c.isOnline()
+                        || (label == null ? node.getMode() != Node.Mode.NORMAL : !label.contains(node))) {
+                    continue;
+                }
+                for (Executor e : c.getExecutors()) {
+                    if (e.isBusy()) {
+                        long eta = e.getEstimatedRemainingTimeMillis();
+                        if (eta >= 0 && eta <= time) {
+                            r++;
+                        }
+                    }
+                }
+            }
+            return r;
+        }
+    }
+
+    /**
+     * Asks the clouds able to provision for the label under consideration for nodes, until the excess workload is covered.
+     *
+     * @param excessWorkload the number of executors missing
+     * @param m the margin by which the excess workload is rounded up
+     * @return the remaining excess workload
+     */
+    static float provision(@NonNull StrategyState state, float excessWorkload, float m) {
+        CLOUD:
+        for (Cloud c : Jenkins.get().clouds) {
+            if (excessWorkload < 0) {
+                break;  // enough agents allocated
+            }
+            Cloud.CloudState cloudState = new Cloud.CloudState(state.getLabel(), state.getAdditionalPlannedCapacity());
+
+            // Make sure this cloud actually can provision for this label.
+            if (c.canProvision(cloudState)) {
+                // provisioning a new node should be conservative --- for example if excessWorkload is 1.4,
+                // we don't want to allocate two nodes but just one.
+                // OTOH, because of the exponential decay, even when we need one agent,
+                // excess workload is always
+                // something like 0.95, in which case we want to allocate one node.
+                // so the threshold here is 1-MARGIN, and hence floor(excessWorkload+MARGIN) is needed to
+                // handle this.
+
+                int workloadToProvision = (int) Math.round(Math.floor(excessWorkload + m));
+
+                for (CloudProvisioningListener cl : CloudProvisioningListener.all()) {
+                    if (cl.canProvision(c, cloudState, workloadToProvision) != null) {
+                        // consider displaying reasons in a future cloud ux
+                        continue CLOUD;
+                    }
+                }
+
+                Collection<PlannedNode> additionalCapacities = c.provision(cloudState, workloadToProvision);
+
+                fireOnStarted(c, state.getLabel(), additionalCapacities);
+
+                for (PlannedNode ac : additionalCapacities) {
+                    excessWorkload -= ac.numExecutors;
+                    LOGGER.log(Level.INFO, "Started provisioning {0} from {1} with {2,number,integer} "
+                                    + "executors. Remaining excess workload: {3,number,#.###}",
+                            new Object[]{ac.displayName, c.name, ac.numExecutors, excessWorkload});
+                }
+                state.recordPendingLaunches(additionalCapacities);
+            }
+        }
+        return excessWorkload;
+    }
+
     /**
      * Periodically invoke NodeProvisioners
      */
@@ -824,6 +923,28 @@ public class NodeProvisioner {
         }
     }
 
+    /**
+     * Reviews the provisioning for the label of an item as soon as it becomes buildable,
+     * rather than at the next {@link NodeProvisionerInvoker} run.
+     * Reviews are throttled by {@link NodeProvisioner#suggestReviewNow()}, so items becoming buildable together are provisioned for at once.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static class QueueListenerImpl extends QueueListener {
+        @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+        public static /* non-final for Groovy */ boolean DISABLED = SystemProperties.getBoolean(NodeProvisioner.class.getName() + ".reviewOnBuildable.disabled");
+
+        @Override
+        public void onEnterBuildable(Queue.BuildableItem bi) {
+            Jenkins j = Jenkins.get();
+            if (DISABLED || j.clouds.isEmpty()) {
+                return;
+            }
+            Label label = bi.getAssignedLabel();
+            (label == null ? j.unlabeledNodeProvisioner : label.nodeProvisioner).suggestReviewNow();
+        }
+    }
+
     private static final Logger LOGGER = Logger.getLogger(NodeProvisioner.class.getName());
     private static final float MARGIN = SystemProperties.getInteger(NodeProvisioner.class.getName() + ".MARGIN", 10) / 100f;
     private static final float MARGIN0 = Math.max(MARGIN, getFloatSystemProperty(NodeProvisioner.class.getName() + ".MARGIN0", 0.5f));
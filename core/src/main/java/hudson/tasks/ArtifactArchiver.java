@@ -40,6 +40,8 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.listeners.ItemListener;
 import hudson.remoting.VirtualChannel;
+import hudson.util.DirScanner;
+import hudson.util.FileVisitor;
 import hudson.util.FormValidation;
 import java.io.File;
 import java.io.IOException;
@@ -310,6 +312,19 @@ public class ArtifactArchiver extends Recorder implements SimpleBuildStep {
         @Override public Map<String, String> invoke(File basedir, VirtualChannel channel) throws IOException, InterruptedException {
             Map<String, String> r = new HashMap<>();
 
+            if (DirScanner.StreamingGlob.isEnabled(includes, caseSensitive)) {
+                DirScanner.StreamingGlob scanner = new DirScanner.StreamingGlob(includes, excludes, defaultExcludes);
+                scanner.setCaseSensitive(caseSensitive);
+                scanner.setFollowSymlinks(followSymlinks);
+                scanner.scan(basedir, new FileVisitor() {
+                    @Override
+                    public void visit(File f, String relativePath) {
+                        r.put(relativePath, relativePath);
+                    }
+                });
+                return r;
+            }
+
             FileSet fileSet = Util.createFileSet(basedir, includes, excludes);
             fileSet.setDefaultexcludes(defaultExcludes);
             fileSet.setCaseSensitive(caseSensitive);
@@ -45,6 +45,8 @@ import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.remoting.VirtualChannel;
+import hudson.util.DirScanner;
+import hudson.util.FileVisitor;
 import hudson.util.FormValidation;
 import hudson.util.PackedMap;
 import hudson.util.RunList;
@@ -295,31 +297,46 @@ public class Fingerprinter extends Recorder implements Serializable, DependencyD
         public List<Record> invoke(File baseDir, VirtualChannel channel) throws IOException {
             List<Record> results = new ArrayList<>();
 
+            if (DirScanner.StreamingGlob.isEnabled(targets, caseSensitive)) {
+                DirScanner.StreamingGlob scanner = new DirScanner.StreamingGlob(targets, excludes, defaultExcludes);
+                scanner.setCaseSensitive(caseSensitive);
+                // files are digested as they are found
+                scanner.scan(baseDir, new FileVisitor() {
+                    @Override
+                    public void visit(File file, String relativePath) throws IOException {
+                        results.add(record(file, relativePath.replace('/', File.separatorChar)));
+                    }
+                });
+                return results;
+            }
+
             FileSet src = Util.createFileSet(baseDir, targets, excludes);
             src.setDefaultexcludes(defaultExcludes);
             src.setCaseSensitive(caseSensitive);
 
             DirectoryScanner ds = src.getDirectoryScanner();
             for (String f : ds.getIncludedFiles()) {
-                File file = new File(baseDir, f);
-
-                // consider the file to be produced by this build only if the timestamp
-                // is newer than when the build has started.
-                // 2000ms is an error margin since since VFAT only retains timestamp at 2sec precision
-                boolean produced = buildTimestamp <= file.lastModified() + 2000;
-
-                try {
-                    results.add(new Record(produced, f, file.getName(), new FilePath(file).digest()));
-                } catch (IOException e) {
-                    throw new IOException(Messages.Fingerprinter_DigestFailed(file), e);
-                } catch (InterruptedException e) {
-                    throw new IOException(Messages.Fingerprinter_Aborted(), e);
-                }
+                results.add(record(new File(baseDir, f), f));
             }
 
             return results;
         }
 
+        private Record record(File file, String f) throws IOException {
+            // consider the file to be produced by this build only if the timestamp
+            // is newer than when the build has started.
+            // 2000ms is an error margin since since VFAT only retains timestamp at 2sec precision
+            boolean produced = buildTimestamp <= file.lastModified() + 2000;
+
+            try {
+                return new Record(produced, f, file.getName(), new FilePath(file).digest());
+            } catch (IOException e) {
+                throw new IOException(Messages.Fingerprinter_DigestFailed(file), e);
+            } catch (InterruptedException e) {
+                throw new IOException(Messages.Fingerprinter_Aborted(), e);
+            }
+        }
+
     }
 
     private void record(Run<?, ?> build, FilePath ws, TaskListener listener, Map<String, String> record, final String targets) throws IOException, InterruptedException {
@@ -32,8 +32,8 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
 import hudson.model.Job;
 import hudson.model.Run;
-import hudson.util.RunList;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
@@ -41,12 +41,16 @@ import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import jenkins.model.BackgroundGlobalBuildDiscarder;
 import jenkins.model.BuildDiscarder;
 import jenkins.model.BuildDiscarderDescriptor;
+import jenkins.model.lazy.BuildMetadata;
 import jenkins.util.io.CompositeIOException;
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -152,19 +156,22 @@ public class LogRotator extends BuildDiscarder {
         Run lsb = job.getLastSuccessfulBuild();
         Run lstb = job.getLastStableBuild();
 
+        // Decisions are first made from the numbers of the builds on disk and from the fields saved in build.xml,
+        // so that builds which are kept do not need to be loaded; the others are loaded and checked before deletion.
         if (numToKeep != -1) {
-            // Note that RunList.size is deprecated, and indeed here we are loading all the builds of the job.
-            // However we would need to load the first numToKeep anyway, just to skip over them;
-            // and we would need to load the rest anyway, to delete them.
-            // (Using RunMap.headMap would not suffice, since we do not know if some recent builds have been deleted for other reasons,
-            // so simply subtracting numToKeep from the currently last build number might cause us to delete too many.)
-            RunList<? extends Run<?, ?>> builds = job.getBuilds();
-            for (Run r : builds.subList(Math.min(builds.size(), numToKeep), builds.size())) {
-                if (shouldKeepRun(r, lsb, lstb)) {
+            for (BuildMetadata m : beyond(job, numToKeep)) {
+                Run r = loadUnlessKept(job, m, lsb, lstb, false);
+                if (r == null) {
                     continue;
                 }
                 LOGGER.log(FINE, "{0} is to be removed", r);
-                try { r.delete(); }
+                if (!BackgroundGlobalBuildDiscarder.tryDeletion()) {
+                    // the background pass stopped at its deletion budget and processes this job again next time
+                    break;
+                }
+                try {
+                    r.delete();
+                }
                 catch (IOException ex) { exceptionMap.computeIfAbsent(r, key -> new HashSet<>()).add(ex); }
             }
         }
@@ -172,28 +179,42 @@ public class LogRotator extends BuildDiscarder {
         if (daysToKeep != -1) {
             Calendar cal = new GregorianCalendar();
             cal.add(Calendar.DAY_OF_YEAR, -daysToKeep);
-            Run r = job.getFirstBuild();
-            while (r != null) {
-                if (tooNew(r, cal)) {
+            for (int n : BuildMetadata.getNumbers(job)) {
+                BuildMetadata m = BuildMetadata.get(job, n);
+                if (m == null) {
+                    continue;
+                }
+                if (tooNew(m, cal)) {
+                    break;
+                }
+                Run r = loadUnlessKept(job, m, lsb, lstb, false);
+                if (r == null) {
+                    continue;
+                }
+                LOGGER.log(FINE, "{0} is to be removed", r);
+                if (!BackgroundGlobalBuildDiscarder.tryDeletion()) {
                     break;
                 }
-                if (!shouldKeepRun(r, lsb, lstb)) {
-                    LOGGER.log(FINE, "{0} is to be removed", r);
-                    try { r.delete(); }
-                    catch (IOException ex) { exceptionMap.computeIfAbsent(r, key -> new HashSet<>()).add(ex); }
+                try {
+                    r.delete();
                 }
-                r = r.getNextBuild();
+                catch (IOException ex) { exceptionMap.computeIfAbsent(r, key -> new HashSet<>()).add(ex); }
             }
         }
 
         if (artifactNumToKeep != null && artifactNumToKeep != -1) {
-            RunList<? extends Run<?, ?>> builds = job.getBuilds();
-            for (Run r : builds.subList(Math.min(builds.size(), artifactNumToKeep), builds.size())) {
-                if (shouldKeepRun(r, lsb, lstb)) {
+            for (BuildMetadata m : beyond(job, artifactNumToKeep)) {
+                Run r = loadUnlessKept(job, m, lsb, lstb, true);
+                if (r == null) {
                     continue;
                 }
                 LOGGER.log(FINE, "{0} is to be purged of artifacts", r);
-                try { r.deleteArtifacts(); }
+                if (!BackgroundGlobalBuildDiscarder.tryDeletion()) {
+                    break;
+                }
+                try {
+                    r.deleteArtifacts();
+                }
                 catch (IOException ex) { exceptionMap.computeIfAbsent(r, key -> new HashSet<>()).add(ex); }
             }
         }
@@ -201,17 +222,26 @@ public class LogRotator extends BuildDiscarder {
         if (artifactDaysToKeep != null && artifactDaysToKeep != -1) {
             Calendar cal = new GregorianCalendar();
             cal.add(Calendar.DAY_OF_YEAR, -artifactDaysToKeep);
-            Run r = job.getFirstBuild();
-            while (r != null) {
-                if (tooNew(r, cal)) {
+            for (int n : BuildMetadata.getNumbers(job)) {
+                BuildMetadata m = BuildMetadata.get(job, n);
+                if (m == null) {
+                    continue;
+                }
+                if (tooNew(m, cal)) {
+                    break;
+                }
+                Run r = loadUnlessKept(job, m, lsb, lstb, true);
+                if (r == null) {
+                    continue;
+                }
+                LOGGER.log(FINE, "{0} is to be purged of artifacts", r);
+                if (!BackgroundGlobalBuildDiscarder.tryDeletion()) {
                     break;
                 }
-                if (!shouldKeepRun(r, lsb, lstb)) {
-                    LOGGER.log(FINE, "{0} is to be purged of artifacts", r);
-                    try { r.deleteArtifacts(); }
-                    catch (IOException ex) { exceptionMap.computeIfAbsent(r, key -> new HashSet<>()).add(ex); }
+                try {
+                    r.deleteArtifacts();
                 }
-                r = r.getNextBuild();
+                catch (IOException ex) { exceptionMap.computeIfAbsent(r, key -> new HashSet<>()).add(ex); }
             }
         }
 
@@ -225,6 +255,52 @@ public class LogRotator extends BuildDiscarder {
         }
     }
 
+    /**
+     * Gets the metadata of the builds older than the given number of newest builds, oldest first.
+     * As with {@link Job#getBuilds}, builds which cannot be loaded are not counted, so that they do not push others out.
+     */
+    private static List<BuildMetadata> beyond(Job<?, ?> job, int numToKeep) {
+        List<Integer> numbers = BuildMetadata.getNumbers(job);
+        List<BuildMetadata> older = new ArrayList<>();
+        int kept = 0;
+        for (ListIterator<Integer> it = numbers.listIterator(numbers.size()); it.hasPrevious();) {
+            BuildMetadata m = BuildMetadata.get(job, it.previous());
+            if (m == null) {
+                continue;
+            }
+            if (kept < numToKeep) {
+                kept++;
+            } else {
+                older.add(m);
+            }
+        }
+        Collections.reverse(older);
+        return older;
+    }
+
+    /**
+     * Loads a build which is to be removed or purged of artifacts, unless its metadata shows that it is to be kept.
+     * @param artifacts whether only the artifacts are to be removed
+     * @return the build, or null if it is to be kept
+     */
+    @SuppressWarnings("rawtypes")
+    private Run loadUnlessKept(Job<?, ?> job, BuildMetadata m, Run lsb, Run lstb, boolean artifacts) {
+        int number = m.getNumber();
+        if (m.isKeepLog() || lsb != null && lsb.getNumber() == number || lstb != null && lstb.getNumber() == number) {
+            LOGGER.log(FINER, "#{0} is not to be removed or purged of artifacts", number);
+            return null;
+        }
+        if (artifacts && !m.mayHaveArtifacts()) {
+            LOGGER.log(FINER, "#{0} has no artifacts", number);
+            return null;
+        }
+        Run r = job.getBuildByNumber(number);
+        if (r == null || shouldKeepRun(r, lsb, lstb)) {
+            return null;
+        }
+        return r;
+    }
+
     private boolean shouldKeepRun(Run r, Run lsb, Run lstb) {
         if (r.isKeepLog()) {
             LOGGER.log(FINER, "{0} is not to be removed or purged of artifacts because it’s marked as a keeper", r);
@@ -245,9 +321,9 @@ public class LogRotator extends BuildDiscarder {
         return false;
     }
 
-    private boolean tooNew(Run r, Calendar cal) {
-        if (!r.getTimestamp().before(cal)) {
-            LOGGER.log(FINER, "{0} is not to be removed or purged of artifacts because it’s still new", r);
+    private boolean tooNew(BuildMetadata m, Calendar cal) {
+        if (m.getTimestamp() >= cal.getTimeInMillis()) {
+            LOGGER.log(FINER, "#{0} is not to be removed or purged of artifacts because it’s still new", m.getNumber());
             return true;
         } else {
             return false;
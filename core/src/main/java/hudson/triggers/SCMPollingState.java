@@ -0,0 +1,277 @@
+package hudson.triggers;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Item;
+import hudson.scheduler.CronTabList;
+import hudson.scheduler.Hash;
+import hudson.scm.SCM;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import jenkins.triggers.SCMTriggerItem;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Scheduling state and statistics of the polling of one {@link SCMTrigger}.
+ *
+ * <ul>
+ * <li>Polls started because the crontab matched are delayed by an offset specific to the item,
+ * so that items sharing a schedule such as {@code H/5 * * * *} do not all poll in the same second.
+ * The offset is at most half of the period until the next scheduled poll, and at most {@link #MAX_SPREAD} seconds.
+ * <li>After a failed poll, an increasing number of scheduled polls are skipped, so that the polling period
+ * is stretched by a factor of up to {@link #MAX_BACKOFF}. Optionally, the same happens when polls find no changes.
+ * <li>Optionally, at most {@link #MAX_PER_HOST} polls of repositories on the same host run at once.
+ * Other polls are retried a few seconds later rather than occupying a polling thread, until the next scheduled poll.
+ * </ul>
+ *
+ * <p>Polls requested otherwise, e.g. by notifications from the SCM, are neither delayed nor skipped.
+ */
+@Restricted(NoExternalUse.class)
+public final class SCMPollingState {
+
+    private static final String PREFIX = SCMPollingState.class.getName();
+
+    /**
+     * Maximum delay in seconds of scheduled polls. 0 starts them right away.
+     */
+    private static final int MAX_SPREAD = SystemProperties.getInteger(PREFIX + ".MAX_SPREAD", 60);
+
+    /**
+     * Maximum factor by which the polling period is stretched after failures. 1 disables backing off.
+     */
+    private static final int MAX_BACKOFF = SystemProperties.getInteger(PREFIX + ".MAX_BACKOFF", 8);
+
+    /**
+     * Whether to also back off while polls find no changes. This delays the detection of changes
+     * and is meant for items also notified of changes by their SCM.
+     */
+    private static final boolean BACKOFF_WHEN_UNCHANGED = SystemProperties.getBoolean(PREFIX + ".BACKOFF_WHEN_UNCHANGED");
+
+    /**
+     * Maximum number of concurrent polls of repositories on the same host. 0 for no limit.
+     */
+    static final int MAX_PER_HOST = SystemProperties.getInteger(PREFIX + ".MAX_PER_HOST", 0);
+
+    /**
+     * Delay in seconds before retrying a poll whose host was busy.
+     */
+    static final int HOST_RETRY_DELAY = SystemProperties.getInteger(PREFIX + ".HOST_RETRY_DELAY", 5);
+
+    private static final Map<String, Semaphore> HOSTS = new ConcurrentHashMap<>();
+
+    /**
+     * Host name in URLs or in scp-like {@code user@host:path} addresses.
+     */
+    private static final Pattern HOST = Pattern.compile("[a-zA-Z][a-zA-Z0-9+.-]*://(?:[^@/\\s]*@)?([^/:?#\\s]+)|[^@/\\s]+@([^:/\\s]+):");
+
+    /**
+     * Outcome of a poll.
+     */
+    enum Outcome { CHANGES, NO_CHANGES, FAILED }
+
+    private long submitted;
+    private boolean failed;
+    private int skip;
+    private int consecutiveFailures;
+    private int consecutiveUnchanged;
+
+    private long polls;
+    private long failures;
+    private long lastStart;
+    private long lastQueueDelay;
+    private long lastDuration;
+    private long totalQueueDelay;
+    private long totalDuration;
+
+    /**
+     * Whether the next scheduled poll should be skipped to back off.
+     */
+    synchronized boolean skipScheduledPoll() {
+        if (skip > 0) {
+            skip--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Delay in milliseconds of a scheduled poll.
+     *
+     * @param tabs the schedule of the trigger
+     */
+    static long spreadDelay(@NonNull Item item, @CheckForNull CronTabList tabs) {
+        if (MAX_SPREAD <= 0 || tabs == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long next = nextScheduledPoll(tabs, now);
+        long window = Math.min((next - now) / 2, TimeUnit.SECONDS.toMillis(MAX_SPREAD));
+        if (window <= 0) {
+            return 0;
+        }
+        return Hash.from(item.getFullName()).next((int) Math.min(window, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Time of the next scheduled poll after the current minute, or of the next minute if there is none.
+     *
+     * @param tabs the schedule of the trigger
+     */
+    static long nextScheduledPoll(@CheckForNull CronTabList tabs, long now) {
+        long nextMinute = now - now % TimeUnit.MINUTES.toMillis(1) + TimeUnit.MINUTES.toMillis(1);
+        long next = tabs == null ? -1 : tabs.ceil(nextMinute);
+        return next < 0 ? nextMinute : next;
+    }
+
+    synchronized void submitted() {
+        if (submitted == 0) {
+            submitted = System.currentTimeMillis();
+        }
+    }
+
+    synchronized void started(long start) {
+        lastStart = start;
+        lastQueueDelay = submitted == 0 ? 0 : Math.max(0, start - submitted);
+        totalQueueDelay += lastQueueDelay;
+        submitted = 0;
+        failed = false;
+    }
+
+    /**
+     * Called when a poll was given up before it started.
+     */
+    synchronized void dropped() {
+        submitted = 0;
+    }
+
+    /**
+     * Called when the poll in progress reports an error, even if it then returns normally.
+     */
+    synchronized void pollingFailed() {
+        failed = true;
+    }
+
+    synchronized void finished(@NonNull Outcome outcome) {
+        if (failed) {
+            outcome = Outcome.FAILED;
+        }
+        lastDuration = System.currentTimeMillis() - lastStart;
+        totalDuration += lastDuration;
+        polls++;
+        switch (outcome) {
+            case FAILED:
+                failures++;
+                consecutiveFailures++;
+                consecutiveUnchanged = 0;
+                skip = backoff(consecutiveFailures);
+                break;
+            case NO_CHANGES:
+                consecutiveFailures = 0;
+                consecutiveUnchanged++;
+                skip = BACKOFF_WHEN_UNCHANGED ? backoff(consecutiveUnchanged) : 0;
+                break;
+            default:
+                consecutiveFailures = 0;
+                consecutiveUnchanged = 0;
+                skip = 0;
+        }
+    }
+
+    /**
+     * Number of scheduled polls to skip: 1, 3, 7… up to {@link #MAX_BACKOFF} - 1.
+     */
+    private static int backoff(int count) {
+        if (MAX_BACKOFF <= 1) {
+            return 0;
+        }
+        return (int) Math.min((1L << Math.min(count, 30)) - 1, MAX_BACKOFF - 1);
+    }
+
+    /**
+     * Finds the host of the first repository of this item, if the number of concurrent polls per host is limited.
+     */
+    @CheckForNull
+    static String hostOf(@CheckForNull SCMTriggerItem item) {
+        if (MAX_PER_HOST <= 0 || item == null) {
+            return null;
+        }
+        for (SCM scm : item.getSCMs()) {
+            String host = hostOf(scm.getKey());
+            if (host != null) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first host name in an {@link SCM#getKey}.
+     */
+    @CheckForNull
+    static String hostOf(@NonNull String key) {
+        Matcher m = HOST.matcher(key);
+        if (!m.find()) {
+            return null;
+        }
+        String host = m.group(1) != null ? m.group(1) : m.group(2);
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    static boolean tryAcquireHost(@NonNull String host) {
+        return HOSTS.computeIfAbsent(host, k -> new Semaphore(MAX_PER_HOST)).tryAcquire();
+    }
+
+    static void releaseHost(@NonNull String host) {
+        HOSTS.get(host).release();
+    }
+
+    /**
+     * Number of polls performed since this trigger was started.
+     */
+    public synchronized long getPollCount() {
+        return polls;
+    }
+
+    /**
+     * Number of failed polls.
+     */
+    public synchronized long getFailureCount() {
+        return failures;
+    }
+
+    /**
+     * Number of scheduled polls that will be skipped.
+     */
+    public synchronized int getSkippedPollCount() {
+        return skip;
+    }
+
+    /**
+     * Time in milliseconds the last poll waited for a polling thread.
+     */
+    public synchronized long getLastQueueDelay() {
+        return lastQueueDelay;
+    }
+
+    /**
+     * Duration in milliseconds of the last poll.
+     */
+    public synchronized long getLastDuration() {
+        return lastDuration;
+    }
+
+    public synchronized long getAverageQueueDelay() {
+        return polls == 0 ? 0 : totalQueueDelay / polls;
+    }
+
+    public synchronized long getAverageDuration() {
+        return polls == 0 ? 0 : totalDuration / polls;
+    }
+}
@@ -43,6 +43,7 @@ import hudson.model.CauseAction;
 import hudson.model.Item;
 import hudson.model.PersistentDescriptor;
 import hudson.model.Run;
+import hudson.scm.PollingCoalescer;
 import hudson.scm.SCM;
 import hudson.scm.SCMDescriptor;
 import hudson.util.DaemonThreadFactory;
@@ -56,6 +57,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.text.DateFormat;
@@ -63,6 +65,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -79,6 +82,7 @@ import jenkins.model.RunAction2;
 import jenkins.scm.SCMDecisionHandler;
 import jenkins.triggers.SCMTriggerItem;
 import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
 import net.sf.json.JSONObject;
 import org.apache.commons.jelly.XMLOutput;
 import org.apache.commons.lang.StringUtils;
@@ -108,6 +112,8 @@ public class SCMTrigger extends Trigger<Item> {
 
     private boolean ignorePostCommitHooks;
 
+    private transient volatile SCMPollingState pollingState;
+
     @DataBoundConstructor
     public SCMTrigger(String scmpoll_spec) {
         super(scmpoll_spec);
@@ -188,12 +194,48 @@ public class SCMTrigger extends Trigger<Item> {
             // schedule the polling.
             // even if we end up submitting this too many times, that's OK.
             // the real exclusion control happens inside Runner.
+            Runner runner = new Runner(additionalActions);
+            if (Trigger.isScheduledRun()) {
+                if (getPollingState().skipScheduledPoll()) {
+                    LOGGER.fine(() -> "skipping a scheduled polling of " + job + " to back off");
+                    return;
+                }
+                long delay = SCMPollingState.spreadDelay(job, tabs);
+                if (delay > 0) {
+                    LOGGER.fine(() -> "scheduling the trigger to (asynchronously) run in " + delay + "ms");
+                    Timer.get().schedule(() -> submit(runner), delay, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
             LOGGER.fine("scheduling the trigger to (asynchronously) run");
-            d.queue.execute(new Runner(additionalActions));
-            d.clogCheck();
+            submit(runner);
         }
     }
 
+    private void submit(Runner runner) {
+        DescriptorImpl d = getDescriptor();
+        getPollingState().submitted();
+        d.queue.execute(runner);
+        d.clogCheck();
+    }
+
+    /**
+     * Scheduling state and statistics of the polling of this trigger.
+     */
+    @Restricted(NoExternalUse.class)
+    public SCMPollingState getPollingState() {
+        SCMPollingState state = pollingState;
+        if (state == null) {
+            synchronized (this) {
+                state = pollingState;
+                if (state == null) {
+                    pollingState = state = new SCMPollingState();
+                }
+            }
+        }
+        return state;
+    }
+
     @Override
     public DescriptorImpl getDescriptor() {
         return (DescriptorImpl) super.getDescriptor();
@@ -246,6 +288,7 @@ public class SCMTrigger extends Trigger<Item> {
         private static final int THREADS_LOWER_BOUND = 5;
         private static final int THREADS_UPPER_BOUND = 100;
         private static final int THREADS_DEFAULT = 10;
+        private static final int SLOWEST_POLLED_ITEMS = 20;
 
         private Object readResolve() {
             if (maximumThreads == 0) {
@@ -294,6 +337,36 @@ public class SCMTrigger extends Trigger<Item> {
             return r;
         }
 
+        /**
+         * Statistics of polls sharing a single query of their repository, for the polling activity page.
+         */
+        @Restricted(NoExternalUse.class)
+        public PollingCoalescer getPollingCoalescer() {
+            return PollingCoalescer.get();
+        }
+
+        /**
+         * Gets the items whose polling took the longest on average, for the polling activity page.
+         */
+        @Restricted(NoExternalUse.class)
+        public List<SCMTriggerItem> getSlowestPolledItems() {
+            List<SCMTriggerItem> r = new ArrayList<>();
+            for (Item item : Jenkins.get().allItems(Item.class)) {
+                SCMTriggerItem scmItem = SCMTriggerItem.SCMTriggerItems.asSCMTriggerItem(item);
+                SCMTrigger t = scmItem == null ? null : scmItem.getSCMTrigger();
+                if (t != null && t.getPollingState().getPollCount() > 0) {
+                    r.add(scmItem);
+                }
+            }
+            r.sort(Comparator.comparingLong((SCMTriggerItem i) -> averageDuration(i)).reversed());
+            return r.subList(0, Math.min(r.size(), SLOWEST_POLLED_ITEMS));
+        }
+
+        private static long averageDuration(SCMTriggerItem item) {
+            SCMTrigger t = item.getSCMTrigger();
+            return t == null ? 0 : t.getPollingState().getAverageDuration();
+        }
+
         @NonNull
         @Override
         public String getDisplayName() {
@@ -550,6 +623,42 @@ public class SCMTrigger extends Trigger<Item> {
 
     private static final Logger LOGGER = Logger.getLogger(SCMTrigger.class.getName());
 
+    /**
+     * Polling log which tells the {@link SCMPollingState} about reported errors,
+     * since items other than {@link AbstractProject} do not notify {@link hudson.model.listeners.SCMPollListener}s of failures.
+     */
+    private static final class PollingListener extends StreamTaskListener {
+        private static final long serialVersionUID = 1L;
+
+        private final transient SCMPollingState state;
+
+        PollingListener(File out, SCMPollingState state) throws IOException {
+            super(out, Charset.defaultCharset());
+            this.state = state;
+        }
+
+        @NonNull
+        @Override
+        public PrintWriter error(String msg) {
+            failed();
+            return super.error(msg);
+        }
+
+        @NonNull
+        @Override
+        public PrintWriter fatalError(String msg) {
+            failed();
+            return super.fatalError(msg);
+        }
+
+        private void failed() {
+            // null once sent to an agent
+            if (state != null) {
+                state.pollingFailed();
+            }
+        }
+    }
+
     /**
      * {@link Runnable} that actually performs polling.
      */
@@ -562,6 +671,11 @@ public class SCMTrigger extends Trigger<Item> {
 
         private Action[] additionalActions;
 
+        /**
+         * Until when polling is retried while too many polls of the same host are running, 0 before the first retry.
+         */
+        private long hostRetryDeadline;
+
         public Runner() {
             this(null);
         }
@@ -609,7 +723,7 @@ public class SCMTrigger extends Trigger<Item> {
             try {
                 // to make sure that the log file contains up-to-date text,
                 // don't do buffering.
-                StreamTaskListener listener = new StreamTaskListener(getLogFile(), Charset.defaultCharset());
+                StreamTaskListener listener = new PollingListener(getLogFile(), getPollingState());
 
                 try {
                     PrintStream logger = listener.getLogger();
@@ -658,11 +772,32 @@ public class SCMTrigger extends Trigger<Item> {
                 return;
             }
 
+            String host = SCMPollingState.hostOf(job());
+            if (host != null && !SCMPollingState.tryAcquireHost(host)) {
+                long now = System.currentTimeMillis();
+                if (hostRetryDeadline == 0) {
+                    hostRetryDeadline = SCMPollingState.nextScheduledPoll(tabs, now);
+                }
+                if (now + TimeUnit.SECONDS.toMillis(SCMPollingState.HOST_RETRY_DELAY) >= hostRetryDeadline) {
+                    LOGGER.log(Level.FINE, "Too many concurrent polls of {0}, giving up polling of {1} until the next scheduled one", new Object[] {host, job});
+                    getPollingState().dropped();
+                    return;
+                }
+                LOGGER.log(Level.FINE, "Too many concurrent polls of {0}, retrying polling of {1} later", new Object[] {host, job});
+                Timer.get().schedule(() -> getDescriptor().queue.execute(this), SCMPollingState.HOST_RETRY_DELAY, TimeUnit.SECONDS);
+                return;
+            }
+
             String threadName = Thread.currentThread().getName();
             Thread.currentThread().setName("SCM polling for " + job);
+            SCMPollingState state = getPollingState();
+            SCMPollingState.Outcome outcome = SCMPollingState.Outcome.FAILED;
             try {
                 startTime = System.currentTimeMillis();
-                if (runPolling()) {
+                state.started(startTime);
+                boolean changes = runPolling();
+                outcome = changes ? SCMPollingState.Outcome.CHANGES : SCMPollingState.Outcome.NO_CHANGES;
+                if (changes) {
                     SCMTriggerItem p = job();
                     String name = " #" + p.getNextBuildNumber();
                     SCMTriggerCause cause;
@@ -682,6 +817,10 @@ public class SCMTrigger extends Trigger<Item> {
                     }
                 }
             } finally {
+                state.finished(outcome);
+                if (host != null) {
+                    SCMPollingState.releaseHost(host);
+                }
                 Thread.currentThread().setName(threadName);
             }
         }
@@ -105,6 +105,10 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
             // so if it fails, use whatever 'tabs' that we already have.
             LOGGER.log(Level.WARNING, String.format("Failed to parse crontab spec %s in job %s", spec, project.getFullName()), e);
         }
+
+        if (!TriggerSchedule.DISABLED && project instanceof TriggeredItem) {
+            TriggerSchedule.get().schedule((TriggeredItem) project, this);
+        }
     }
 
     /**
@@ -239,7 +243,11 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
             while (new Date().getTime() >= cal.getTimeInMillis()) {
                 LOGGER.log(Level.FINE, "cron checking {0}", cal.getTime());
                 try {
-                    checkTriggers(cal);
+                    if (TriggerSchedule.DISABLED) {
+                        checkTriggers(cal);
+                    } else {
+                        TriggerSchedule.get().checkTriggers(cal);
+                    }
                 } catch (Throwable e) {
                     LOGGER.log(Level.WARNING, "Cron thread throw an exception", e);
                     // SafeTimerTask.run would also catch this, but be sure to increment cal too.
@@ -253,10 +261,40 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
     private static Future previousSynchronousPolling;
 
     public static void checkTriggers(final Calendar cal) {
-        Jenkins inst = Jenkins.get();
+        boolean synchronousPolling = startSynchronousPolling();
+
+        // Process all triggers, except SCMTriggers when synchronousPolling is set
+        for (TriggeredItem p : Jenkins.get().allItems(TriggeredItem.class)) {
+            LOGGER.finer(() -> "considering " + p);
+            for (Trigger t : p.getTriggers().values()) {
+                LOGGER.finer(() -> "found trigger " + t);
+                if (!(p instanceof AbstractProject && t instanceof SCMTrigger && synchronousPolling)) {
+                    if (t != null && t.spec != null && t.tabs != null) {
+                        LOGGER.log(Level.FINE, "cron checking {0} with spec ‘{1}’", new Object[]{p, t.spec.trim()});
+
+                        if (t.tabs.check(cal)) {
+                            runTrigger(p, t);
+                        } else {
+                            LOGGER.log(Level.FINER, "did not trigger {0}", p);
+                        }
+                    } else {
+                        LOGGER.log(Level.WARNING, "The job {0} has a syntactically incorrect config and is missing the cron spec for a trigger", p.getFullName());
+                    }
+                }
+            }
+        }
+    }
 
+    /**
+     * Submits the polling of all {@link SCMTrigger}s in dependency order, if synchronous polling is enabled
+     * and the previous round is done.
+     *
+     * @return whether synchronous polling is enabled, in which case the {@link SCMTrigger}s of
+     *      {@link AbstractProject}s must not be run individually
+     */
+    static boolean startSynchronousPolling() {
         // Are we using synchronous polling?
-        SCMTrigger.DescriptorImpl scmd = inst.getDescriptorByType(SCMTrigger.DescriptorImpl.class);
+        SCMTrigger.DescriptorImpl scmd = Jenkins.get().getDescriptorByType(SCMTrigger.DescriptorImpl.class);
         if (scmd.synchronousPolling) {
             LOGGER.fine("using synchronous polling");
 
@@ -285,46 +323,51 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
                 LOGGER.fine("synchronous polling has detected unfinished jobs, will not trigger additional jobs.");
             }
         }
+        return scmd.synchronousPolling;
+    }
 
-        // Process all triggers, except SCMTriggers when synchronousPolling is set
-        for (TriggeredItem p : inst.allItems(TriggeredItem.class)) {
-            LOGGER.finer(() -> "considering " + p);
-            for (Trigger t : p.getTriggers().values()) {
-                LOGGER.finer(() -> "found trigger " + t);
-                if (!(p instanceof AbstractProject && t instanceof SCMTrigger && scmd.synchronousPolling)) {
-                    if (t != null && t.spec != null && t.tabs != null) {
-                        LOGGER.log(Level.FINE, "cron checking {0} with spec ‘{1}’", new Object[]{p, t.spec.trim()});
+    /**
+     * Set while a trigger is run because its crontab matched.
+     */
+    private static final ThreadLocal<Boolean> SCHEDULED_RUN = new ThreadLocal<>();
 
-                        if (t.tabs.check(cal)) {
-                            LOGGER.log(Level.CONFIG, "cron triggered {0}", p);
-                            try {
-                                long begin_time = System.currentTimeMillis();
-                                if (t.job == null) {
-                                    LOGGER.fine(() -> t + " not yet started on " + p + " but trying to run anyway");
-                                }
-                                t.run();
-                                long end_time = System.currentTimeMillis();
-                                if (end_time - begin_time > CRON_THRESHOLD * 1000) {
-                                    TriggerDescriptor descriptor = t.getDescriptor();
-                                    String name = descriptor.getDisplayName();
-                                    final String msg = String.format("Trigger '%s' triggered by '%s' (%s) spent too much time (%s) in its execution, other timers could be delayed.",
-                                            name, p.getFullDisplayName(), p.getFullName(), Util.getTimeSpanString(end_time - begin_time));
-                                    LOGGER.log(Level.WARNING, msg);
-                                    SlowTriggerAdminMonitor.getInstance().report(descriptor.getClass(), p.getFullName(), end_time - begin_time);
-                                }
-                            } catch (Throwable e) {
-                                // t.run() is a plugin, and some of them throw RuntimeException and other things.
-                                // don't let that cancel the polling activity. report and move on.
-                                LOGGER.log(Level.WARNING, t.getClass().getName() + ".run() failed for " + p, e);
-                            }
-                        } else {
-                            LOGGER.log(Level.FINER, "did not trigger {0}", p);
-                        }
-                    } else {
-                        LOGGER.log(Level.WARNING, "The job {0} has a syntactically incorrect config and is missing the cron spec for a trigger", p.getFullName());
-                    }
-                }
+    /**
+     * Whether the current thread is running a trigger because its crontab matched,
+     * as opposed to, e.g., an SCM notification.
+     */
+    static boolean isScheduledRun() {
+        return SCHEDULED_RUN.get() != null;
+    }
+
+    /**
+     * Runs a trigger whose crontab matched, reporting it if it takes too long.
+     */
+    static void runTrigger(TriggeredItem p, Trigger<?> t) {
+        LOGGER.log(Level.CONFIG, "cron triggered {0}", p);
+        try {
+            long begin_time = System.currentTimeMillis();
+            if (t.job == null) {
+                LOGGER.fine(() -> t + " not yet started on " + p + " but trying to run anyway");
+            }
+            SCHEDULED_RUN.set(Boolean.TRUE);
+            try {
+                t.run();
+            } finally {
+                SCHEDULED_RUN.remove();
+            }
+            long end_time = System.currentTimeMillis();
+            if (end_time - begin_time > CRON_THRESHOLD * 1000) {
+                TriggerDescriptor descriptor = t.getDescriptor();
+                String name = descriptor.getDisplayName();
+                final String msg = String.format("Trigger '%s' triggered by '%s' (%s) spent too much time (%s) in its execution, other timers could be delayed.",
+                        name, p.getFullDisplayName(), p.getFullName(), Util.getTimeSpanString(end_time - begin_time));
+                LOGGER.log(Level.WARNING, msg);
+                SlowTriggerAdminMonitor.getInstance().report(descriptor.getClass(), p.getFullName(), end_time - begin_time);
             }
+        } catch (Throwable e) {
+            // t.run() is a plugin, and some of them throw RuntimeException and other things.
+            // don't let that cancel the polling activity. report and move on.
+            LOGGER.log(Level.WARNING, t.getClass().getName() + ".run() failed for " + p, e);
         }
     }
 
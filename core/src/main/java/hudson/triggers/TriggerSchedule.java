@@ -0,0 +1,248 @@
+package hudson.triggers;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.PeriodicWork;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.triggers.TriggeredItem;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Keeps track of the time at which each {@link Trigger} is next due,
+ * so that {@link Trigger.Cron} only looks at the triggers due in the current minute
+ * instead of checking every trigger of every item.
+ *
+ * <p>
+ * Triggers are scheduled when they are {@link Trigger#start started} and when their item is saved,
+ * and forgotten when their item is deleted or they are no longer part of it.
+ * All items are also walked every {@link #RESYNC_INTERVAL} minutes to pick up anything missed,
+ * e.g. triggers whose tabs are replaced by other means.
+ */
+@Restricted(NoExternalUse.class)
+public final class TriggerSchedule {
+
+    private static final Logger LOGGER = Logger.getLogger(TriggerSchedule.class.getName());
+
+    /**
+     * Set to true to check every trigger of every item each minute instead.
+     */
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static /* non-final for Groovy */ boolean DISABLED = SystemProperties.getBoolean(TriggerSchedule.class.getName() + ".DISABLED");
+
+    /**
+     * Number of minutes between two walks of all items.
+     */
+    private static final int RESYNC_INTERVAL = SystemProperties.getInteger(TriggerSchedule.class.getName() + ".RESYNC_INTERVAL", 60);
+
+    private static final TriggerSchedule INSTANCE = new TriggerSchedule();
+
+    static TriggerSchedule get() {
+        return INSTANCE;
+    }
+
+    private static final class Entry {
+        private final Trigger<?> trigger;
+        private final TriggeredItem item;
+        private final long due;
+
+        private Entry(Trigger<?> trigger, TriggeredItem item, long due) {
+            this.trigger = trigger;
+            this.item = item;
+            this.due = due;
+        }
+    }
+
+    /**
+     * Scheduled triggers, earliest first. Guarded by {@code this}.
+     */
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(1024, (e1, e2) -> Long.compare(e1.due, e2.due));
+
+    /**
+     * Current entry of each trigger. An entry that was taken from {@link #queue} to be run
+     * is only put back if it is still the current one. Guarded by {@code this}.
+     */
+    private final Map<Trigger<?>, Entry> scheduled = new IdentityHashMap<>();
+
+    /**
+     * Start of the next minute to be checked; triggers are scheduled no earlier than that. Guarded by {@code this}.
+     */
+    private long cursor = System.currentTimeMillis() / PeriodicWork.MIN * PeriodicWork.MIN;
+
+    /**
+     * When to walk all items next. Only used by the thread checking triggers.
+     */
+    private long nextResync = Long.MIN_VALUE;
+
+    TriggerSchedule() {
+    }
+
+    /**
+     * (Re)computes the next time the given trigger is due.
+     */
+    synchronized void schedule(@NonNull TriggeredItem item, @NonNull Trigger<?> trigger) {
+        Entry old = scheduled.remove(trigger);
+        if (old != null) {
+            queue.remove(old);
+        }
+        enqueue(item, trigger, cursor);
+    }
+
+    private void enqueue(TriggeredItem item, Trigger<?> trigger, long from) {
+        if (trigger.tabs == null) {
+            return;
+        }
+        long due = trigger.tabs.ceil(from);
+        if (due < 0) {
+            LOGGER.log(Level.FINER, "{0} of {1} is never due", new Object[] {trigger, item});
+            return;
+        }
+        Entry e = new Entry(trigger, item, due);
+        scheduled.put(trigger, e);
+        queue.add(e);
+    }
+
+    /**
+     * Schedules the triggers of this item that are not scheduled yet.
+     */
+    synchronized void update(@NonNull TriggeredItem item) {
+        for (Trigger<?> t : item.getTriggers().values()) {
+            if (t != null && !scheduled.containsKey(t)) {
+                enqueue(item, t, cursor);
+            }
+        }
+    }
+
+    /**
+     * Forgets the triggers of this item and of the items it contains.
+     */
+    synchronized void remove(@NonNull Item item) {
+        String prefix = item.getFullName() + '/';
+        Predicate<Entry> gone = e -> e.item == item || e.item.getFullName().startsWith(prefix);
+        queue.removeIf(gone);
+        scheduled.values().removeIf(gone);
+    }
+
+    /**
+     * Runs the triggers due at the given minute.
+     *
+     * @see Trigger#checkTriggers(Calendar)
+     */
+    void checkTriggers(Calendar cal) {
+        boolean synchronousPolling = Trigger.startSynchronousPolling();
+
+        if (System.currentTimeMillis() >= nextResync) {
+            resync();
+            nextResync = System.currentTimeMillis() + RESYNC_INTERVAL * PeriodicWork.MIN;
+        }
+
+        long now = cal.getTimeInMillis();
+        ZoneId zone = cal.getTimeZone().toZoneId();
+        List<Entry> due = new ArrayList<>();
+        int total;
+        synchronized (this) {
+            while (!queue.isEmpty() && queue.peek().due <= now) {
+                due.add(queue.poll());
+            }
+            cursor = Math.max(cursor, now + PeriodicWork.MIN);
+            total = scheduled.size();
+        }
+        LOGGER.log(Level.FINE, "{0} of {1} triggers due at {2}", new Object[] {due.size(), total, cal.getTime()});
+
+        for (Entry e : due) {
+            TriggeredItem p = e.item;
+            Trigger<?> t = e.trigger;
+            // the item may have been deleted, or replaced when reloading the configuration from disk
+            if (Jenkins.get().getItemByFullName(p.getFullName()) != p || !p.getTriggers().containsValue(t)) {
+                LOGGER.log(Level.FINER, "{0} was removed from {1}", new Object[] {t, p});
+                synchronized (this) {
+                    scheduled.remove(t, e);
+                }
+                continue;
+            }
+            if (!(p instanceof AbstractProject && t instanceof SCMTrigger && synchronousPolling)) {
+                if (t.tabs != null && t.tabs.check(now, zone)) {
+                    Trigger.runTrigger(p, t);
+                } else {
+                    LOGGER.log(Level.FINER, "did not trigger {0}", p);
+                }
+            }
+            synchronized (this) {
+                if (scheduled.remove(t, e)) {
+                    enqueue(p, t, now + PeriodicWork.MIN);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks all items to schedule triggers not known yet and forget those no longer present.
+     */
+    private void resync() {
+        Map<Trigger<?>, TriggeredItem> live = new IdentityHashMap<>();
+        for (TriggeredItem p : Jenkins.get().allItems(TriggeredItem.class)) {
+            for (Trigger<?> t : p.getTriggers().values()) {
+                if (t != null && t.spec != null && t.tabs != null) {
+                    live.put(t, p);
+                } else {
+                    LOGGER.log(Level.WARNING, "The job {0} has a syntactically incorrect config and is missing the cron spec for a trigger", p.getFullName());
+                }
+            }
+        }
+        synchronized (this) {
+            queue.removeIf(e -> !live.containsKey(e.trigger));
+            scheduled.keySet().retainAll(live.keySet());
+            for (Map.Entry<Trigger<?>, TriggeredItem> e : live.entrySet()) {
+                if (!scheduled.containsKey(e.getKey())) {
+                    enqueue(e.getValue(), e.getKey(), cursor);
+                }
+            }
+        }
+        LOGGER.log(Level.FINE, "Scheduled {0} triggers", live.size());
+    }
+
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onCreated(Item item) {
+            if (!DISABLED && item instanceof TriggeredItem) {
+                get().update((TriggeredItem) item);
+            }
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            get().remove(item);
+        }
+    }
+
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class SaveableListenerImpl extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (!DISABLED && o instanceof TriggeredItem) {
+                get().update((TriggeredItem) o);
+            }
+        }
+    }
+}
@@ -8,9 +8,24 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiPredicate;
+import java.util.regex.Pattern;
+import jenkins.util.SystemProperties;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.Project;
@@ -152,6 +167,387 @@ public abstract class DirScanner implements Serializable {
         private static final long serialVersionUID = 1L;
     }
 
+    /**
+     * Scans by using Ant GLOB syntax, like {@link Glob}, but walks the directory tree itself instead of using Ant.
+     * <p>Directories which cannot contain any matching file are not entered, and each matching file is passed to the visitor
+     * as soon as it is found, rather than once the whole tree has been scanned.
+     * Subdirectories may also be walked {@link #setParallelism in parallel}, by default when the
+     * {@code hudson.util.DirScanner.StreamingGlob.parallelism} system property is set,
+     * in which case the visitor is called by several threads, one at a time, and files are visited in no particular order.
+     * <p>Blank includes mean {@code **}, and no initial basename is prepended.
+     * As with Ant, when symbolic links are not followed they are not visited at all;
+     * unlike Ant, a directory is not entered again through a cycle of symbolic links.
+     * @since TODO
+     */
+    public static class StreamingGlob extends DirScanner {
+        private static final int PARALLELISM = SystemProperties.getInteger(StreamingGlob.class.getName() + ".parallelism", 1);
+
+        private static final boolean ENABLED = SystemProperties.getBoolean(StreamingGlob.class.getName() + ".enabled");
+
+        private final String includes, excludes;
+        private final boolean useDefaultExcludes;
+        private boolean caseSensitive = true;
+        private boolean followSymlinks = true;
+        private int parallelism = PARALLELISM;
+
+        public StreamingGlob(String includes, String excludes, boolean useDefaultExcludes) {
+            this.includes = includes;
+            this.excludes = excludes;
+            this.useDefaultExcludes = useDefaultExcludes;
+        }
+
+        /**
+         * Whether code which used to list files with Ant should use this scanner instead.
+         * Only when the {@code hudson.util.DirScanner.StreamingGlob.enabled} system property is set,
+         * and not for the cases where Ant finds other files: case-insensitive matching,
+         * which Ant applies to only one of two directories differing in case,
+         * and includes such as {@code dir/**}, where Ant may leave out a file named {@code dir}.
+         */
+        @Restricted(NoExternalUse.class)
+        public static boolean isEnabled(String includes, boolean caseSensitive) {
+            return ENABLED && isEquivalentToAnt(includes, caseSensitive);
+        }
+
+        static boolean isEquivalentToAnt(String includes, boolean caseSensitive) {
+            if (!caseSensitive) {
+                return false;
+            }
+            if (includes != null) {
+                for (String token : includes.split(",")) {
+                    token = token.trim().replace('\\', '/');
+                    if (token.endsWith("/") || token.endsWith("/**")) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        public void setCaseSensitive(boolean caseSensitive) {
+            this.caseSensitive = caseSensitive;
+        }
+
+        public void setFollowSymlinks(boolean followSymlinks) {
+            this.followSymlinks = followSymlinks;
+        }
+
+        /**
+         * @param parallelism the number of threads walking the tree, 1 to walk it in the calling thread
+         */
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        public void scan(File dir, FileVisitor visitor) throws IOException {
+            if (!dir.isDirectory()) {
+                return;
+            }
+            List<GlobPattern> inc = GlobPattern.compile(includes, caseSensitive);
+            if (inc.isEmpty()) {
+                inc.add(new GlobPattern("**", caseSensitive));
+            }
+            List<GlobPattern> exc = GlobPattern.compile(excludes, caseSensitive);
+            if (useDefaultExcludes) {
+                for (String pattern : DirectoryScanner.getDefaultExcludes()) {
+                    exc.add(new GlobPattern(pattern, caseSensitive));
+                }
+            }
+            Walk walk = new Walk(inc.toArray(new GlobPattern[0]), exc.toArray(new GlobPattern[0]), visitor);
+            Path root = dir.toPath();
+            Ancestor ancestors = followSymlinks ? new Ancestor(Files.readAttributes(root, BasicFileAttributes.class).fileKey(), null) : null;
+            if (parallelism <= 1) {
+                walk.walk(root, "", walk.start(walk.includes), walk.start(walk.excludes), ancestors, null);
+                return;
+            }
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(walk.new Task(root, "", walk.start(walk.includes), walk.start(walk.excludes), ancestors));
+            } catch (UncheckedIOException x) {
+                throw x.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        /**
+         * Directories being walked, to detect cycles of symbolic links.
+         */
+        private static final class Ancestor {
+            final Object key;
+            final Ancestor parent;
+
+            Ancestor(Object key, Ancestor parent) {
+                this.key = key;
+                this.parent = parent;
+            }
+
+            boolean contains(Object key) {
+                for (Ancestor a = this; a != null; a = a.parent) {
+                    if (key != null && key.equals(a.key)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+
+        private final class Walk {
+            final GlobPattern[] includes, excludes;
+            final FileVisitor visitor;
+
+            Walk(GlobPattern[] includes, GlobPattern[] excludes, FileVisitor visitor) {
+                this.includes = includes;
+                this.excludes = excludes;
+                this.visitor = visitor;
+            }
+
+            BitSet[] start(GlobPattern[] patterns) {
+                BitSet[] states = new BitSet[patterns.length];
+                for (int i = 0; i < patterns.length; i++) {
+                    states[i] = patterns[i].start();
+                }
+                return states;
+            }
+
+            /**
+             * @param subdirectories null to walk subdirectories right away, otherwise where to add them to be walked in parallel
+             */
+            void walk(Path dir, String rel, BitSet[] inc, BitSet[] exc, Ancestor ancestors, List<Task> subdirectories) throws IOException {
+                List<Path> children = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    stream.forEach(children::add);
+                } catch (IOException | DirectoryIteratorException x) {
+                    // unreadable, as with Ant
+                    return;
+                }
+                for (Path child : children) {
+                    String name = child.getFileName().toString();
+                    BitSet[] childInc = step(includes, inc, name);
+                    if (!any(includes, childInc, (p, states) -> true)) {
+                        continue;
+                    }
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (attrs.isSymbolicLink()) {
+                            if (!followSymlinks) {
+                                continue;
+                            }
+                            attrs = Files.readAttributes(child, BasicFileAttributes.class);
+                        }
+                    } catch (IOException x) {
+                        // a broken symbolic link, visited as a file as with Ant
+                        attrs = null;
+                    }
+                    if (attrs != null && attrs.isDirectory()) {
+                        if (!any(includes, childInc, GlobPattern::canMatchBelow)) {
+                            continue;
+                        }
+                        BitSet[] childExc = step(excludes, exc, name);
+                        if (any(excludes, childExc, GlobPattern::matchesAllBelow)) {
+                            continue;
+                        }
+                        Ancestor a = null;
+                        if (ancestors != null) {
+                            if (ancestors.contains(attrs.fileKey())) {
+                                continue;
+                            }
+                            a = new Ancestor(attrs.fileKey(), ancestors);
+                        }
+                        if (subdirectories == null) {
+                            walk(child, rel + name + '/', childInc, childExc, a, null);
+                        } else {
+                            subdirectories.add(new Task(child, rel + name + '/', childInc, childExc, a));
+                        }
+                    } else if (any(includes, childInc, GlobPattern::matches) && !any(excludes, step(excludes, exc, name), GlobPattern::matches)) {
+                        if (subdirectories == null) {
+                            scanSingle(child.toFile(), rel + name, visitor);
+                        } else {
+                            synchronized (visitor) {
+                                scanSingle(child.toFile(), rel + name, visitor);
+                            }
+                        }
+                    }
+                }
+            }
+
+            /**
+             * @return the states of the patterns after the given name, null for those which can no longer match
+             */
+            private BitSet[] step(GlobPattern[] patterns, BitSet[] states, String name) {
+                BitSet[] next = new BitSet[patterns.length];
+                for (int i = 0; i < patterns.length; i++) {
+                    if (states[i] != null) {
+                        next[i] = patterns[i].step(states[i], name);
+                    }
+                }
+                return next;
+            }
+
+            private boolean any(GlobPattern[] patterns, BitSet[] states, BiPredicate<GlobPattern, BitSet> test) {
+                for (int i = 0; i < patterns.length; i++) {
+                    if (states[i] != null && test.test(patterns[i], states[i])) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            private final class Task extends RecursiveAction {
+                private static final long serialVersionUID = 1L;
+
+                private final transient Path dir;
+                private final String rel;
+                private final transient BitSet[] inc, exc;
+                private final transient Ancestor ancestors;
+
+                Task(Path dir, String rel, BitSet[] inc, BitSet[] exc, Ancestor ancestors) {
+                    this.dir = dir;
+                    this.rel = rel;
+                    this.inc = inc;
+                    this.exc = exc;
+                    this.ancestors = ancestors;
+                }
+
+                @Override
+                protected void compute() {
+                    List<Task> subdirectories = new ArrayList<>();
+                    try {
+                        walk(dir, rel, inc, exc, ancestors, subdirectories);
+                    } catch (IOException x) {
+                        throw new UncheckedIOException(x);
+                    }
+                    invokeAll(subdirectories);
+                }
+            }
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * An Ant pattern, matched one path segment at a time.
+     * The states are the indices of the segments which may match the next name, the length of the pattern meaning a complete match.
+     */
+    private static final class GlobPattern {
+        /**
+         * Null for {@code **}, otherwise a {@link String} or a {@link Pattern}.
+         */
+        private final Object[] segments;
+        private final boolean caseSensitive;
+
+        GlobPattern(String pattern, boolean caseSensitive) {
+            this.caseSensitive = caseSensitive;
+            pattern = pattern.replace('\\', '/');
+            if (pattern.endsWith("/")) {
+                pattern += "**";
+            }
+            List<Object> r = new ArrayList<>();
+            for (String s : pattern.split("/")) {
+                if (s.isEmpty()) {
+                    continue;
+                }
+                if (s.equals("**")) {
+                    r.add(null);
+                } else if (s.indexOf('*') >= 0 || s.indexOf('?') >= 0) {
+                    StringBuilder regex = new StringBuilder();
+                    StringBuilder literal = new StringBuilder();
+                    for (char c : s.toCharArray()) {
+                        if (c == '*' || c == '?') {
+                            if (literal.length() > 0) {
+                                regex.append(Pattern.quote(literal.toString()));
+                                literal.setLength(0);
+                            }
+                            regex.append(c == '*' ? ".*" : ".");
+                        } else {
+                            literal.append(c);
+                        }
+                    }
+                    if (literal.length() > 0) {
+                        regex.append(Pattern.quote(literal.toString()));
+                    }
+                    r.add(Pattern.compile(regex.toString(),
+                            Pattern.DOTALL | (caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)));
+                } else {
+                    r.add(s);
+                }
+            }
+            this.segments = r.toArray();
+        }
+
+        /**
+         * Comma-separated patterns, as in {@link Util#createFileSet(File, String, String)}.
+         */
+        static List<GlobPattern> compile(String patterns, boolean caseSensitive) {
+            List<GlobPattern> r = new ArrayList<>();
+            if (patterns != null) {
+                for (String token : patterns.split(",")) {
+                    token = token.trim();
+                    if (!token.isEmpty()) {
+                        r.add(new GlobPattern(token, caseSensitive));
+                    }
+                }
+            }
+            return r;
+        }
+
+        BitSet start() {
+            BitSet states = new BitSet();
+            states.set(0);
+            return closure(states);
+        }
+
+        /**
+         * @return the states after the given name, or null if the pattern can no longer match
+         */
+        BitSet step(BitSet states, String name) {
+            BitSet next = new BitSet();
+            for (int i = states.nextSetBit(0); i >= 0 && i < segments.length; i = states.nextSetBit(i + 1)) {
+                Object s = segments[i];
+                if (s == null) {
+                    next.set(i);
+                } else if (s instanceof String ? caseSensitive ? s.equals(name) : ((String) s).equalsIgnoreCase(name)
+                        : ((Pattern) s).matcher(name).matches()) {
+                    next.set(i + 1);
+                }
+            }
+            return next.isEmpty() ? null : closure(next);
+        }
+
+        /**
+         * Adds the states reached by matching {@code **} with no directory.
+         */
+        private BitSet closure(BitSet states) {
+            for (int i = 0; i < segments.length; i++) {
+                if (states.get(i) && segments[i] == null) {
+                    states.set(i + 1);
+                }
+            }
+            return states;
+        }
+
+        boolean matches(BitSet states) {
+            return states.get(segments.length);
+        }
+
+        /**
+         * Whether a file below a directory in this state may match.
+         */
+        boolean canMatchBelow(BitSet states) {
+            int first = states.nextSetBit(0);
+            return first >= 0 && first < segments.length;
+        }
+
+        /**
+         * Whether all files below a directory in this state match, as when the pattern ends with {@code /**}.
+         */
+        boolean matchesAllBelow(BitSet states) {
+            int n = segments.length;
+            return n > 0 && segments[n - 1] == null && states.get(n - 1);
+        }
+    }
+
     private static class DescendantFileSelector implements FileSelector {
         private final Set<String> alreadyDeselected;
         private final FilePath baseDirFP;
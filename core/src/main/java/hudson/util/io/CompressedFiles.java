@@ -0,0 +1,78 @@
+package hudson.util.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Recognizes files which are already compressed, by their extension or their first bytes,
+ * so that archivers do not spend time trying to compress them again.
+ */
+@Restricted(NoExternalUse.class)
+public final class CompressedFiles {
+
+    /**
+     * Number of bytes needed by {@link #hasCompressedHeader}.
+     */
+    public static final int HEADER_LENGTH = 6;
+
+    private static final Set<String> EXTENSIONS = Set.of(
+            "zip", "jar", "war", "ear", "hpi", "jpi", "apk", "aar", "whl", "nupkg", "docx", "xlsx",
+            "gz", "tgz", "bz2", "tbz2", "xz", "txz", "zst", "lz4", "7z", "rar",
+            "png", "jpg", "jpeg", "gif", "webp", "mp3", "mp4", "mkv", "mov", "woff", "woff2");
+
+    private static final byte[][] MAGIC = {
+        {0x1f, (byte) 0x8b}, // gzip
+        {0x50, 0x4b, 0x03, 0x04}, // zip
+        {0x42, 0x5a, 0x68}, // bzip2
+        {(byte) 0xfd, 0x37, 0x7a, 0x58, 0x5a, 0x00}, // xz
+        {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd}, // zstd
+        {0x37, 0x7a, (byte) 0xbc, (byte) 0xaf, 0x27, 0x1c}, // 7z
+        {(byte) 0x89, 0x50, 0x4e, 0x47}, // png
+        {(byte) 0xff, (byte) 0xd8, (byte) 0xff}, // jpeg
+    };
+
+    private CompressedFiles() {}
+
+    /**
+     * Checks whether a file name has the extension of a compressed format.
+     */
+    public static boolean hasCompressedExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Checks whether the first bytes of a file are the signature of a compressed format.
+     * @param length the number of bytes read, which may be less than {@link #HEADER_LENGTH} for short files
+     */
+    public static boolean hasCompressedHeader(byte[] head, int length) {
+        for (byte[] magic : MAGIC) {
+            if (length >= magic.length && Arrays.equals(head, 0, magic.length, magic, 0, magic.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a local file is compressed, by its name and then by its first bytes.
+     */
+    public static boolean isCompressed(Path file) throws IOException {
+        if (hasCompressedExtension(file.getFileName().toString())) {
+            return true;
+        }
+        byte[] head = new byte[HEADER_LENGTH];
+        int n;
+        try (InputStream in = Files.newInputStream(file)) {
+            n = in.readNBytes(head, 0, head.length);
+        }
+        return hasCompressedHeader(head, n);
+    }
+}
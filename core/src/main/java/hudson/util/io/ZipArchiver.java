@@ -26,33 +26,88 @@ package hudson.util.io;
 
 import hudson.FilePath;
 import hudson.Util;
+import hudson.util.ClassLoaderSanityThreadFactory;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.FileVisitor;
 import hudson.util.IOUtils;
+import hudson.util.NamingThreadFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.OpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import jenkins.util.SystemProperties;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.lang.StringUtils;
-import org.apache.tools.zip.Zip64Mode;
-import org.apache.tools.zip.ZipEntry;
-import org.apache.tools.zip.ZipOutputStream;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * {@link FileVisitor} that creates a zip archive.
  *
+ * <p>
+ * Files which are already compressed, see {@link CompressedFiles}, are stored as they are.
+ * Small files are read and compressed ahead by up to {@code hudson.util.io.ZipArchiver.parallelism} threads,
+ * shared by all archives being created, while earlier entries are being written,
+ * so the archive is streamed in order as soon as its first entries are ready.
+ * The memory held by entries read ahead, in all archives, is limited by {@code hudson.util.io.ZipArchiver.readAheadSize};
+ * when it is all in use, entries are read and written one after the other by the thread creating the archive.
+ * Large files which are not compressed yet are compressed while being written.
+ *
  * @see ArchiverFactory#ZIP
  */
 final class ZipArchiver extends Archiver {
+
+    private static final int PARALLELISM = SystemProperties.getInteger(ZipArchiver.class.getName() + ".parallelism",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Files up to this size are read and compressed in memory.
+     */
+    static final int MAX_BUFFERED_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Limits the memory used by entries read ahead, in bytes.
+     */
+    static final Semaphore READ_AHEAD = new Semaphore(Math.max(MAX_BUFFERED_SIZE,
+            SystemProperties.getInteger(ZipArchiver.class.getName() + ".readAheadSize", 64 * 1024 * 1024)));
+
+    private static final int MAX_PENDING_ENTRIES = 1024;
+
+    /**
+     * Created lazily, and shared by all archives so that the number of threads does not grow with them.
+     */
+    private static ExecutorService executor;
+
     private final byte[] buf = new byte[8192];
-    private final ZipOutputStream zip;
+    private final ZipArchiveOutputStream zip;
     private final OpenOption[] openOptions;
     private final String prefix;
+    private final Deque<Pending> pending = new ArrayDeque<>();
 
     ZipArchiver(OutputStream out) {
         this(out, "");
@@ -68,11 +123,21 @@ final class ZipArchiver extends Archiver {
             this.prefix = Util.ensureEndsWith(prefix, "/");
         }
 
-        zip = new ZipOutputStream(out);
+        zip = new ZipArchiveOutputStream(out);
         zip.setEncoding(System.getProperty("file.encoding"));
         zip.setUseZip64(Zip64Mode.AsNeeded);
     }
 
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+                    new NamingThreadFactory(new ClassLoaderSanityThreadFactory(new DaemonThreadFactory()), "ZipArchiver"));
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
     @Override
     public void visit(final File f, final String _relativePath) throws IOException {
         int mode = IOUtils.mode(f);
@@ -84,34 +149,263 @@ final class ZipArchiver extends Archiver {
 
         BasicFileAttributes basicFileAttributes = Files.readAttributes(Util.fileToPath(f), BasicFileAttributes.class);
         if (basicFileAttributes.isDirectory()) {
-            ZipEntry dirZipEntry = new ZipEntry(this.prefix + relativePath + '/');
+            ZipArchiveEntry dirZipEntry = new ZipArchiveEntry(this.prefix + relativePath + '/');
             // Setting this bit explicitly is needed by some unzipping applications (see JENKINS-3294).
             dirZipEntry.setExternalAttributes(BITMASK_IS_DIRECTORY);
             if (mode != -1)   dirZipEntry.setUnixMode(mode);
             dirZipEntry.setTime(basicFileAttributes.lastModifiedTime().toMillis());
-            zip.putNextEntry(dirZipEntry);
-            zip.closeEntry();
+            add(new Pending(dirZipEntry, f, null, 0));
         } else {
-            ZipEntry fileZipEntry = new ZipEntry(this.prefix + relativePath);
+            ZipArchiveEntry fileZipEntry = new ZipArchiveEntry(this.prefix + relativePath);
             if (mode != -1)   fileZipEntry.setUnixMode(mode);
             fileZipEntry.setTime(basicFileAttributes.lastModifiedTime().toMillis());
             fileZipEntry.setSize(basicFileAttributes.size());
-            zip.putNextEntry(fileZipEntry);
-            try (InputStream in = FilePath.openInputStream(f, openOptions)) {
+            int size = (int) Math.min(basicFileAttributes.size(), MAX_BUFFERED_SIZE + 1);
+            if (size > MAX_BUFFERED_SIZE) {
+                add(new Pending(fileZipEntry, f, PARALLELISM > 1 ? executor().submit(() -> checksumIfCompressed(f)) : run(() -> checksumIfCompressed(f)), 0));
+            } else if (PARALLELISM > 1 && READ_AHEAD.tryAcquire(size)) {
+                add(new Pending(fileZipEntry, f, executor().submit(() -> compress(f)), size));
+            } else {
+                // nothing may be read ahead, so write what is pending, then this entry, before reading further
+                while (!pending.isEmpty()) {
+                    writeNext();
+                }
+                add(new Pending(fileZipEntry, f, run(() -> compress(f)), 0));
+            }
+        }
+        entriesWritten++;
+    }
+
+    private static Future<Contents> run(Callable<Contents> task) {
+        FutureTask<Contents> t = new FutureTask<>(task);
+        t.run();
+        return t;
+    }
+
+    /**
+     * Queues an entry, then writes those which are ready, waiting only when too much has been read ahead.
+     */
+    private void add(Pending p) throws IOException {
+        pending.add(p);
+        while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > MAX_PENDING_ENTRIES)) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        Pending p = pending.remove();
+        try {
+            write(p);
+        } finally {
+            p.release();
+        }
+    }
+
+    private void write(Pending p) throws IOException {
+        ZipArchiveEntry entry = p.entry;
+        if (p.contents == null) {
+            zip.putArchiveEntry(entry);
+            zip.closeArchiveEntry();
+            return;
+        }
+        Contents c;
+        try {
+            c = p.contents.get();
+        } catch (ExecutionException x) {
+            Throwable cause = x.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException().initCause(x);
+        }
+        if (c == null) {
+            zip.putArchiveEntry(entry);
+            try (InputStream in = open(p.file)) {
                 int len;
                 while ((len = in.read(buf)) >= 0)
                     zip.write(buf, 0, len);
-            } catch (InvalidPathException e) {
-                throw new IOException(e);
             }
-            zip.closeEntry();
+            zip.closeArchiveEntry();
+            return;
+        }
+        entry.setMethod(c.method);
+        entry.setCrc(c.crc);
+        entry.setSize(c.size);
+        if (c.data != null) {
+            entry.setCompressedSize(c.data.length);
+            zip.addRawArchiveEntry(entry, new ByteArrayInputStream(c.data));
+        } else {
+            entry.setCompressedSize(c.size);
+            try (InputStream in = new VerifyingInputStream(open(p.file), c.size, c.crc, p.file)) {
+                zip.addRawArchiveEntry(entry, in);
+            }
+        }
+    }
+
+    private InputStream open(File f) throws IOException {
+        try {
+            return FilePath.openInputStream(f, openOptions);
+        } catch (InvalidPathException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Reads a small file, and compresses it unless it is already compressed.
+     */
+    private Contents compress(File f) throws IOException {
+        byte[] data;
+        try (InputStream in = open(f)) {
+            data = in.readAllBytes();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (!CompressedFiles.hasCompressedExtension(f.getName()) && !CompressedFiles.hasCompressedHeader(data, data.length)) {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                deflater.setInput(data);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+                byte[] b = new byte[8192];
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(b);
+                    out.write(b, 0, n);
+                }
+                if (out.size() < data.length) {
+                    return new Contents(ZipEntry.DEFLATED, crc.getValue(), data.length, out.toByteArray());
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        return new Contents(ZipEntry.STORED, crc.getValue(), data.length, data);
+    }
+
+    /**
+     * Computes the checksum of a large file which is already compressed, so that it can be stored,
+     * or returns null for a file to be compressed while it is written.
+     */
+    private Contents checksumIfCompressed(File f) throws IOException {
+        try (InputStream in = open(f)) {
+            byte[] b = new byte[65536];
+            int n = in.readNBytes(b, 0, CompressedFiles.HEADER_LENGTH);
+            if (!CompressedFiles.hasCompressedExtension(f.getName()) && !CompressedFiles.hasCompressedHeader(b, n)) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            long size = 0;
+            while (n > 0) {
+                crc.update(b, 0, n);
+                size += n;
+                n = in.read(b);
+            }
+            return new Contents(ZipEntry.STORED, crc.getValue(), size, null);
         }
-        entriesWritten++;
     }
 
     @Override
     public void close() throws IOException {
-        zip.close();
+        try (ZipArchiveOutputStream z = zip) {
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+        } finally {
+            // after a failure
+            for (Pending p : pending) {
+                if (p.contents != null) {
+                    p.contents.cancel(true);
+                }
+                p.release();
+            }
+            pending.clear();
+        }
+    }
+
+    private static final class Pending {
+        final ZipArchiveEntry entry;
+        final File file;
+        /**
+         * Null for a directory.
+         */
+        final Future<Contents> contents;
+        /**
+         * Read-ahead budget held while the entry is pending.
+         */
+        final int size;
+
+        Pending(ZipArchiveEntry entry, File file, Future<Contents> contents, int size) {
+            this.entry = entry;
+            this.file = file;
+            this.contents = contents;
+            this.size = size;
+        }
+
+        boolean isDone() {
+            return contents == null || contents.isDone();
+        }
+
+        void release() {
+            READ_AHEAD.release(size);
+        }
+    }
+
+    private static final class Contents {
+        final int method;
+        final long crc;
+        final long size;
+        /**
+         * The data as written in the archive, or null to copy the file itself.
+         */
+        final byte[] data;
+
+        Contents(int method, long crc, long size, byte[] data) {
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Reads exactly as many bytes as were checksummed, and fails if the file changed in the meantime,
+     * since the size and checksum are already in the entry header.
+     */
+    private static final class VerifyingInputStream extends FilterInputStream {
+        private final long size;
+        private final long expectedCrc;
+        private final File file;
+        private final CRC32 crc = new CRC32();
+        private long read;
+
+        VerifyingInputStream(InputStream in, long size, long expectedCrc, File file) {
+            super(in);
+            this.size = size;
+            this.expectedCrc = expectedCrc;
+            this.file = file;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (read == size) {
+                if (crc.getValue() != expectedCrc) {
+                    throw new IOException(file + " was modified while being archived");
+                }
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, size - read));
+            if (n == -1) {
+                throw new EOFException(file + " was truncated while being archived");
+            }
+            crc.update(b, off, n);
+            read += n;
+            return n;
+        }
     }
 
     // Bitmask indicating directories in 'external attributes' of a ZIP archive entry.
@@ -0,0 +1,206 @@
+package jenkins.model;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.FilePath;
+import hudson.Functions;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.util.io.CompressedFiles;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.util.SystemProperties;
+
+/**
+ * Transfers files to archive from a workspace, in several tar streams at once.
+ *
+ * <p>
+ * This is off unless {@code jenkins.model.ArtifactTransfer.streams} is set above 1,
+ * in which case files are first listed on the agent and then
+ * files which are already compressed, recognized by their extension or their first bytes, are sent uncompressed,
+ * and the others are compressed with the requested {@link FilePath.TarCompression}, or at the fastest gzip level
+ * unless {@code jenkins.model.ArtifactTransfer.fastCompression} is set to false.
+ * Each kind is split into up to {@code jenkins.model.ArtifactTransfer.streams} streams of similar sizes,
+ * each stream getting at least {@code jenkins.model.ArtifactTransfer.minStreamSize} bytes,
+ * so that compression uses several cores and the transfer is not limited by the window of a single pipe.
+ */
+final class ArtifactTransfer {
+
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    static /* non-final for script console */ int STREAMS = SystemProperties.getInteger(ArtifactTransfer.class.getName() + ".streams", 1);
+
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    static /* non-final for script console */ long MIN_STREAM_SIZE = SystemProperties.getLong(ArtifactTransfer.class.getName() + ".minStreamSize", 16L * 1024 * 1024);
+
+    private static final boolean FAST_COMPRESSION = SystemProperties.getBoolean(ArtifactTransfer.class.getName() + ".fastCompression", true);
+
+    private ArtifactTransfer() {}
+
+    /**
+     * Copies files of a workspace, as a single stream unless several streams were enabled,
+     * in which case the throughput is printed to the listener.
+     * @param artifacts a map from paths in {@code target} to paths in {@code workspace}, as for {@link FilePath.ExplicitlySpecifiedDirScanner}
+     * @return the number of files copied
+     */
+    static int copy(FilePath workspace, Map<String, String> artifacts, FilePath target, FilePath.TarCompression compression, TaskListener listener)
+            throws IOException, InterruptedException {
+        if (STREAMS <= 1) {
+            return workspace.copyRecursiveTo(new FilePath.ExplicitlySpecifiedDirScanner(artifacts), target,
+                    "transfer of " + artifacts.size() + " files", compression);
+        }
+        long start = System.nanoTime();
+        Map<String, Stat> stats = workspace.act(new StatFiles(new HashMap<>(artifacts)));
+        long total = 0;
+        Map<String, String> compressible = new LinkedHashMap<>();
+        Map<String, String> compressed = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : artifacts.entrySet()) {
+            Stat s = stats.get(e.getKey());
+            if (s != null) {
+                total += s.size;
+            }
+            boolean skip = compression != FilePath.TarCompression.NONE && s != null && s.compressed;
+            (skip ? compressed : compressible).put(e.getKey(), e.getValue());
+        }
+        FilePath.TarCompression c = compression == FilePath.TarCompression.GZIP && FAST_COMPRESSION ? FilePath.TarCompression.GZIP_FAST : compression;
+        List<Batch> batches = new ArrayList<>();
+        split(compressible, stats, c, batches);
+        split(compressed, stats, FilePath.TarCompression.NONE, batches);
+
+        int count = 0;
+        if (batches.size() == 1) {
+            count = batches.get(0).copy(workspace, target);
+        } else if (!batches.isEmpty()) {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (Batch b : batches.subList(1, batches.size())) {
+                futures.add(Computer.threadPoolForRemoting.submit(() -> b.copy(workspace, target)));
+            }
+            try {
+                count = batches.get(0).copy(workspace, target);
+                for (Future<Integer> f : futures) {
+                    try {
+                        count += f.get();
+                    } catch (ExecutionException x) {
+                        throw x.getCause() instanceof IOException ? (IOException) x.getCause() : new IOException(x.getCause());
+                    }
+                }
+            } finally {
+                // no-op for those already done; otherwise do not leave streams writing into the target after a failure
+                futures.forEach(f -> f.cancel(true));
+            }
+        }
+        long elapsed = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        listener.getLogger().println(Messages.ArtifactTransfer_Throughput(artifacts.size(), Functions.humanReadableByteSize(total),
+                String.format(Locale.ROOT, "%.1f", elapsed / 1000.0), Functions.humanReadableByteSize(total * 1000 / elapsed), batches.size()));
+        return count;
+    }
+
+    /**
+     * Splits files into batches of similar sizes, the largest files first, each going to the smallest batch.
+     */
+    static void split(Map<String, String> files, Map<String, Stat> stats, FilePath.TarCompression compression, List<Batch> batches) {
+        if (files.isEmpty()) {
+            return;
+        }
+        long total = 0;
+        for (String path : files.keySet()) {
+            total += size(stats, path);
+        }
+        int n = (int) Math.max(1, Math.min(Math.min(STREAMS, files.size()), total / Math.max(1, MIN_STREAM_SIZE)));
+        Batch[] split = new Batch[n];
+        for (int i = 0; i < n; i++) {
+            split[i] = new Batch(compression);
+        }
+        List<Map.Entry<String, String>> entries = new ArrayList<>(files.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, String> e) -> size(stats, e.getKey())).reversed());
+        for (Map.Entry<String, String> e : entries) {
+            Batch smallest = split[0];
+            for (Batch b : split) {
+                if (b.size < smallest.size) {
+                    smallest = b;
+                }
+            }
+            smallest.files.put(e.getKey(), e.getValue());
+            smallest.size += size(stats, e.getKey());
+        }
+        batches.addAll(Arrays.asList(split));
+    }
+
+    private static long size(Map<String, Stat> stats, String path) {
+        Stat s = stats.get(path);
+        return s == null ? 0 : s.size;
+    }
+
+    static final class Batch {
+        final FilePath.TarCompression compression;
+        final Map<String, String> files = new LinkedHashMap<>();
+        long size;
+
+        Batch(FilePath.TarCompression compression) {
+            this.compression = compression;
+        }
+
+        int copy(FilePath workspace, FilePath target) throws IOException, InterruptedException {
+            return workspace.copyRecursiveTo(new FilePath.ExplicitlySpecifiedDirScanner(files), target,
+                    "transfer of " + files.size() + " files", compression);
+        }
+    }
+
+    static final class Stat implements Serializable {
+        private static final long serialVersionUID = 1;
+
+        final long size;
+        final boolean compressed;
+
+        Stat(long size, boolean compressed) {
+            this.size = size;
+            this.compressed = compressed;
+        }
+    }
+
+    /**
+     * Gets the size of the regular files, and whether they are already compressed.
+     */
+    private static final class StatFiles extends MasterToSlaveFileCallable<Map<String, Stat>> {
+        private static final long serialVersionUID = 1;
+
+        private final Map<String, String> files;
+
+        StatFiles(Map<String, String> files) {
+            this.files = files;
+        }
+
+        @Override
+        public Map<String, Stat> invoke(File dir, VirtualChannel channel) {
+            Map<String, Stat> stats = new HashMap<>();
+            for (Map.Entry<String, String> e : files.entrySet()) {
+                Path file = new File(dir, e.getValue()).toPath();
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isRegularFile()) {
+                        stats.put(e.getKey(), new Stat(attrs.size(), CompressedFiles.isCompressed(file)));
+                    }
+                } catch (IOException x) {
+                    // reported by the transfer
+                }
+            }
+            return stats;
+        }
+    }
+}
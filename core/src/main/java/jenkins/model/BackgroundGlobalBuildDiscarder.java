@@ -24,19 +24,37 @@
 
 package jenkins.model;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.Extension;
 import hudson.model.AsyncPeriodicWork;
 import hudson.model.Job;
 import hudson.model.TaskListener;
+import hudson.util.TextFile;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Background task actually running background build discarders.
  *
+ * <p>
+ * Jobs are processed in the order of their full names.
+ * Deletions of builds and of their artifacts by {@link hudson.tasks.LogRotator} during a pass are limited to
+ * {@code jenkins.model.BackgroundGlobalBuildDiscarder.maxDeletionsPerMinute}, if set, so that discarding a large backlog
+ * does not compete for disk bandwidth with running builds.
+ * When that many deletions were made within a minute, by this pass or by others, the pass stops, and the next one, started once the minute is over,
+ * resumes with the job which was being processed. The job to resume from is saved, so that this also holds after a restart.
+ *
  * @see GlobalBuildDiscarderConfiguration
  * @see GlobalBuildDiscarderStrategy
  */
@@ -45,14 +63,128 @@ import org.kohsuke.accmod.restrictions.NoExternalUse;
 public class BackgroundGlobalBuildDiscarder extends AsyncPeriodicWork {
     private static final Logger LOGGER = Logger.getLogger(BackgroundGlobalBuildDiscarder.class.getName());
 
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    static /* non-final for script console */ int MAX_DELETIONS_PER_MINUTE = SystemProperties.getInteger(BackgroundGlobalBuildDiscarder.class.getName() + ".maxDeletionsPerMinute", 0);
+
+    /**
+     * Shared by all passes, so that a pass started within the same minute as another does not get a new allowance.
+     */
+    static final DeletionBudget BUDGET = new DeletionBudget();
+
+    /**
+     * Set while a pass runs, to whether it used up the budget.
+     */
+    private static final ThreadLocal<boolean[]> EXHAUSTED = new ThreadLocal<>();
+
     public BackgroundGlobalBuildDiscarder() {
         super("Periodic background build discarder"); // TODO i18n
     }
 
     @Override
     protected void execute(TaskListener listener) throws IOException, InterruptedException {
-        for (Job job : Jenkins.get().allItems(Job.class)) {
-            processJob(listener, job);
+        List<Job> jobs = new ArrayList<>();
+        Jenkins.get().allItems(Job.class).forEach(jobs::add);
+        jobs.sort(Comparator.comparing(Job::getFullName));
+        String start = getCursor();
+        if (start != null) {
+            listener.getLogger().println(start.isEmpty() ? "Resuming" : "Resuming after " + start);
+        }
+        boolean[] exhausted = new boolean[1];
+        EXHAUSTED.set(exhausted);
+        try {
+            String last = start;
+            for (Job job : jobs) {
+                if (start != null && job.getFullName().compareTo(start) <= 0) {
+                    continue;
+                }
+                processJob(listener, job);
+                if (exhausted[0]) {
+                    // the job may have builds left to delete, so process it again
+                    listener.getLogger().println("Deleted " + MAX_DELETIONS_PER_MINUTE + " builds or artifacts within a minute, stopping before " + job.getFullName());
+                    setCursor(last == null ? "" : last);
+                    // not right away, since this pass is still running
+                    Timer.get().schedule(this::doRun, Math.max(BUDGET.remainingNanos(), TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+                    return;
+                }
+                if (Thread.interrupted()) {
+                    setCursor(job.getFullName());
+                    throw new InterruptedException();
+                }
+                last = job.getFullName();
+            }
+            setCursor(null);
+        } finally {
+            EXHAUSTED.remove();
+        }
+    }
+
+    private TextFile getCursorFile() {
+        return new TextFile(new File(Jenkins.get().getRootDir(), getClass().getName() + ".cursor"));
+    }
+
+    /**
+     * Full name of the last job processed by a pass which did not complete, empty if it stopped at the first job, or null.
+     */
+    @CheckForNull
+    String getCursor() throws IOException {
+        TextFile file = getCursorFile();
+        return file.exists() ? file.readTrim() : null;
+    }
+
+    private void setCursor(@CheckForNull String cursor) throws IOException {
+        TextFile file = getCursorFile();
+        if (cursor == null) {
+            file.delete();
+        } else {
+            file.write(cursor);
+        }
+    }
+
+    /**
+     * Checks whether another build or its artifacts may be deleted, when called from a pass of this task.
+     * Once it returns false, it does so until the end of the pass, which stops after the job being processed.
+     */
+    public static boolean tryDeletion() {
+        boolean[] exhausted = EXHAUSTED.get();
+        if (exhausted == null) {
+            return true;
+        }
+        if (!exhausted[0] && !BUDGET.tryAcquire(MAX_DELETIONS_PER_MINUTE)) {
+            exhausted[0] = true;
+        }
+        return !exhausted[0];
+    }
+
+    static final class DeletionBudget {
+        private long windowStart = System.nanoTime();
+        private int used;
+
+        synchronized boolean tryAcquire(int perMinute) {
+            if (perMinute <= 0) {
+                return true;
+            }
+            long now = System.nanoTime();
+            if (now - windowStart >= TimeUnit.MINUTES.toNanos(1)) {
+                windowStart = now;
+                used = 0;
+            }
+            if (used >= perMinute) {
+                return false;
+            }
+            used++;
+            return true;
+        }
+
+        synchronized long remainingNanos() {
+            return Math.max(0, windowStart + TimeUnit.MINUTES.toNanos(1) - System.nanoTime());
+        }
+
+        /**
+         * Starts a new minute, for tests.
+         */
+        synchronized void reset() {
+            windowStart = System.nanoTime();
+            used = 0;
         }
     }
 
@@ -0,0 +1,357 @@
+package jenkins.model;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.BuildListener;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.remoting.VirtualChannel;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Artifact manager which keeps a single copy of each distinct file content, shared by all the builds archiving it.
+ *
+ * <p>
+ * Contents are stored by SHA-256 hash in {@code $JENKINS_HOME/artifactBlobs/} and hard-linked into the usual
+ * {@code archive} directory of the build, so that artifacts are browsed, served and deleted as with {@link StandardArtifactManager}.
+ * Before anything is transferred, the agent hashes the files to archive, and only the contents not stored yet are sent over the channel.
+ *
+ * <p>
+ * The number of links of a blob counts the builds referencing it: blobs no longer linked from any build,
+ * for example after a {@link hudson.tasks.BuildDiscarder} deleted them, are removed shortly after by {@link Collector}.
+ * Blobs are read-only, since modifying an archived file in place would modify it in every build sharing it,
+ * and their modification time is the one of the first build archiving them.
+ *
+ * <p>
+ * Symbolic links are archived as by {@link StandardArtifactManager}, as well as all the files when the file system does not count links.
+ * Files are copied from the blobs rather than linked when the builds are on another file system than {@code $JENKINS_HOME}.
+ *
+ * @see DeduplicatingArtifactManagerFactory
+ * @since TODO
+ */
+public class DeduplicatingArtifactManager extends StandardArtifactManager {
+
+    private static final Logger LOGGER = Logger.getLogger(DeduplicatingArtifactManager.class.getName());
+
+    private static final String STAGING = "staging";
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    /**
+     * Held while blobs are stored and linked, and acquired exclusively to remove a blob,
+     * so that a blob found unreferenced is not removed while a build is linking it.
+     */
+    private static final ReadWriteLock LOCK = new ReentrantReadWriteLock();
+
+    public DeduplicatingArtifactManager(Run<?, ?> build) {
+        super(build);
+    }
+
+    @Override
+    public void archive(FilePath workspace, Launcher launcher, BuildListener listener, Map<String, String> artifacts) throws IOException, InterruptedException {
+        Path blobs = getBlobsDir();
+        if (!countsLinks(blobs)) {
+            super.archive(workspace, launcher, listener, artifacts);
+            return;
+        }
+        Map<String, String> hashes = workspace.act(new Hash(new HashMap<>(artifacts)));
+        checkHashes(hashes);
+        // archived path → workspace path, of the files to archive as usual
+        Map<String, String> others = new LinkedHashMap<>();
+        // hash → workspace path of a file with this content, for the contents to transfer
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : artifacts.entrySet()) {
+            String hash = hashes.get(e.getKey());
+            if (hash == null) {
+                others.put(e.getKey(), e.getValue());
+            } else if (!Files.exists(blob(blobs, hash))) {
+                missing.putIfAbsent(hash, e.getValue());
+            }
+        }
+        LOGGER.log(Level.FINE, "{0}: {1} files to archive, {2} new contents", new Object[] {build, artifacts.size(), missing.size()});
+
+        Files.createDirectories(blobs);
+        Path staging = Files.createTempDirectory(blobs, STAGING);
+        try {
+            if (!missing.isEmpty()) {
+                ArtifactTransfer.copy(workspace, missing, new FilePath(staging.toFile()), TAR_COMPRESSION, listener);
+            }
+            LOCK.readLock().lock();
+            try {
+                if (store(staging, blobs, missing.keySet())) {
+                    link(blobs, getArtifactsDir().toPath(), artifacts, hashes, others);
+                } else {
+                    others = artifacts;
+                }
+            } finally {
+                LOCK.readLock().unlock();
+            }
+        } finally {
+            Util.deleteRecursive(staging.toFile());
+        }
+        if (!others.isEmpty()) {
+            super.archive(workspace, launcher, listener, others);
+        }
+    }
+
+    /**
+     * Moves the transferred contents to the blobs, after checking that their hashes are the ones announced by the agent.
+     * @return false if a file was modified between the time it was hashed and transferred
+     */
+    private boolean store(Path staging, Path blobs, Iterable<String> hashes) throws IOException {
+        for (String hash : hashes) {
+            Path staged = staging.resolve(hash);
+            try {
+                if (!hash.equals(hash(staged))) {
+                    LOGGER.log(Level.FINE, "{0}: modified while archiving, archiving without deduplication", build);
+                    return false;
+                }
+            } catch (IOException x) {
+                LOGGER.log(Level.FINE, build + ": not transferred, archiving without deduplication", x);
+                return false;
+            }
+            Path blob = blob(blobs, hash);
+            if (Files.exists(blob)) {
+                // stored meanwhile by another build
+                continue;
+            }
+            Files.createDirectories(blob.getParent());
+            if (!staged.toFile().setReadOnly()) {
+                LOGGER.log(Level.FINE, "Cannot make {0} read-only", staged);
+            }
+            try {
+                Files.move(staged, blob);
+            } catch (FileAlreadyExistsException x) {
+                // same
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Links the blobs into the archive directory.
+     * Files whose blob was removed after the contents to transfer were determined are added to {@code others}.
+     */
+    private static void link(Path blobs, Path archive, Map<String, String> artifacts, Map<String, String> hashes, Map<String, String> others) throws IOException {
+        for (Map.Entry<String, String> e : artifacts.entrySet()) {
+            String hash = hashes.get(e.getKey());
+            if (hash == null) {
+                continue;
+            }
+            Path blob = blob(blobs, hash);
+            if (!Files.exists(blob)) {
+                others.put(e.getKey(), e.getValue());
+                continue;
+            }
+            Path target = resolve(archive, e.getKey());
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            try {
+                Files.createLink(target, blob);
+            } catch (IOException | UnsupportedOperationException x) {
+                // typically builds on another file system
+                LOGGER.log(Level.FINEST, "Cannot link " + target + ", copying it", x);
+                Files.copy(blob, target);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private File getArtifactsDir() {
+        return build.getArtifactsDir();
+    }
+
+    static Path getBlobsDir() {
+        return new File(Jenkins.get().getRootDir(), "artifactBlobs").toPath();
+    }
+
+    /**
+     * Checks the hashes sent by the agent, which must not be trusted to build paths on the controller.
+     */
+    static void checkHashes(Map<String, String> hashes) throws IOException {
+        for (Map.Entry<String, String> e : hashes.entrySet()) {
+            if (!HASH.matcher(e.getValue()).matches()) {
+                throw new IOException("Invalid hash for " + e.getKey() + ": " + e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Resolves an archived path in the archive directory, as {@link FilePath#untar} does.
+     */
+    static Path resolve(Path archive, String path) throws IOException {
+        Path target = archive.resolve(path).normalize();
+        if (Path.of(path).isAbsolute() || !target.startsWith(archive.normalize()) || target.equals(archive.normalize())) {
+            throw new IOException("Artifact path breaks out of the target directory: " + path);
+        }
+        return target;
+    }
+
+    private static Path blob(Path blobs, String hash) {
+        return blobs.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static boolean countsLinks(Path blobs) {
+        return blobs.getFileSystem().supportedFileAttributeViews().contains("unix");
+    }
+
+    private static int links(Path blob) throws IOException {
+        return (Integer) Files.getAttribute(blob, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+    }
+
+    static String hash(Path file) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not installed", e);    // impossible
+        }
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) >= 0) {
+                md.update(buf, 0, n);
+            }
+        }
+        return Util.toHexString(md.digest());
+    }
+
+    /**
+     * Removes the blobs no longer linked from any build, and the staging directories left over by an interrupted archiving.
+     * @return the number of blobs removed
+     */
+    static int collect(Path blobs) throws IOException {
+        if (!Files.isDirectory(blobs) || !countsLinks(blobs)) {
+            return 0;
+        }
+        int removed = 0;
+        long stale = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+        try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(blobs)) {
+            for (Path prefix : prefixes) {
+                if (prefix.getFileName().toString().startsWith(STAGING)) {
+                    if (Files.getLastModifiedTime(prefix).toMillis() < stale) {
+                        Util.deleteRecursive(prefix.toFile());
+                    }
+                    continue;
+                }
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(prefix)) {
+                    for (Path blob : stream) {
+                        if (links(blob) > 1) {
+                            continue;
+                        }
+                        LOCK.writeLock().lock();
+                        try {
+                            if (links(blob) <= 1) {
+                                Files.delete(blob);
+                                removed++;
+                            }
+                        } finally {
+                            LOCK.writeLock().unlock();
+                        }
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Hashes the files to archive, except symbolic links and missing files.
+     */
+    private static final class Hash extends MasterToSlaveFileCallable<Map<String, String>> {
+        private static final long serialVersionUID = 1;
+
+        private final Map<String, String> artifacts;
+
+        Hash(Map<String, String> artifacts) {
+            this.artifacts = artifacts;
+        }
+
+        @Override
+        public Map<String, String> invoke(File dir, VirtualChannel channel) throws IOException {
+            Map<String, String> hashes = new HashMap<>();
+            for (Map.Entry<String, String> e : artifacts.entrySet()) {
+                Path file = new File(dir, e.getValue()).toPath();
+                if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+                    hashes.put(e.getKey(), hash(file));
+                }
+            }
+            return hashes;
+        }
+    }
+
+    /**
+     * Removes unreferenced blobs every day, and shortly after builds are deleted.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class Collector extends AsyncPeriodicWork {
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        public Collector() {
+            super("Deduplicated artifacts clean-up");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return DAY;
+        }
+
+        @Override
+        protected void execute(TaskListener listener) throws IOException {
+            int removed = collect(getBlobsDir());
+            listener.getLogger().println("Removed " + removed + " unreferenced artifacts");
+        }
+
+        /**
+         * Runs once a minute later, however many builds are deleted meanwhile.
+         */
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                Timer.get().schedule(() -> {
+                    scheduled.set(false);
+                    run();
+                }, 1, TimeUnit.MINUTES);
+            }
+        }
+    }
+
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class DeletionListener extends RunListener<Run> {
+        @Override
+        public void onDeleted(Run run) {
+            if (Files.isDirectory(getBlobsDir())) {
+                ExtensionList.lookupSingleton(Collector.class).schedule();
+            }
+        }
+    }
+}
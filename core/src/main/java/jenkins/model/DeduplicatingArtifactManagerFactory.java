@@ -0,0 +1,33 @@
+package jenkins.model;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Run;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Creates {@link DeduplicatingArtifactManager}s, so that builds archiving the same files share a single copy of them.
+ * @since TODO
+ */
+public class DeduplicatingArtifactManagerFactory extends ArtifactManagerFactory {
+
+    @DataBoundConstructor
+    public DeduplicatingArtifactManagerFactory() {
+    }
+
+    @Override
+    public ArtifactManager managerFor(Run<?, ?> build) {
+        return new DeduplicatingArtifactManager(build);
+    }
+
+    @Extension
+    @Symbol("deduplicating")
+    public static final class DescriptorImpl extends ArtifactManagerFactoryDescriptor {
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.DeduplicatingArtifactManagerFactory_DisplayName();
+        }
+    }
+}
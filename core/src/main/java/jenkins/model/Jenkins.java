@@ -138,6 +138,7 @@ import hudson.model.View;
 import hudson.model.ViewGroupMixIn;
 import hudson.model.WorkspaceCleanupThread;
 import hudson.model.labels.LabelAtom;
+import hudson.model.labels.LabelBits;
 import hudson.model.listeners.ItemListener;
 import hudson.model.listeners.SCMListener;
 import hudson.model.listeners.SaveableListener;
@@ -163,6 +164,7 @@ import hudson.security.PermissionGroup;
 import hudson.security.PermissionScope;
 import hudson.security.SecurityMode;
 import hudson.security.SecurityRealm;
+import hudson.security.SidACL;
 import hudson.security.csrf.CrumbIssuer;
 import hudson.security.csrf.GlobalCrumbIssuerConfiguration;
 import hudson.slaves.Cloud;
@@ -2318,13 +2320,17 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
      * @param includedLabels the labels taken as reference to update labels. If {@code null}, all labels are considered.
      */
     private void trimLabels(@CheckForNull Set<LabelAtom> includedLabels) {
+        LabelBits.invalidate(labels.size());
         Set<Set<LabelAtom>> nodeLabels = new HashSet<>();
-        nodeLabels.add(this.getAssignedLabels());
-        this.getNodes().forEach(n -> nodeLabels.add(n.getAssignedLabels()));
+        List<LabelBits> nodeLabelBits = new ArrayList<>();
+        nodeLabelBits.add(this.getLabelBits());
+        this.getNodes().forEach(n -> nodeLabelBits.add(n.getLabelBits()));
+        nodeLabelBits.removeIf(bits -> !nodeLabels.add(new HashSet<>(bits.getAtoms())));
+        LabelBits included = includedLabels == null ? null : LabelBits.of(includedLabels);
         for (Iterator<Label> itr = labels.values().iterator(); itr.hasNext();) {
             Label l = itr.next();
-            if (includedLabels == null || includedLabels.contains(l) || l.matches(includedLabels)) {
-                if (nodeLabels.stream().anyMatch(l::matches) || !l.getClouds().isEmpty()) {
+            if (included == null || includedLabels.contains(l) || l.matches(included)) {
+                if (nodeLabelBits.stream().anyMatch(l::matches) || !l.getClouds().isEmpty()) {
                     // there is at least one static agent or one cloud that currently claims it can handle the label.
                     // if the cloud has been removed, or its labels updated such that it can not handle this, this is handle in later calls
                     // resetLabel will remove the agents, and clouds from the label, and they will be repopulated later.
@@ -2815,6 +2821,7 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
             a = AuthorizationStrategy.UNSECURED;
         useSecurity = true;
         authorizationStrategy = a;
+        SidACL.invalidateAllDecisions();
         saveQuietly();
     }
 
@@ -0,0 +1,352 @@
+package jenkins.model;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.Util;
+import hudson.init.Terminator;
+import hudson.model.Api;
+import hudson.model.Computer;
+import hudson.model.Label;
+import hudson.model.LoadHistory;
+import hudson.model.LoadStatistics;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.RootAction;
+import hudson.model.labels.LabelAtom;
+import hudson.model.queue.SubTask;
+import hudson.slaves.Cloud;
+import hudson.slaves.CloudProvisioningListener;
+import hudson.slaves.NodeProvisioner;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Keeps the {@link LoadHistory} of the whole system, of unlabeled executors, of each label atom and of each cloud,
+ * and serves them from {@code /loadHistory/}: for example {@code /loadHistory/label/linux/api/json}.
+ * Label expressions are not tracked, since every expression ever used by a job would get its own history.
+ *
+ * <p>
+ * The history of a cloud counts the executors of the agents it provisioned since Jenkins started,
+ * and the buildable items it could provision agents for.
+ * Whether a cloud can provision for a label is only asked again every {@link #CAN_PROVISION_REFRESH} milliseconds.
+ *
+ * <p>
+ * When the {@code jenkins.model.LoadHistoryAction.persist} system property is set,
+ * the histories are saved to {@code $JENKINS_HOME/loadHistory/} every hour and on shutdown, and restored on startup.
+ * The files of labels and clouds which no longer exist are deleted.
+ */
+@Extension
+@ExportedBean
+@Restricted(NoExternalUse.class)
+public class LoadHistoryAction implements RootAction {
+
+    private static final Logger LOGGER = Logger.getLogger(LoadHistoryAction.class.getName());
+
+    private static final boolean PERSIST = SystemProperties.getBoolean(LoadHistoryAction.class.getName() + ".persist");
+
+    private static final long CAN_PROVISION_REFRESH = SystemProperties.getLong(LoadHistoryAction.class.getName() + ".canProvisionRefresh", TimeUnit.MINUTES.toMillis(1));
+
+    private volatile LoadHistory overall;
+    private volatile LoadHistory unlabeled;
+    private final Map<String, LoadHistory> labels = new ConcurrentHashMap<>();
+    private final Map<String, LoadHistory> clouds = new ConcurrentHashMap<>();
+
+    /**
+     * Name of the cloud that provisioned each agent.
+     */
+    private final Map<String, String> nodeClouds = new ConcurrentHashMap<>();
+
+    /**
+     * Name of the cloud of agents being provisioned.
+     */
+    private final Map<NodeProvisioner.PlannedNode, String> plannedClouds = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Whether each cloud, as configured now, can provision for each label, as of {@link #canProvisionTime}.
+     * Only accessed by the thread recording the histories.
+     */
+    private final Map<Cloud, Map<Label, Boolean>> canProvision = new WeakHashMap<>();
+    private long canProvisionTime;
+
+    private long nextSave = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+
+    public static LoadHistoryAction get() {
+        return ExtensionList.lookupSingleton(LoadHistoryAction.class);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return "loadHistory";
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    @CheckForNull
+    public LoadHistory getOverall() {
+        return overall;
+    }
+
+    @CheckForNull
+    public LoadHistory getUnlabeled() {
+        return unlabeled;
+    }
+
+    @CheckForNull
+    public LoadHistory getLabel(String name) {
+        return labels.get(name);
+    }
+
+    @CheckForNull
+    public LoadHistory getCloud(String name) {
+        return clouds.get(name);
+    }
+
+    /**
+     * Names of the labels having a history.
+     */
+    @Exported
+    public Collection<String> getLabels() {
+        return new TreeSet<>(labels.keySet());
+    }
+
+    /**
+     * Names of the clouds having a history.
+     */
+    @Exported
+    public Collection<String> getClouds() {
+        return new TreeSet<>(clouds.keySet());
+    }
+
+    /**
+     * Called by {@link LoadStatistics.LoadStatisticsUpdater} with each snapshot of a label.
+     */
+    public void recordLabel(long time, @NonNull Label label, @NonNull LoadStatistics.LoadStatisticsSnapshot snapshot) {
+        if (!(label instanceof LabelAtom)) {
+            return;
+        }
+        labels.computeIfAbsent(label.getName(), name -> create("label/" + name)).record(time, snapshot);
+    }
+
+    /**
+     * Called by {@link LoadStatistics.LoadStatisticsUpdater} with the snapshots of the whole system,
+     * after the snapshots of the labels.
+     */
+    public void record(long time, @NonNull LoadStatistics.LoadStatisticsSnapshot overallSnapshot,
+                       @NonNull LoadStatistics.LoadStatisticsSnapshot unlabeledSnapshot, @NonNull List<Queue.BuildableItem> buildables) {
+        if (overall == null) {
+            overall = create("overall");
+        }
+        overall.record(time, overallSnapshot);
+        if (unlabeled == null) {
+            unlabeled = create("unlabeled");
+        }
+        unlabeled.record(time, unlabeledSnapshot);
+
+        Jenkins j = Jenkins.get();
+        Set<String> labelNames = new HashSet<>();
+        for (Label l : j.getLabels()) {
+            if (l instanceof LabelAtom) {
+                labelNames.add(l.getName());
+            }
+        }
+        prune(labels, labelNames, "label/");
+        recordClouds(time, j, buildables);
+
+        if (PERSIST && time >= nextSave) {
+            nextSave = time + TimeUnit.HOURS.toMillis(1);
+            save();
+        }
+    }
+
+    private void recordClouds(long time, Jenkins j, List<Queue.BuildableItem> buildables) {
+        nodeClouds.keySet().removeIf(name -> j.getNode(name) == null);
+        Map<String, int[]> executors = new HashMap<>();
+        for (Computer c : j.getComputers()) {
+            String cloud = nodeClouds.get(c.getName());
+            if (cloud != null && c.isOnline()) {
+                int[] counts = executors.computeIfAbsent(cloud, k -> new int[2]);
+                counts[0] += c.countBusy();
+                counts[1] += c.countIdle();
+            }
+        }
+        if (time - canProvisionTime >= CAN_PROVISION_REFRESH) {
+            canProvision.clear();
+            canProvisionTime = time;
+        }
+        Set<String> cloudNames = new HashSet<>();
+        for (Cloud cloud : j.clouds) {
+            cloudNames.add(cloud.name);
+            Map<Label, Boolean> canProvisionLabel = canProvision.computeIfAbsent(cloud, c -> new HashMap<>());
+            int queueLength = 0;
+            for (Queue.BuildableItem bi : buildables) {
+                for (SubTask st : bi.task.getSubTasks()) {
+                    if (canProvisionLabel.computeIfAbsent(bi.getAssignedLabelFor(st), l -> cloud.canProvision(new Cloud.CloudState(l, 0)))) {
+                        queueLength++;
+                    }
+                }
+            }
+            int[] counts = executors.getOrDefault(cloud.name, new int[2]);
+            clouds.computeIfAbsent(cloud.name, name -> create("cloud/" + name)).record(time, queueLength, counts[0], counts[1]);
+        }
+        prune(clouds, cloudNames, "cloud/");
+    }
+
+    /**
+     * Forgets the histories of labels or clouds which no longer exist, and deletes their files.
+     */
+    private static void prune(Map<String, LoadHistory> histories, Set<String> names, String prefix) {
+        for (String name : histories.keySet()) {
+            if (!names.contains(name) && histories.remove(name) != null && PERSIST) {
+                try {
+                    Files.deleteIfExists(getFile(prefix + name).toPath());
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to delete the load history of " + prefix + name, e);
+                }
+            }
+        }
+    }
+
+    private static LoadHistory create(String key) {
+        LoadHistory h = new LoadHistory(LoadStatistics.CLOCK);
+        if (PERSIST) {
+            try (InputStream in = Files.newInputStream(getFile(key).toPath());
+                 DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+                if (key.equals(data.readUTF())) {
+                    h.read(data);
+                }
+            } catch (NoSuchFileException e) {
+                // nothing recorded yet
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read the load history of " + key, e);
+            }
+        }
+        return h;
+    }
+
+    private static File getFile(String key) {
+        return new File(new File(Jenkins.get().getRootDir(), "loadHistory"), Util.getDigestOf(key) + ".dat");
+    }
+
+    private void save() {
+        List<Map.Entry<String, LoadHistory>> all = new ArrayList<>();
+        if (overall != null) {
+            all.add(Map.entry("overall", overall));
+        }
+        if (unlabeled != null) {
+            all.add(Map.entry("unlabeled", unlabeled));
+        }
+        labels.forEach((name, h) -> all.add(Map.entry("label/" + name, h)));
+        clouds.forEach((name, h) -> all.add(Map.entry("cloud/" + name, h)));
+        Set<String> fileNames = new HashSet<>();
+        for (Map.Entry<String, LoadHistory> e : all) {
+            File f = getFile(e.getKey());
+            fileNames.add(f.getName());
+            try {
+                Files.createDirectories(f.getParentFile().toPath());
+                Path tmp = Files.createTempFile(f.getParentFile().toPath(), f.getName(), ".tmp");
+                try {
+                    try (OutputStream out = Files.newOutputStream(tmp);
+                         DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+                        data.writeUTF(e.getKey());
+                        e.getValue().write(data);
+                    }
+                    Files.move(tmp, f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            } catch (IOException x) {
+                LOGGER.log(Level.WARNING, "Failed to save the load history of " + e.getKey(), x);
+            }
+        }
+        if (overall == null) {
+            // nothing recorded yet, so every file may still be needed
+            return;
+        }
+        // e.g. of labels removed while Jenkins was not running
+        File[] files = getFile("overall").getParentFile().listFiles((dir, name) -> name.endsWith(".dat") && !fileNames.contains(name));
+        if (files != null) {
+            for (File f : files) {
+                try {
+                    Files.deleteIfExists(f.toPath());
+                } catch (IOException x) {
+                    LOGGER.log(Level.WARNING, "Failed to delete " + f, x);
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the histories on shutdown.
+     */
+    @Terminator
+    public void saveOnShutdown() {
+        if (PERSIST) {
+            save();
+        }
+    }
+
+    /**
+     * Remembers which cloud provisioned each agent.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class CloudListener extends CloudProvisioningListener {
+        @Override
+        public void onStarted(Cloud cloud, Label label, Collection<NodeProvisioner.PlannedNode> plannedNodes) {
+            for (NodeProvisioner.PlannedNode p : plannedNodes) {
+                get().plannedClouds.put(p, cloud.name);
+            }
+        }
+
+        @Override
+        public void onCommit(@NonNull NodeProvisioner.PlannedNode plannedNode, @NonNull Node node) {
+            String cloud = get().plannedClouds.remove(plannedNode);
+            if (cloud != null) {
+                get().nodeClouds.put(node.getNodeName(), cloud);
+            }
+        }
+    }
+}
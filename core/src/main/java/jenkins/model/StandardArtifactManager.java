@@ -68,9 +68,7 @@ public class StandardArtifactManager extends ArtifactManager {
     }
 
     @Override public void archive(FilePath workspace, Launcher launcher, BuildListener listener, final Map<String, String> artifacts) throws IOException, InterruptedException {
-        File dir = getArtifactsDir();
-        String description = "transfer of " + artifacts.size() + " files"; // TODO improve when just one file
-        workspace.copyRecursiveTo(new FilePath.ExplicitlySpecifiedDirScanner(artifacts), new FilePath(dir), description, TAR_COMPRESSION);
+        ArtifactTransfer.copy(workspace, artifacts, new FilePath(getArtifactsDir()), TAR_COMPRESSION, listener);
     }
 
     @Override public final boolean delete() throws IOException, InterruptedException {
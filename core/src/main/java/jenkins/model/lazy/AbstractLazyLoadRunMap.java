@@ -40,6 +40,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -380,6 +381,24 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer, R>
         return Collections.unmodifiableSortedMap(new BuildReferenceMapAdapter<>(this, index.byNumber));
     }
 
+    /**
+     * Gets a build if it is currently in memory, without loading it otherwise.
+     */
+    @Restricted(NoExternalUse.class)
+    public @CheckForNull R getLoadedBuild(int n) {
+        BuildReference<R> ref = index.byNumber.get(n);
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * Gets the numbers of the builds on disk in ascending order, without loading them.
+     * Some of them may fail to load.
+     */
+    @Restricted(NoExternalUse.class)
+    public List<Integer> getNumbersOnDisk() {
+        return Collections.unmodifiableList(numberOnDisk);
+    }
+
     /**
      * @param fromKey
      *      Biggest build number to be in the returned set.
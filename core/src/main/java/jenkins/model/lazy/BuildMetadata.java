@@ -0,0 +1,181 @@
+package jenkins.model.lazy;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import jenkins.model.StandardArtifactManager;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * What build discarders need to know about a build, read from its {@code build.xml} without loading the build,
+ * or from the build itself if it is already in memory.
+ *
+ * <p>
+ * This only reflects the fields saved by {@link Run}: a build may be kept for other reasons, as computed by {@link Run#isKeepLog},
+ * so callers should load a build and check it before deleting it.
+ */
+@Restricted(NoExternalUse.class)
+public final class BuildMetadata {
+
+    private static final Logger LOGGER = Logger.getLogger(BuildMetadata.class.getName());
+
+    private static final XMLInputFactory XML;
+
+    static {
+        XML = XMLInputFactory.newInstance();
+        XML.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        XML.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XML.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    private final int number;
+    private final long timestamp;
+    private final Result result;
+    private final boolean keepLog;
+    private final boolean mayHaveArtifacts;
+
+    private BuildMetadata(int number, long timestamp, @CheckForNull Result result, boolean keepLog, boolean mayHaveArtifacts) {
+        this.number = number;
+        this.timestamp = timestamp;
+        this.result = result;
+        this.keepLog = keepLog;
+        this.mayHaveArtifacts = mayHaveArtifacts;
+    }
+
+    /**
+     * Gets the numbers of the builds of a job in ascending order, without loading them if the job supports lazy loading.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static List<Integer> getNumbers(Job<?, ?> job) {
+        if (job instanceof LazyBuildMixIn.LazyLoadingJob) {
+            return ((LazyBuildMixIn.LazyLoadingJob) job).getLazyBuildMixIn()._getRuns().getNumbersOnDisk();
+        }
+        List<Integer> numbers = new ArrayList<>(job.getBuildsAsMap().keySet());
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * Gets the metadata of a build.
+     * If its {@code build.xml} cannot be parsed or has no timestamp, the build is loaded.
+     * @return null if the build does not exist or cannot be loaded
+     */
+    @SuppressWarnings("rawtypes")
+    public static @CheckForNull BuildMetadata get(Job<?, ?> job, int number) {
+        Run<?, ?> loaded = job instanceof LazyBuildMixIn.LazyLoadingJob
+                ? ((LazyBuildMixIn.LazyLoadingJob) job).getLazyBuildMixIn()._getRuns().getLoadedBuild(number)
+                : job.getBuildByNumber(number);
+        File dir = loaded != null ? loaded.getRootDir() : new File(job.getBuildDir(), Integer.toString(number));
+        File xml = new File(dir, "build.xml");
+        long timestamp = 0;
+        Result result = null;
+        boolean keepLog = false;
+        String artifactManager = null;
+        boolean parsed = false;
+        try (InputStream in = Files.newInputStream(xml.toPath())) {
+            XMLStreamReader reader = XML.createXMLStreamReader(in);
+            try {
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                    } else if (event == XMLStreamConstants.START_ELEMENT && ++depth == 2) {
+                        // fields of the build; getElementText moves to the end of the element
+                        switch (reader.getLocalName()) {
+                            case "timestamp":
+                                timestamp = Long.parseLong(reader.getElementText().trim());
+                                depth--;
+                                break;
+                            case "result":
+                                result = Result.fromString(reader.getElementText().trim());
+                                depth--;
+                                break;
+                            case "keepLog":
+                                keepLog = Boolean.parseBoolean(reader.getElementText().trim());
+                                depth--;
+                                break;
+                            case "artifactManager":
+                                artifactManager = reader.getAttributeValue(null, "class");
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            parsed = true;
+        } catch (NoSuchFileException x) {
+            if (loaded == null) {
+                return null;
+            }
+        } catch (IOException | XMLStreamException | NumberFormatException x) {
+            LOGGER.log(Level.FINE, "Could not read " + xml + ", loading the build", x);
+        }
+        if (loaded == null && (!parsed || timestamp == 0)) {
+            loaded = job.getBuildByNumber(number);
+            if (loaded == null) {
+                return null;
+            }
+        }
+        boolean mayHaveArtifacts = !parsed || artifactManager != null && !artifactManager.equals(StandardArtifactManager.class.getName())
+                || new File(dir, "archive").exists();
+        if (loaded != null) {
+            // the build in memory may be more recent than what was saved
+            return new BuildMetadata(number, loaded.getTimeInMillis(), loaded.isBuilding() ? null : loaded.getResult(),
+                    loaded.isKeepLog(), mayHaveArtifacts);
+        }
+        return new BuildMetadata(number, timestamp, result, keepLog, mayHaveArtifacts);
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * @see Run#getTimeInMillis
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * The result, or null if the build is still running or its result was not saved.
+     */
+    public @CheckForNull Result getResult() {
+        return result;
+    }
+
+    /**
+     * Whether the build was marked to be kept forever.
+     * For a build in memory, whether it is to be kept for any reason, as {@link Run#isKeepLog}.
+     */
+    public boolean isKeepLog() {
+        return keepLog;
+    }
+
+    /**
+     * Whether the build may have artifacts, false only if it uses {@link StandardArtifactManager} and has no artifacts directory.
+     */
+    public boolean mayHaveArtifacts() {
+        return mayHaveArtifacts;
+    }
+}
@@ -26,17 +26,30 @@ package jenkins.security;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.Extension;
 import hudson.ExtensionList;
+import hudson.security.ACL;
 import hudson.security.UserMayOrMayNotExistException2;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import jenkins.model.Jenkins;
+import jenkins.util.ErrorLoggingExecutorService;
 import jenkins.util.SystemProperties;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
@@ -45,26 +58,82 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 /**
  * Cache layer for {@link UserDetails} lookup.
+ *
+ * <p>Successful lookups and "user does not exist" answers are kept in separate caches,
+ * each with its own expiration, so that repeated lookups of unknown names (scanners, bad tokens)
+ * do not reach the {@link hudson.security.SecurityRealm}.
+ * Entries that are still in use can optionally be reloaded in the background before they expire,
+ * so that requests of active users never wait for a slow realm.
+ *
+ * @see UserDetailsCacheConfiguration
  */
 @Restricted(NoExternalUse.class)
 @Extension
 public final class UserDetailsCache {
 
+    private static final Logger LOGGER = Logger.getLogger(UserDetailsCache.class.getName());
+
     private static final String SYS_PROP_NAME = UserDetailsCache.class.getName() + ".EXPIRE_AFTER_WRITE_SEC";
     /**
      * Nr of seconds before a value expires after being cached, note full GC will also clear the cache.
      * Should be able to set this value in script and then reload from disk to change in runtime.
+     * Overridden by {@link UserDetailsCacheConfiguration#getExpireAfterWriteSec()} when that is set.
      */
     private static /*not final*/ Integer EXPIRE_AFTER_WRITE_SEC = SystemProperties.getInteger(SYS_PROP_NAME, (int) TimeUnit.MINUTES.toSeconds(2));
-    private final Cache<String, UserDetails> detailsCache;
-    private final Cache<String, Boolean> existenceCache;
+    /**
+     * Number of independently locked segments of the caches.
+     */
+    private static /*not final*/ int CONCURRENCY_LEVEL = SystemProperties.getInteger(UserDetailsCache.class.getName() + ".CONCURRENCY_LEVEL", 16);
+    /**
+     * Maximum number of background refreshes running in parallel.
+     */
+    private static /*not final*/ int REFRESH_THREADS = SystemProperties.getInteger(UserDetailsCache.class.getName() + ".REFRESH_THREADS", 2);
+    /**
+     * Maximum number of pending background refreshes; further refreshes are skipped until the queue drains.
+     */
+    private static /*not final*/ int REFRESH_QUEUE_SIZE = SystemProperties.getInteger(UserDetailsCache.class.getName() + ".REFRESH_QUEUE_SIZE", 100);
+
+    private volatile Cache<String, Entry> detailsCache;
+    private volatile Cache<String, Boolean> existenceCache;
+    private volatile long refreshAfterNanos;
+
+    private final ExecutorService refreshExecutor = createRefreshExecutor();
+
+    private final AtomicLong negativeHitCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    private final AtomicLong refreshSkippedCount = new AtomicLong();
+    private final AtomicLong totalRefreshTimeNanos = new AtomicLong();
 
     /**
      * Constructor intended to be instantiated by Jenkins only.
      */
     @Restricted(NoExternalUse.class)
-    @SuppressFBWarnings(value = "ST_WRITE_TO_STATIC_FROM_INSTANCE_METHOD", justification = "field is static for script console")
     public UserDetailsCache() {
+        reconfigure();
+    }
+
+    /**
+     * The singleton instance registered in Jenkins.
+     * @return the cache
+     */
+    public static UserDetailsCache get() {
+        return ExtensionList.lookupSingleton(UserDetailsCache.class);
+    }
+
+    private static ExecutorService createRefreshExecutor() {
+        int threads = Math.max(1, REFRESH_THREADS);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 5L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, REFRESH_QUEUE_SIZE)),
+                new ExceptionCatchingThreadFactory(new NamingThreadFactory(new DaemonThreadFactory(), "UserDetailsCache refresh")));
+        executor.allowCoreThreadTimeOut(true);
+        return new ImpersonatingExecutorService(new ErrorLoggingExecutorService(executor), ACL.SYSTEM2);
+    }
+
+    /**
+     * The expiration used when {@link UserDetailsCacheConfiguration} does not specify one.
+     */
+    static int getDefaultExpireAfterWriteSec() {
         Integer expireAfterWriteSec = EXPIRE_AFTER_WRITE_SEC;
         if (expireAfterWriteSec == null || expireAfterWriteSec <= 0) {
             //just in case someone is trying to trick us
@@ -75,16 +144,34 @@ public final class UserDetailsCache {
             }
             EXPIRE_AFTER_WRITE_SEC = expireAfterWriteSec;
         }
-        detailsCache = CacheBuilder.newBuilder().softValues().expireAfterWrite(EXPIRE_AFTER_WRITE_SEC, TimeUnit.SECONDS).build();
-        existenceCache = CacheBuilder.newBuilder().softValues().expireAfterWrite(EXPIRE_AFTER_WRITE_SEC, TimeUnit.SECONDS).build();
+        return expireAfterWriteSec;
     }
 
     /**
-     * The singleton instance registered in Jenkins.
-     * @return the cache
+     * (Re)creates the caches from {@link UserDetailsCacheConfiguration}, discarding all cached entries.
      */
-    public static UserDetailsCache get() {
-        return ExtensionList.lookupSingleton(UserDetailsCache.class);
+    void reconfigure() {
+        UserDetailsCacheConfiguration config = ExtensionList.lookupSingleton(UserDetailsCacheConfiguration.class);
+        int expireAfterWriteSec = config.getExpireAfterWriteSec() > 0 ? config.getExpireAfterWriteSec() : getDefaultExpireAfterWriteSec();
+        int negativeExpireAfterWriteSec = config.getNegativeExpireAfterWriteSec() > 0 ? config.getNegativeExpireAfterWriteSec() : expireAfterWriteSec;
+
+        CacheBuilder<Object, Object> details = CacheBuilder.newBuilder()
+                .concurrencyLevel(Math.max(1, CONCURRENCY_LEVEL))
+                .softValues()
+                .expireAfterWrite(expireAfterWriteSec, TimeUnit.SECONDS)
+                .recordStats();
+        CacheBuilder<Object, Object> existence = CacheBuilder.newBuilder()
+                .concurrencyLevel(Math.max(1, CONCURRENCY_LEVEL))
+                .expireAfterWrite(negativeExpireAfterWriteSec, TimeUnit.SECONDS);
+        if (config.getMaximumSize() > 0) {
+            details.maximumSize(config.getMaximumSize());
+            existence.maximumSize(config.getMaximumSize());
+        }
+        refreshAfterNanos = config.getRefreshAfterWriteSec() > 0 && config.getRefreshAfterWriteSec() < expireAfterWriteSec
+                ? TimeUnit.SECONDS.toNanos(config.getRefreshAfterWriteSec())
+                : 0;
+        detailsCache = details.build();
+        existenceCache = existence.build();
     }
 
     /**
@@ -100,9 +187,11 @@ public final class UserDetailsCache {
     public UserDetails getCached(String idOrFullName) throws UsernameNotFoundException {
         Boolean exists = existenceCache.getIfPresent(idOrFullName);
         if (exists != null && !exists) {
+            negativeHitCount.incrementAndGet();
             throw new UserMayOrMayNotExistException2(String.format("\"%s\" does not exist", idOrFullName));
         } else {
-            return detailsCache.getIfPresent(idOrFullName);
+            Entry entry = detailsCache.getIfPresent(idOrFullName);
+            return entry == null ? null : entry.details;
         }
     }
 
@@ -121,10 +210,13 @@ public final class UserDetailsCache {
     public UserDetails loadUserByUsername(String idOrFullName) throws UsernameNotFoundException, ExecutionException {
         Boolean exists = existenceCache.getIfPresent(idOrFullName);
         if (exists != null && !exists) {
+            negativeHitCount.incrementAndGet();
             throw new UsernameNotFoundException(String.format("\"%s\" does not exist", idOrFullName));
         } else {
             try {
-                return detailsCache.get(idOrFullName, new Retriever(idOrFullName));
+                Entry entry = detailsCache.get(idOrFullName, new Retriever(idOrFullName));
+                maybeRefresh(idOrFullName, entry);
+                return entry.details;
             } catch (ExecutionException | UncheckedExecutionException e) {
                 if (e.getCause() instanceof UsernameNotFoundException) {
                     throw (UsernameNotFoundException) e.getCause();
@@ -135,6 +227,41 @@ public final class UserDetailsCache {
         }
     }
 
+    /**
+     * Schedules a background reload of an entry older than the configured refresh interval.
+     * The current value keeps being served until the reload completes.
+     */
+    private void maybeRefresh(String idOrFullName, Entry entry) {
+        long refreshAfter = refreshAfterNanos;
+        if (refreshAfter <= 0 || System.nanoTime() - entry.loadedNanos < refreshAfter || !entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        Cache<String, Entry> cache = detailsCache;
+        try {
+            refreshExecutor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    // do not resurrect an entry invalidated in the meantime
+                    cache.asMap().replace(idOrFullName, entry, new Retriever(idOrFullName).call());
+                    refreshCount.incrementAndGet();
+                } catch (UsernameNotFoundException e) {
+                    // the negative answer has been recorded by the Retriever
+                    cache.asMap().remove(idOrFullName, entry);
+                    refreshCount.incrementAndGet();
+                } catch (Exception e) {
+                    refreshFailureCount.incrementAndGet();
+                    entry.refreshing.set(false);
+                    LOGGER.log(Level.FINE, "Failed to refresh user details of " + idOrFullName, e);
+                } finally {
+                    totalRefreshTimeNanos.addAndGet(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshSkippedCount.incrementAndGet();
+            entry.refreshing.set(false);
+        }
+    }
+
     /**
      * Discards all entries in the cache.
      */
@@ -152,11 +279,124 @@ public final class UserDetailsCache {
         detailsCache.invalidate(idOrFullName);
     }
 
+    /**
+     * Current hit/miss/load statistics, for monitoring.
+     * Counters are reset when the configuration changes.
+     */
+    @NonNull
+    public Statistics getStatistics() {
+        return new Statistics(detailsCache.stats(), detailsCache.size(), existenceCache.size(), negativeHitCount.get(),
+                refreshCount.get(), refreshFailureCount.get(), refreshSkippedCount.get(), totalRefreshTimeNanos.get());
+    }
+
+    /**
+     * Snapshot of the cache statistics.
+     */
+    @Restricted(NoExternalUse.class)
+    public static final class Statistics {
+        private final CacheStats details;
+        private final long size;
+        private final long existenceSize;
+        private final long negativeHitCount;
+        private final long refreshCount;
+        private final long refreshFailureCount;
+        private final long refreshSkippedCount;
+        private final long totalRefreshTimeNanos;
+
+        Statistics(CacheStats details, long size, long existenceSize, long negativeHitCount,
+                   long refreshCount, long refreshFailureCount, long refreshSkippedCount, long totalRefreshTimeNanos) {
+            this.details = details;
+            this.size = size;
+            this.existenceSize = existenceSize;
+            this.negativeHitCount = negativeHitCount;
+            this.refreshCount = refreshCount;
+            this.refreshFailureCount = refreshFailureCount;
+            this.refreshSkippedCount = refreshSkippedCount;
+            this.totalRefreshTimeNanos = totalRefreshTimeNanos;
+        }
+
+        /**
+         * Number of lookups answered from the cache, including cached "does not exist" answers.
+         */
+        public long getHitCount() {
+            return details.hitCount() + negativeHitCount;
+        }
+
+        /**
+         * Number of lookups answered from a cached "does not exist" answer.
+         */
+        public long getNegativeHitCount() {
+            return negativeHitCount;
+        }
+
+        /**
+         * Number of lookups that had to go to the security realm.
+         */
+        public long getMissCount() {
+            return details.missCount();
+        }
+
+        /**
+         * Number of lookups that went to the security realm, and failed.
+         */
+        public long getLoadExceptionCount() {
+            return details.loadExceptionCount();
+        }
+
+        /**
+         * Average time spent in the security realm for a lookup on the request thread, in milliseconds.
+         */
+        public double getAverageLoadMillis() {
+            return details.averageLoadPenalty() / 1_000_000;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getNegativeSize() {
+            return existenceSize;
+        }
+
+        public long getRefreshCount() {
+            return refreshCount;
+        }
+
+        public long getRefreshFailureCount() {
+            return refreshFailureCount;
+        }
+
+        public long getRefreshSkippedCount() {
+            return refreshSkippedCount;
+        }
+
+        /**
+         * Average time spent in the security realm for a background refresh, in milliseconds.
+         */
+        public double getAverageRefreshMillis() {
+            long refreshes = refreshCount + refreshFailureCount;
+            return refreshes == 0 ? 0 : (double) totalRefreshTimeNanos / refreshes / 1_000_000;
+        }
+    }
+
+    /**
+     * A cached lookup result.
+     */
+    private static final class Entry {
+        private final UserDetails details;
+        private final long loadedNanos = System.nanoTime();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(UserDetails details) {
+            this.details = details;
+        }
+    }
+
     /**
      * Callable that performs the actual lookup if there is a cache miss.
      * @see #loadUserByUsername(String)
      */
-    private class Retriever implements Callable<UserDetails> {
+    private class Retriever implements Callable<Entry> {
         private final String idOrFullName;
 
         private Retriever(final String idOrFullName) {
@@ -164,7 +404,7 @@ public final class UserDetailsCache {
         }
 
         @Override
-        public UserDetails call() throws Exception {
+        public Entry call() throws Exception {
             try {
                 Jenkins jenkins = Jenkins.get();
                 UserDetails userDetails = jenkins.getSecurityRealm().loadUserByUsername2(idOrFullName);
@@ -173,8 +413,9 @@ public final class UserDetailsCache {
                     throw new NullPointerException("hudson.security.SecurityRealm should never return null. "
                                                    + jenkins.getSecurityRealm() + " returned null for idOrFullName='" + idOrFullName + "'");
                 }
-                existenceCache.put(this.idOrFullName, Boolean.TRUE);
-                return userDetails;
+                // only negative answers are kept, so that the size bound applies to unknown names
+                existenceCache.invalidate(this.idOrFullName);
+                return new Entry(userDetails);
             } catch (UsernameNotFoundException e) {
                 existenceCache.put(this.idOrFullName, Boolean.FALSE);
                 throw e;
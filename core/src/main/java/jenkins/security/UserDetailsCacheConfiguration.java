@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.security;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.util.FormValidation;
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.GlobalConfigurationCategory;
+import net.sf.json.JSONObject;
+import org.jenkinsci.Symbol;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * Tuning of the {@link UserDetailsCache}, exposed in the global security configuration.
+ *
+ * <p>Values of {@code 0} mean "use the default": the expiration defaults to
+ * {@code jenkins.security.UserDetailsCache.EXPIRE_AFTER_WRITE_SEC}, the other settings are disabled.
+ */
+@Extension
+@Symbol("userDetailsCache")
+@Restricted(NoExternalUse.class)
+public class UserDetailsCacheConfiguration extends GlobalConfiguration {
+
+    /**
+     * Seconds after which a successfully loaded {@link org.springframework.security.core.userdetails.UserDetails} expires.
+     */
+    private int expireAfterWriteSec;
+
+    /**
+     * Seconds after which a cached "user does not exist" answer expires.
+     */
+    private int negativeExpireAfterWriteSec;
+
+    /**
+     * Seconds after which a cached entry that is still being used is reloaded in the background.
+     */
+    private int refreshAfterWriteSec;
+
+    /**
+     * Maximum number of users kept in the cache.
+     */
+    private long maximumSize;
+
+    public UserDetailsCacheConfiguration() {
+        load();
+    }
+
+    public static UserDetailsCacheConfiguration get() {
+        return ExtensionList.lookupSingleton(UserDetailsCacheConfiguration.class);
+    }
+
+    public int getExpireAfterWriteSec() {
+        return expireAfterWriteSec;
+    }
+
+    @DataBoundSetter
+    public void setExpireAfterWriteSec(int expireAfterWriteSec) {
+        this.expireAfterWriteSec = Math.max(0, expireAfterWriteSec);
+    }
+
+    public int getNegativeExpireAfterWriteSec() {
+        return negativeExpireAfterWriteSec;
+    }
+
+    @DataBoundSetter
+    public void setNegativeExpireAfterWriteSec(int negativeExpireAfterWriteSec) {
+        this.negativeExpireAfterWriteSec = Math.max(0, negativeExpireAfterWriteSec);
+    }
+
+    public int getRefreshAfterWriteSec() {
+        return refreshAfterWriteSec;
+    }
+
+    @DataBoundSetter
+    public void setRefreshAfterWriteSec(int refreshAfterWriteSec) {
+        this.refreshAfterWriteSec = Math.max(0, refreshAfterWriteSec);
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    @DataBoundSetter
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+    }
+
+    @Override
+    public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        req.bindJSON(this, json);
+        save();
+        UserDetailsCache.get().reconfigure();
+        return true;
+    }
+
+    public FormValidation doCheckRefreshAfterWriteSec(@QueryParameter int value, @QueryParameter int expireAfterWriteSec) {
+        int expire = expireAfterWriteSec > 0 ? expireAfterWriteSec : UserDetailsCache.getDefaultExpireAfterWriteSec();
+        if (value > 0 && value >= expire) {
+            return FormValidation.warning(Messages.UserDetailsCacheConfiguration_RefreshAfterExpiry());
+        }
+        return FormValidation.ok();
+    }
+
+    /**
+     * Statistics of the running cache, for display on the configuration page.
+     */
+    public UserDetailsCache.Statistics getStatistics() {
+        return UserDetailsCache.get().getStatistics();
+    }
+
+    @Override
+    public GlobalConfigurationCategory getCategory() {
+        return GlobalConfigurationCategory.get(GlobalConfigurationCategory.Security.class);
+    }
+}
@@ -29,8 +29,11 @@ import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.BulkChange;
+import hudson.Extension;
 import hudson.Util;
 import hudson.XmlFile;
+import hudson.init.Terminator;
+import hudson.model.PeriodicWork;
 import hudson.model.Saveable;
 import hudson.model.User;
 import hudson.model.listeners.SaveableListener;
@@ -43,8 +46,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
@@ -52,6 +60,25 @@ import org.kohsuke.accmod.restrictions.NoExternalUse;
 public class ApiTokenStats implements Saveable {
     private static final Logger LOGGER = Logger.getLogger(ApiTokenStats.class.getName());
 
+    /**
+     * Interval in milliseconds between two writes of the usage statistics to disk.
+     * Usages are accumulated in memory in the meantime, and written at shutdown.
+     * A value of 0 or less saves the statistics on each use of a token.
+     */
+    private static final long FLUSH_INTERVAL = SystemProperties.getLong(ApiTokenStats.class.getName() + ".FLUSH_INTERVAL", TimeUnit.SECONDS.toMillis(30));
+
+    /**
+     * Record only one use out of this number, counting it for all of them.
+     * Reduces contention for clients using their token at a very high frequency,
+     * at the expense of exact counters and last use dates.
+     */
+    private static final int SAMPLING_RATE = Math.max(1, SystemProperties.getInteger(ApiTokenStats.class.getName() + ".SAMPLING_RATE", 1));
+
+    /**
+     * Statistics modified since they were last written to disk.
+     */
+    private static final Set<ApiTokenStats> PENDING = ConcurrentHashMap.newKeySet();
+
     /**
      * Normally a user will not have more 2-3 tokens at a time,
      * so there is no need to store a map here
@@ -151,14 +178,18 @@ public class ApiTokenStats implements Saveable {
         }
     }
 
-   /**
-     * Will trigger the save
+    /**
+     * Will trigger the save, either immediately or with the next periodic flush
      */
     public @NonNull SingleTokenStats updateUsageForId(@NonNull String tokenUuid) {
         if (areStatsDisabled()) {
             return new SingleTokenStats(tokenUuid);
         }
 
+        if (SAMPLING_RATE > 1 && ThreadLocalRandom.current().nextInt(SAMPLING_RATE) != 0) {
+            return findTokenStatsById(tokenUuid);
+        }
+
         return updateUsageForIdIfNeeded(tokenUuid);
     }
 
@@ -172,8 +203,12 @@ public class ApiTokenStats implements Saveable {
                     return result;
                 });
 
-        stats.notifyUse();
-        save();
+        stats.notifyUse(SAMPLING_RATE);
+        if (FLUSH_INTERVAL > 0) {
+            PENDING.add(this);
+        } else {
+            save();
+        }
 
         return stats;
     }
@@ -199,6 +234,9 @@ public class ApiTokenStats implements Saveable {
      */
     @Override
     public synchronized void save() {
+        // anything pending is part of this write
+        PENDING.remove(this);
+
         if (areStatsDisabled()) {
             return;
         }
@@ -312,6 +350,43 @@ public class ApiTokenStats implements Saveable {
         return new XmlFile(new File(parent, "apiTokenStats.xml"));
     }
 
+    /**
+     * Writes all the statistics modified since the last flush.
+     */
+    @VisibleForTesting
+    static void flushAll() {
+        for (ApiTokenStats stats : PENDING) {
+            if (stats.user != null && User.getById(stats.user.getId(), false) != stats.user) {
+                // the user was deleted since the token was used, do not recreate its folder
+                PENDING.remove(stats);
+                continue;
+            }
+            stats.save();
+        }
+    }
+
+    /**
+     * Periodically writes the accumulated usage statistics, in a single batch.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class Flusher extends PeriodicWork {
+        @Override
+        public long getRecurrencePeriod() {
+            return FLUSH_INTERVAL > 0 ? FLUSH_INTERVAL : MIN;
+        }
+
+        @Override
+        protected void doRun() {
+            flushAll();
+        }
+
+        @Terminator
+        public void flushOnShutdown() {
+            flushAll();
+        }
+    }
+
     public static class SingleTokenStats {
         private static Comparator<SingleTokenStats> COMP_BY_LAST_USE_THEN_COUNTER =
                 Comparator.comparing(SingleTokenStats::getLastUseDate, Comparator.nullsFirst(Comparator.naturalOrder()))
@@ -333,8 +408,8 @@ public class ApiTokenStats implements Saveable {
             return this;
         }
 
-        private void notifyUse() {
-            this.useCounter = useCounter == null ? 1 : useCounter + 1;
+        private void notifyUse(int count) {
+            this.useCounter = useCounter == null ? count : useCounter + count;
             this.lastUseDate = new Date();
         }
 
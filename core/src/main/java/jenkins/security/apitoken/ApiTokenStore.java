@@ -39,6 +39,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -72,6 +73,12 @@ public class ApiTokenStore {
 
     private List<HashedToken> tokenList;
 
+    /**
+     * Index of {@link #tokenList} by hash of the secret, replaced on each modification of the list
+     * so that {@link #findMatchingToken(String)} does not need to lock the store nor scan all the tokens.
+     */
+    private transient volatile Map<String, HashedToken> tokensByHash;
+
     public ApiTokenStore() {
         this.init();
     }
@@ -85,6 +92,18 @@ public class ApiTokenStore {
         if (this.tokenList == null) {
             this.tokenList = new ArrayList<>();
         }
+        this.reindex();
+    }
+
+    /**
+     * Must be called after any change of {@link #tokenList}, while holding the lock.
+     */
+    private void reindex() {
+        Map<String, HashedToken> index = new HashMap<>();
+        for (HashedToken token : tokenList) {
+            index.putIfAbsent(token.value.hash, token);
+        }
+        this.tokensByHash = index;
     }
 
     public synchronized @NonNull Collection<HashedToken> getTokenListSortedByName() {
@@ -95,6 +114,7 @@ public class ApiTokenStore {
 
     private void addToken(HashedToken token) {
         this.tokenList.add(token);
+        this.reindex();
     }
 
     /**
@@ -145,6 +165,7 @@ public class ApiTokenStore {
     private void deleteAllLegacyTokens() {
         // normally there is only one, but just in case
         tokenList.removeIf(HashedToken::isLegacy);
+        this.reindex();
     }
 
     private void addLegacyToken(@NonNull Secret legacyToken, boolean migrationFromExistingLegacy) {
@@ -249,9 +270,13 @@ public class ApiTokenStore {
 
     /**
      * Search in the store if there is a token with the same secret as the one given
+     * <p>
+     * This costs a single SHA-256 digest of the presented token and a lookup in the index, without locking,
+     * so results are deliberately not cached: a cache would need the same digest for its key,
+     * or else keep plain token values in memory, and would have to be invalidated on revocation.
      * @return {@code null} iff there is no matching token
      */
-    public synchronized @CheckForNull HashedToken findMatchingToken(@NonNull String token) {
+    public @CheckForNull HashedToken findMatchingToken(@NonNull String token) {
         String plainToken;
         if (isLegacyToken(token)) {
             plainToken = token;
@@ -290,10 +315,10 @@ public class ApiTokenStore {
      */
     private @CheckForNull HashedToken searchMatch(@NonNull String plainSecret) {
         byte[] hashedBytes = plainSecretToHashBytes(plainSecret);
-        for (HashedToken token : tokenList) {
-            if (token.match(hashedBytes)) {
-                return token;
-            }
+        HashedToken token = tokensByHash.get(Util.toHexString(hashedBytes));
+        // the index is only used to locate the candidate, the comparison itself remains constant-time
+        if (token != null && token.match(hashedBytes)) {
+            return token;
         }
 
         return null;
@@ -311,6 +336,7 @@ public class ApiTokenStore {
             HashedToken token = iterator.next();
             if (token.uuid.equals(tokenUuid)) {
                 iterator.remove();
+                this.reindex();
 
                 return token;
             }
@@ -321,10 +347,12 @@ public class ApiTokenStore {
 
     public synchronized void revokeAllTokens() {
         tokenList.clear();
+        this.reindex();
     }
 
     public synchronized void revokeAllTokensExcept(@NonNull String tokenUuid) {
         tokenList.removeIf(token -> !token.uuid.equals(tokenUuid));
+        this.reindex();
     }
 
     /**
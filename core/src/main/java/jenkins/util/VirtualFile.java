@@ -46,6 +46,7 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.OpenOption;
@@ -427,6 +428,24 @@ public abstract class VirtualFile implements Comparable<VirtualFile>, Serializab
      */
     public abstract long lastModified() throws IOException;
 
+    /**
+     * Gets the attributes of several descendants at once.
+     * The default implementation queries each attribute of each file in turn;
+     * implementations backed by a remote {@link FilePath} make a single call, see {@link FilePath#stat(Collection)}.
+     * @param relativePaths paths relative to this directory, separated by {@code /}
+     * @return the attributes of each path, in the same order
+     * @throws IOException if checking the attributes failed
+     * @since TODO
+     */
+    public @NonNull List<FilePath.Stat> stat(@NonNull Collection<String> relativePaths) throws IOException {
+        List<FilePath.Stat> stats = new ArrayList<>(relativePaths.size());
+        for (String relativePath : relativePaths) {
+            VirtualFile f = relativePath.isEmpty() ? this : child(relativePath);
+            stats.add(new FilePath.Stat(relativePath, f.exists(), f.isDirectory(), f.readLink() != null, f.length(), f.lastModified(), f.canRead()));
+        }
+        return stats;
+    }
+
     /**
      * Gets the file’s Unix mode, if meaningful.
      * If the file is symlink (see {@link #readLink}), the mode is that of the link target, not the link itself.
@@ -464,6 +483,19 @@ public abstract class VirtualFile implements Comparable<VirtualFile>, Serializab
         return open();
     }
 
+    /**
+     * Opens a channel on the file if it is available locally, so that a range of it can be read from its position
+     * rather than by skipping through a stream.
+     *
+     * @param openOptions the options to apply when opening.
+     * @return an open channel, or null if the file should be read with {@link #open(OpenOption...)} instead
+     * @throws IOException if it could not be opened
+     */
+    @Restricted(NoExternalUse.class)
+    public @CheckForNull FileChannel openChannel(OpenOption... openOptions) throws IOException {
+        return null;
+    }
+
     /**
      * Does case-insensitive comparison.
      * {@inheritDoc}
@@ -752,6 +784,15 @@ public abstract class VirtualFile implements Comparable<VirtualFile>, Serializab
                 return inputStream;
             }
 
+            @Override
+            public FileChannel openChannel(OpenOption... openOptions) throws IOException {
+                try {
+                    return FilePath.newChannelDenyingSymlinkAsNeeded(f, determineRootPath(), openOptions);
+                } catch (InvalidPathException e) {
+                    throw new IOException(e);
+                }
+            }
+
         @Override
         public boolean containsSymLinkChild(OpenOption... openOptions) {
             String rootPath = determineRootPath();
@@ -1073,6 +1114,21 @@ public abstract class VirtualFile implements Comparable<VirtualFile>, Serializab
                 }
             }
 
+            @Override public List<FilePath.Stat> stat(Collection<String> relativePaths) throws IOException {
+                try {
+                    return f.stat(relativePaths);
+                } catch (InterruptedException x) {
+                    throw new IOException(x);
+                }
+            }
+
+            @Override public FileChannel openChannel(OpenOption... openOptions) throws IOException {
+                if (f.isRemote()) {
+                    return null;
+                }
+                return FilePath.newChannelDenyingSymlinkAsNeeded(new File(f.getRemote()), root == null ? null : root.getRemote(), openOptions);
+            }
+
             @Override public <V> V run(Callable<V, IOException> callable) throws IOException {
                 try {
                     return f.act(callable);
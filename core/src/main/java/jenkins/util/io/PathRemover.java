@@ -28,7 +28,10 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.Functions;
 import hudson.Util;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
@@ -41,14 +44,43 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import jenkins.util.SystemProperties;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 @Restricted(NoExternalUse.class)
 public class PathRemover {
 
+    /**
+     * Maximum number of threads deleting files for all {@link #parallel} removers together.
+     */
+    private static final int PARALLELISM = SystemProperties.getInteger(PathRemover.class.getName() + ".parallelism",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Maximum number of files deleted per second by all {@link #throttled} removers together, or 0 for no limit.
+     */
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    static /* non-final for script console */ int BACKGROUND_DELETIONS_PER_SECOND = SystemProperties.getInteger(PathRemover.class.getName() + ".backgroundDeletionsPerSecond", 0);
+
+    /**
+     * Number of files of a directory deleted by one task of a {@link #parallel} remover.
+     */
+    private static final int FILES_PER_TASK = 256;
+
     public static PathRemover newSimpleRemover() {
         return new PathRemover(ignored -> false, PathChecker.ALLOW_ALL);
     }
@@ -63,10 +95,53 @@ public class PathRemover {
 
     private final RetryStrategy retryStrategy;
     private final PathChecker pathChecker;
+    private final boolean parallel;
+    private final boolean throttled;
 
     private PathRemover(@NonNull RetryStrategy retryStrategy, @NonNull PathChecker pathChecker) {
+        this(retryStrategy, pathChecker, false, false);
+    }
+
+    private PathRemover(@NonNull RetryStrategy retryStrategy, @NonNull PathChecker pathChecker, boolean parallel, boolean throttled) {
         this.retryStrategy = retryStrategy;
         this.pathChecker = pathChecker;
+        this.parallel = parallel;
+        this.throttled = throttled;
+    }
+
+    /**
+     * Returns a remover which deletes the contents of directories on several threads,
+     * at most {@code jenkins.util.io.PathRemover.parallelism} for all such removers together.
+     * The {@link PathChecker} may then be called from any of these threads.
+     */
+    public PathRemover parallel() {
+        return PARALLELISM > 1 ? new PathRemover(retryStrategy, pathChecker, true, throttled) : this;
+    }
+
+    /**
+     * Returns a remover which deletes at most {@code jenkins.util.io.PathRemover.backgroundDeletionsPerSecond} files per second
+     * for all such removers together, so that deleting large trees does not slow down builds using the same disks.
+     */
+    public PathRemover throttled() {
+        return new PathRemover(retryStrategy, pathChecker, parallel, true);
+    }
+
+    /**
+     * Deletes a file or directory in the background, one at a time and {@link #throttled}, so that the caller returns immediately.
+     * The caller should usually first move it out of the way, so that a new file can be created with the same name.
+     * @return a future completing once the file is deleted, or failing with the error from {@link #forceRemoveRecursive}
+     */
+    public Future<Void> removeRecursiveInBackground(@NonNull Path path) {
+        PathRemover remover = new PathRemover(retryStrategy, pathChecker, false, true);
+        return Background.EXECUTOR.submit(() -> {
+            try {
+                remover.forceRemoveRecursive(path);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to delete " + path + " in the background", e);
+                throw e;
+            }
+            return null;
+        });
     }
 
     public void forceRemoveFile(@NonNull Path path) throws IOException {
@@ -199,6 +274,9 @@ public class PathRemover {
 
     private Optional<IOException> tryRemoveFile(@NonNull Path path) {
         try {
+            if (throttled) {
+                Throttle.INSTANCE.acquire();
+            }
             removeOrMakeRemovableThenRemove(path.normalize());
             return Optional.empty();
         } catch (IOException e) {
@@ -218,6 +296,9 @@ public class PathRemover {
         Path normalized = path.normalize();
         List<IOException> accumulatedErrors = new ArrayList<>();
         if (!Files.isDirectory(normalized)) return accumulatedErrors;
+        if (parallel) {
+            return Pool.POOL.invoke(new RemoveContentsTask(normalized, new AtomicBoolean()));
+        }
         try (DirectoryStream<Path> children = Files.newDirectoryStream(normalized)) {
             for (Path child : children) {
                 accumulatedErrors.addAll(tryRemoveRecursive(child));
@@ -228,6 +309,142 @@ public class PathRemover {
         return accumulatedErrors;
     }
 
+    /**
+     * Deletes the contents of a directory, forking a task for each subdirectory and for each batch of files.
+     * Once any task fails with an unchecked exception, for example a {@link SecurityException} from the {@link PathChecker},
+     * the other tasks of the same removal are cancelled or stop before deleting more files, as a sequential removal would.
+     */
+    private final class RemoveContentsTask extends RecursiveTask<List<IOException>> {
+        private final Path dir;
+        private final AtomicBoolean failed;
+
+        RemoveContentsTask(Path dir, AtomicBoolean failed) {
+            this.dir = dir;
+            this.failed = failed;
+        }
+
+        @Override
+        protected List<IOException> compute() {
+            List<IOException> accumulatedErrors = new ArrayList<>();
+            List<ForkJoinTask<List<IOException>>> subtasks = new ArrayList<>();
+            try {
+                List<Path> files = new ArrayList<>();
+                try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                    for (Path child : children) {
+                        if (failed.get()) {
+                            break;
+                        }
+                        if (!Util.isSymlink(child) && Files.isDirectory(child)) {
+                            subtasks.add(new RemoveRecursiveTask(child, failed).fork());
+                        } else {
+                            files.add(child);
+                            if (files.size() == FILES_PER_TASK) {
+                                subtasks.add(new RemoveFilesTask(files, failed).fork());
+                                files = new ArrayList<>();
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    accumulatedErrors.add(e);
+                }
+                accumulatedErrors.addAll(new RemoveFilesTask(files, failed).compute());
+                for (ForkJoinTask<List<IOException>> subtask : subtasks) {
+                    accumulatedErrors.addAll(subtask.join());
+                }
+                return accumulatedErrors;
+            } catch (RuntimeException | Error e) {
+                failed.set(true);
+                for (ForkJoinTask<List<IOException>> subtask : subtasks) {
+                    subtask.cancel(false);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private final class RemoveRecursiveTask extends RecursiveTask<List<IOException>> {
+        private final Path dir;
+        private final AtomicBoolean failed;
+
+        RemoveRecursiveTask(Path dir, AtomicBoolean failed) {
+            this.dir = dir;
+            this.failed = failed;
+        }
+
+        @Override
+        protected List<IOException> compute() {
+            List<IOException> accumulatedErrors = new RemoveContentsTask(dir, failed).compute();
+            accumulatedErrors.addAll(new RemoveFilesTask(List.of(dir), failed).compute());
+            return accumulatedErrors;
+        }
+    }
+
+    private final class RemoveFilesTask extends RecursiveTask<List<IOException>> {
+        private final List<Path> files;
+        private final AtomicBoolean failed;
+
+        RemoveFilesTask(List<Path> files, AtomicBoolean failed) {
+            this.files = files;
+            this.failed = failed;
+        }
+
+        @Override
+        protected List<IOException> compute() {
+            List<IOException> accumulatedErrors = new ArrayList<>();
+            try {
+                for (Path file : files) {
+                    if (failed.get()) {
+                        break;
+                    }
+                    tryRemoveFile(file).ifPresent(accumulatedErrors::add);
+                }
+            } catch (RuntimeException | Error e) {
+                failed.set(true);
+                throw e;
+            }
+            return accumulatedErrors;
+        }
+    }
+
+    private static final class Pool {
+        static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("PathRemover [#" + t.getPoolIndex() + "]");
+            return t;
+        }, null, false);
+    }
+
+    private static final class Background {
+        static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+                new NamingThreadFactory(new DaemonThreadFactory(), "PathRemover background"));
+    }
+
+    /**
+     * Spaces deletions evenly to keep under {@link #BACKGROUND_DELETIONS_PER_SECOND}.
+     */
+    private static final class Throttle {
+        static final Throttle INSTANCE = new Throttle();
+
+        private long next = System.nanoTime();
+
+        synchronized void acquire() throws InterruptedIOException {
+            if (BACKGROUND_DELETIONS_PER_SECOND <= 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (next - now > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(next - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to delete files");
+                }
+                now = next;
+            }
+            next = now + TimeUnit.SECONDS.toNanos(1) / BACKGROUND_DELETIONS_PER_SECOND;
+        }
+    }
+
     private void removeOrMakeRemovableThenRemove(@NonNull Path path) throws IOException {
         pathChecker.check(path);
         try {
@@ -304,4 +521,5 @@ public class PathRemover {
         path.toFile().setWritable(true);
     }
 
+    private static final Logger LOGGER = Logger.getLogger(PathRemover.class.getName());
 }
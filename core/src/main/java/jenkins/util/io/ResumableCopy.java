@@ -0,0 +1,647 @@
+package jenkins.util.io;
+
+import hudson.FilePath;
+import hudson.Functions;
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DirScanner;
+import hudson.util.FileVisitor;
+import hudson.util.IOUtils;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Copies files between two {@link FilePath}s in chunks, so that a copy which failed part way can be resumed.
+ *
+ * <p>
+ * Files are sent in batches of up to {@code jenkins.util.io.ResumableCopy.chunkSize} bytes, made of several small files
+ * or of part of a large one, each part with a CRC-32 checked by the receiving side, while the next batch is being read.
+ * A file is written in place, and gets the timestamp of its source once complete.
+ * Copying again skips the files which have the size and the exact timestamp of their source;
+ * a file being written has the current time, which may be close to that of a recently modified source.
+ * Other existing files are compared by blocks of {@code jenkins.util.io.ResumableCopy.blockSize} bytes at the same offsets,
+ * using SHA-256, and only the blocks which differ are sent, so that a partially copied file is continued
+ * and a file changed in place costs little more than the changed blocks.
+ * A file, directory or symbolic link of the target directory which is of another kind than in the source is replaced.
+ * Agents cannot connect to each other, so the data between two agents goes through this JVM.
+ *
+ * @see FilePath#copyRecursiveToResumable
+ * @see FilePath#syncTo
+ */
+@Restricted(NoExternalUse.class)
+public final class ResumableCopy {
+
+    private static final int CHUNK_SIZE = Math.max(64 * 1024, SystemProperties.getInteger(ResumableCopy.class.getName() + ".chunkSize", 8 * 1024 * 1024));
+
+    private static final int BLOCK_SIZE = Math.max(4096, SystemProperties.getInteger(ResumableCopy.class.getName() + ".blockSize", 128 * 1024));
+
+    private static final int DIGEST_LENGTH = 32;
+
+    private ResumableCopy() {}
+
+    /**
+     * Copies files from one directory to another.
+     * @param deleteExtraneous whether to delete the files of the target directory which the scanner finds there but not in the source
+     */
+    public static FilePath.SyncResult copy(FilePath source, DirScanner scanner, FilePath target, boolean deleteExtraneous) throws IOException, InterruptedException {
+        List<Entry> entries = source.act(new Manifest(scanner));
+        int deleted = deleteExtraneous ? target.act(new DeleteExtraneous(scanner, new ArrayList<>(entries))) : 0;
+        Map<String, byte[]> changed = target.act(new DigestTargetBlocks(new ArrayList<>(entries), BLOCK_SIZE));
+        List<Entry> compared = new ArrayList<>();
+        for (Entry e : entries) {
+            byte[] digests = changed.get(e.path);
+            if (digests != null && digests.length > 0) {
+                compared.add(e);
+            }
+        }
+        Map<String, BitSet> matching = new HashMap<>();
+        if (!compared.isEmpty()) {
+            Map<String, byte[]> digests = new HashMap<>();
+            for (Entry e : compared) {
+                digests.put(e.path, changed.get(e.path));
+            }
+            matching = source.act(new MatchBlocks(compared, digests, BLOCK_SIZE));
+        }
+
+        List<List<Segment>> batches = new ArrayList<>();
+        List<Segment> batch = new ArrayList<>();
+        long batchSize = 0;
+        long total = 0;
+        long transferred = 0;
+        int files = 0;
+        for (Entry e : entries) {
+            if (e.type != Entry.DIRECTORY) {
+                files++;
+            }
+            if (e.type != Entry.FILE) {
+                continue;
+            }
+            total += e.size;
+            if (!changed.containsKey(e.path)) {
+                continue; // already copied
+            }
+            BitSet same = matching.getOrDefault(e.path, new BitSet());
+            Segment segment = null;
+            long offset = 0;
+            while (offset < e.size) {
+                int block = (int) (offset / BLOCK_SIZE);
+                if (same.get(block)) {
+                    offset = (long) same.nextClearBit(block) * BLOCK_SIZE;
+                    continue;
+                }
+                int nextSame = same.nextSetBit(block);
+                long end = nextSame < 0 ? e.size : Math.min(e.size, (long) nextSame * BLOCK_SIZE);
+                while (offset < end) {
+                    int length = (int) Math.min(end - offset, CHUNK_SIZE - batchSize);
+                    segment = new Segment(e, offset, length, segment == null);
+                    batch.add(segment);
+                    offset += length;
+                    batchSize += length;
+                    transferred += length;
+                    if (batchSize >= CHUNK_SIZE) {
+                        batches.add(batch);
+                        batch = new ArrayList<>();
+                        batchSize = 0;
+                    }
+                }
+            }
+            if (segment == null) {
+                // same content: only truncate the file and set its attributes
+                segment = new Segment(e, e.size, 0, true);
+                batch.add(segment);
+            }
+            segment.last = true;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+
+        Future<Chunk> next = batches.isEmpty() ? null : source.actAsync(new ReadSegments(batches.get(0)));
+        for (int i = 0; i < batches.size(); i++) {
+            Chunk chunk;
+            try {
+                chunk = next.get();
+            } catch (ExecutionException x) {
+                Throwable cause = x.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+            next = i + 1 < batches.size() ? source.actAsync(new ReadSegments(batches.get(i + 1))) : null;
+            try {
+                target.act(new WriteSegments(batches.get(i), chunk));
+            } catch (IOException | InterruptedException | RuntimeException x) {
+                if (next != null) {
+                    next.cancel(true);
+                }
+                throw x;
+            }
+        }
+        target.act(new CreateLinksAndDirectories(new ArrayList<>(entries)));
+        return new FilePath.SyncResult(files, changed.size(), deleted, transferred, total);
+    }
+
+    private static File resolve(File base, String path) throws IOException {
+        File f = new File(base, path);
+        if (!f.toPath().normalize().startsWith(base.toPath().normalize())) {
+            throw new IOException("Illegal file name which breaks out of the target directory: " + path);
+        }
+        return f;
+    }
+
+    /**
+     * Creates a directory and its parents below the base directory, replacing files and symbolic links in the way,
+     * so that nothing is written through a link.
+     */
+    private static void createDirectories(File base, File dir) throws IOException {
+        Path root = base.toPath();
+        Path d = root;
+        for (Path name : root.relativize(dir.toPath())) {
+            if (name.toString().isEmpty()) {
+                continue;
+            }
+            d = d.resolve(name);
+            if (Files.isSymbolicLink(d) || Files.exists(d, LinkOption.NOFOLLOW_LINKS) && !Files.isDirectory(d, LinkOption.NOFOLLOW_LINKS)) {
+                Files.delete(d);
+            }
+        }
+        Util.createDirectories(dir.toPath());
+    }
+
+    private static final class Entry implements Serializable {
+        private static final long serialVersionUID = 1;
+
+        static final int FILE = 0;
+        static final int DIRECTORY = 1;
+        static final int SYMLINK = 2;
+
+        /**
+         * Relative path in the target directory, which may differ from the relative path in the source directory,
+         * as some {@link DirScanner}s prepend the name of the source directory.
+         */
+        final String path;
+        /**
+         * Absolute path of the source file.
+         */
+        final String source;
+        final int type;
+        final long size;
+        final long lastModified;
+        final int mode;
+        /**
+         * Target of a symbolic link.
+         */
+        final String link;
+
+        Entry(String path, String source, int type, long size, long lastModified, int mode, String link) {
+            this.path = path;
+            this.source = source;
+            this.type = type;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.mode = mode;
+            this.link = link;
+        }
+    }
+
+    private static final class Segment implements Serializable {
+        private static final long serialVersionUID = 1;
+
+        final Entry file;
+        final long offset;
+        final int length;
+        /**
+         * Whether this is the first segment written to the file by this copy, which truncates it to the size of the source.
+         */
+        final boolean first;
+        /**
+         * Whether this is the last segment written to the file by this copy, which sets its attributes.
+         */
+        boolean last;
+
+        Segment(Entry file, long offset, int length, boolean first) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+            this.first = first;
+        }
+    }
+
+    private static final class Chunk implements Serializable {
+        private static final long serialVersionUID = 1;
+
+        final byte[] data;
+        final long[] crcs;
+
+        Chunk(byte[] data, long[] crcs) {
+            this.data = data;
+            this.crcs = crcs;
+        }
+    }
+
+    private static final class Manifest extends MasterToSlaveFileCallable<List<Entry>> {
+        private static final long serialVersionUID = 1;
+
+        private final DirScanner scanner;
+
+        Manifest(DirScanner scanner) {
+            this.scanner = scanner;
+        }
+
+        @Override
+        public List<Entry> invoke(File base, VirtualChannel channel) throws IOException {
+            List<Entry> entries = new ArrayList<>();
+            if (!base.exists()) {
+                return entries;
+            }
+            scanner.scan(base, new FileVisitor() {
+                @Override
+                public void visit(File f, String relativePath) throws IOException {
+                    String path = relativePath.replace(File.separatorChar, '/');
+                    if (f.isDirectory()) {
+                        entries.add(new Entry(path, f.getAbsolutePath(), Entry.DIRECTORY, 0, 0, -1, null));
+                    } else if (f.isFile()) {
+                        entries.add(new Entry(path, f.getAbsolutePath(), Entry.FILE, f.length(), f.lastModified(), IOUtils.mode(f), null));
+                    }
+                }
+
+                @Override
+                public void visitSymlink(File link, String target, String relativePath) {
+                    entries.add(new Entry(relativePath.replace(File.separatorChar, '/'), link.getAbsolutePath(), Entry.SYMLINK, 0, 0, -1, target));
+                }
+
+                @Override
+                public boolean understandsSymlink() {
+                    return true;
+                }
+            });
+            return entries;
+        }
+    }
+
+    /**
+     * Deletes the files and directories which are not in the manifest, among those the scanner finds in the target directory,
+     * so that for example directories left out by default excludes are kept.
+     * Symbolic links are never followed: a link found by the scanner, or through which it found files, is deleted or kept as a whole.
+     * @return the number of files and symbolic links deleted
+     */
+    private static final class DeleteExtraneous extends MasterToSlaveFileCallable<Integer> {
+        private static final long serialVersionUID = 1;
+
+        private final DirScanner scanner;
+        private final List<Entry> entries;
+
+        DeleteExtraneous(DirScanner scanner, List<Entry> entries) {
+            this.scanner = scanner;
+            this.entries = entries;
+        }
+
+        @Override
+        public Integer invoke(File base, VirtualChannel channel) throws IOException {
+            if (!base.isDirectory()) {
+                return 0;
+            }
+            Set<String> files = new HashSet<>();
+            Set<String> directories = new HashSet<>();
+            for (Entry e : entries) {
+                (e.type == Entry.DIRECTORY ? directories : files).add(e.path);
+                for (int slash = e.path.lastIndexOf('/'); slash > 0; slash = e.path.lastIndexOf('/', slash - 1)) {
+                    directories.add(e.path.substring(0, slash));
+                }
+            }
+            Path root = base.toPath();
+            Set<Path> extraneous = new HashSet<>();
+            // the scanner may prepend the name of the directory, so compare the actual paths
+            scanner.scan(base, new FileVisitor() {
+                @Override
+                public void visit(File f, String relativePath) {
+                    add(f.toPath());
+                }
+
+                @Override
+                public void visitSymlink(File link, String target, String relativePath) {
+                    add(link.toPath());
+                }
+
+                @Override
+                public boolean understandsSymlink() {
+                    return true;
+                }
+
+                private void add(Path p) {
+                    if (!p.startsWith(root)) {
+                        return;
+                    }
+                    p = unlessLinked(root, p);
+                    String path = relativize(root, p);
+                    if (!path.isEmpty() && !path.startsWith("../") && !files.contains(path) && !directories.contains(path)) {
+                        extraneous.add(p);
+                    }
+                }
+            });
+            // children first
+            List<Path> sorted = new ArrayList<>(extraneous);
+            sorted.sort(Comparator.comparing(Path::getNameCount).reversed());
+            int deleted = 0;
+            for (Path p : sorted) {
+                if (!Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.deleteIfExists(p);
+                    deleted++;
+                    // directories which only held deleted files
+                    for (Path dir = p.getParent(); !dir.equals(root) && !directories.contains(relativize(root, dir)) && isEmpty(dir); dir = dir.getParent()) {
+                        Files.delete(dir);
+                    }
+                } else if (isEmpty(p)) {
+                    Files.delete(p);
+                }
+            }
+            return deleted;
+        }
+
+        /**
+         * @return the outermost symbolic link below the root through which the path goes, or the path itself
+         */
+        private static Path unlessLinked(Path root, Path p) {
+            Path dir = root;
+            for (Path name : root.relativize(p)) {
+                dir = dir.resolve(name);
+                if (Files.isSymbolicLink(dir)) {
+                    return dir;
+                }
+            }
+            return p;
+        }
+
+        private static String relativize(Path root, Path p) {
+            return root.relativize(p).toString().replace(File.separatorChar, '/');
+        }
+
+        private static boolean isEmpty(Path dir) throws IOException {
+            if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+                return false;
+            }
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                return !children.iterator().hasNext();
+            }
+        }
+    }
+
+    /**
+     * Finds which files remain to be copied, and computes the digests of the blocks they already have.
+     * @return for each file not copied yet, the digests of its blocks which are as long as in the source, possibly none
+     */
+    private static final class DigestTargetBlocks extends MasterToSlaveFileCallable<Map<String, byte[]>> {
+        private static final long serialVersionUID = 1;
+
+        private final List<Entry> entries;
+        private final int blockSize;
+
+        DigestTargetBlocks(List<Entry> entries, int blockSize) {
+            this.entries = entries;
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        public Map<String, byte[]> invoke(File base, VirtualChannel channel) throws IOException {
+            Map<String, byte[]> changed = new HashMap<>();
+            for (Entry e : entries) {
+                if (e.type != Entry.FILE) {
+                    continue;
+                }
+                File f = resolve(base, e.path);
+                if (!f.isFile() || Files.isSymbolicLink(f.toPath())) {
+                    changed.put(e.path, new byte[0]);
+                    continue;
+                }
+                long length = f.length();
+                if (length == e.size && f.lastModified() == e.lastModified) {
+                    continue;
+                }
+                // otherwise, even within the precision of some file systems, it may have been interrupted while being written
+                long available = Math.min(length, e.size);
+                long blocks = available == e.size ? (e.size + blockSize - 1) / blockSize : available / blockSize;
+                changed.put(e.path, digestBlocks(f.toPath(), e.size, blockSize, (int) blocks));
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * Compares the digests of blocks of the target files with those of the source files.
+     * @return for each file, the blocks which have the same content
+     */
+    private static final class MatchBlocks extends MasterToSlaveFileCallable<Map<String, BitSet>> {
+        private static final long serialVersionUID = 1;
+
+        private final List<Entry> entries;
+        private final Map<String, byte[]> digests;
+        private final int blockSize;
+
+        MatchBlocks(List<Entry> entries, Map<String, byte[]> digests, int blockSize) {
+            this.entries = entries;
+            this.digests = digests;
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        public Map<String, BitSet> invoke(File base, VirtualChannel channel) throws IOException {
+            Map<String, BitSet> matching = new HashMap<>();
+            for (Entry e : entries) {
+                byte[] theirs = digests.get(e.path);
+                int blocks = theirs.length / DIGEST_LENGTH;
+                byte[] ours = digestBlocks(new File(e.source).toPath(), e.size, blockSize, blocks);
+                BitSet same = new BitSet(blocks);
+                for (int i = 0; i < blocks; i++) {
+                    int from = i * DIGEST_LENGTH;
+                    if (Arrays.equals(ours, from, from + DIGEST_LENGTH, theirs, from, from + DIGEST_LENGTH)) {
+                        same.set(i);
+                    }
+                }
+                matching.put(e.path, same);
+            }
+            return matching;
+        }
+    }
+
+    /**
+     * Computes the SHA-256 digests of the first blocks of a file, the last block of a file of the given size being shorter.
+     */
+    private static byte[] digestBlocks(Path file, long size, int blockSize, int blocks) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException x) {
+            throw new AssertionError(x);
+        }
+        byte[] digests = new byte[blocks * DIGEST_LENGTH];
+        if (blocks == 0) {
+            return digests;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(blockSize);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < blocks; i++) {
+                long position = (long) i * blockSize;
+                buffer.clear();
+                buffer.limit((int) Math.min(blockSize, size - position));
+                while (buffer.hasRemaining()) {
+                    if (ch.read(buffer, position + buffer.position()) < 0) {
+                        throw new EOFException(file + " is shorter than " + size + " bytes");
+                    }
+                }
+                buffer.flip();
+                digest.update(buffer);
+                try {
+                    digest.digest(digests, i * DIGEST_LENGTH, DIGEST_LENGTH);
+                } catch (DigestException x) {
+                    throw new AssertionError(x);
+                }
+            }
+        }
+        return digests;
+    }
+
+    private static final class ReadSegments extends MasterToSlaveFileCallable<Chunk> {
+        private static final long serialVersionUID = 1;
+
+        private final List<Segment> segments;
+
+        ReadSegments(List<Segment> segments) {
+            this.segments = segments;
+        }
+
+        @Override
+        public Chunk invoke(File base, VirtualChannel channel) throws IOException {
+            int total = 0;
+            for (Segment s : segments) {
+                total += s.length;
+            }
+            byte[] data = new byte[total];
+            long[] crcs = new long[segments.size()];
+            int position = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                Segment s = segments.get(i);
+                ByteBuffer buffer = ByteBuffer.wrap(data, position, s.length);
+                try (FileChannel ch = FileChannel.open(new File(s.file.source).toPath(), StandardOpenOption.READ)) {
+                    while (buffer.hasRemaining()) {
+                        if (ch.read(buffer, s.offset + buffer.position() - position) < 0) {
+                            throw new EOFException(s.file.path + " was truncated while being copied");
+                        }
+                    }
+                }
+                CRC32 crc = new CRC32();
+                crc.update(data, position, s.length);
+                crcs[i] = crc.getValue();
+                position += s.length;
+            }
+            return new Chunk(data, crcs);
+        }
+    }
+
+    private static final class WriteSegments extends MasterToSlaveFileCallable<Void> {
+        private static final long serialVersionUID = 1;
+
+        private final List<Segment> segments;
+        private final Chunk chunk;
+
+        WriteSegments(List<Segment> segments, Chunk chunk) {
+            this.segments = segments;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public Void invoke(File base, VirtualChannel channel) throws IOException {
+            int position = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                Segment s = segments.get(i);
+                CRC32 crc = new CRC32();
+                crc.update(chunk.data, position, s.length);
+                if (crc.getValue() != chunk.crcs[i]) {
+                    throw new IOException("Checksum mismatch in " + s.file.path + " at offset " + s.offset);
+                }
+                File f = resolve(base, s.file.path);
+                if (s.first) {
+                    createDirectories(base, f.getParentFile());
+                    Path p = f.toPath();
+                    if (Files.isSymbolicLink(p)) {
+                        Files.delete(p);
+                    } else if (Files.isDirectory(p)) {
+                        Util.deleteRecursive(f);
+                    }
+                }
+                try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    if (s.first) {
+                        ch.truncate(s.file.size);
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk.data, position, s.length);
+                    while (buffer.hasRemaining()) {
+                        ch.write(buffer, s.offset + buffer.position() - position);
+                    }
+                }
+                if (s.last) {
+                    if (s.file.mode > 0 && !Functions.isWindows()) {
+                        Files.setPosixFilePermissions(f.toPath(), Util.modeToPermissions(s.file.mode & 0777));
+                    }
+                    Files.setLastModifiedTime(f.toPath(), FileTime.fromMillis(s.file.lastModified));
+                }
+                position += s.length;
+            }
+            return null;
+        }
+    }
+
+    private static final class CreateLinksAndDirectories extends MasterToSlaveFileCallable<Void> {
+        private static final long serialVersionUID = 1;
+
+        private final List<Entry> entries;
+
+        CreateLinksAndDirectories(List<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public Void invoke(File base, VirtualChannel channel) throws IOException, InterruptedException {
+            Util.createDirectories(base.toPath());
+            for (Entry e : entries) {
+                if (e.type == Entry.DIRECTORY) {
+                    createDirectories(base, resolve(base, e.path));
+                } else if (e.type == Entry.SYMLINK) {
+                    File link = resolve(base, e.path);
+                    createDirectories(base, link.getParentFile());
+                    if (Files.isDirectory(link.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+                        Util.deleteRecursive(link);
+                    }
+                    new FilePath(link).symlinkTo(e.link, TaskListener.NULL);
+                }
+            }
+            return null;
+        }
+    }
+}
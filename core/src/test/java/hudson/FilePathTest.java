@@ -26,6 +26,8 @@ package hudson;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -43,6 +45,7 @@ import hudson.model.TaskListener;
 import hudson.os.WindowsUtil;
 import hudson.remoting.VirtualChannel;
 import hudson.slaves.WorkspaceList;
+import hudson.util.DirScanner;
 import hudson.util.StreamTaskListener;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -59,6 +62,7 @@ import java.net.URLStreamHandler;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFilePermission;
@@ -67,6 +71,7 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -1213,4 +1218,186 @@ public class FilePathTest {
         assertFalse(symbolicWorkspace.isDescendant("./_secrettxt"));
         assertFalse(symbolicWorkspace.isDescendant("_secrettxt2"));
     }
+
+    @Test public void statManyFiles() throws Exception {
+        File dir = temp.newFolder();
+        Files.writeString(dir.toPath().resolve("a.txt"), "abc");
+        Files.createDirectories(dir.toPath().resolve("sub/deeper"));
+        Files.writeString(dir.toPath().resolve("sub/b.txt"), "b");
+        Files.writeString(dir.toPath().resolve("sub/deeper/c.txt"), "c");
+        FilePath d = new FilePath(channels.french, dir.getPath());
+
+        List<FilePath.Stat> stats = d.stat(List.of("a.txt", "sub", "missing", ""));
+        assertEquals("a.txt", stats.get(0).getPath());
+        assertTrue(stats.get(0).exists());
+        assertFalse(stats.get(0).isDirectory());
+        assertEquals(3, stats.get(0).length());
+        assertEquals(d.child("a.txt").lastModified(), stats.get(0).lastModified());
+        assertTrue(stats.get(0).canRead());
+        assertTrue(stats.get(1).isDirectory());
+        assertFalse(stats.get(2).exists());
+        assertTrue(stats.get(3).isDirectory());
+
+        List<String> paths = new ArrayList<>();
+        for (FilePath.Stat stat : d.statTree(2)) {
+            paths.add(stat.getPath());
+        }
+        assertEquals(List.of("a.txt", "sub", "sub/b.txt", "sub/deeper"), paths);
+        assertEquals(5, d.statTree(Integer.MAX_VALUE).size());
+        assertTrue(d.child("a.txt").statTree(1).isEmpty());
+    }
+
+    @Test public void copyRecursiveToResumable() throws Exception {
+        File src = temp.newFolder("src");
+        byte[] big = new byte[100_000];
+        new Random(0).nextBytes(big);
+        Files.write(src.toPath().resolve("big.bin"), big);
+        Files.createDirectories(src.toPath().resolve("sub"));
+        Files.writeString(src.toPath().resolve("sub/small.txt"), "small");
+        File dst = new File(temp.getRoot(), "dst");
+        FilePath from = new FilePath(channels.french, src.getPath());
+        FilePath to = new FilePath(channels.british, dst.getPath());
+
+        assertEquals(2, from.copyRecursiveToResumable(new DirScanner.Glob("**", null), to));
+        assertEquals("small", Files.readString(dst.toPath().resolve("sub/small.txt")));
+        assertArrayEquals(big, Files.readAllBytes(dst.toPath().resolve("big.bin")));
+        assertEquals(src.toPath().resolve("big.bin").toFile().lastModified(), dst.toPath().resolve("big.bin").toFile().lastModified());
+
+        // as if the copy had been interrupted
+        try (RandomAccessFile partial = new RandomAccessFile(dst.toPath().resolve("big.bin").toFile(), "rw")) {
+            partial.setLength(40_000);
+        }
+        assertEquals(2, from.copyRecursiveToResumable(new DirScanner.Glob("**", null), to));
+        assertArrayEquals(big, Files.readAllBytes(dst.toPath().resolve("big.bin")));
+
+        // a prefix which does not match the source is copied again
+        try (RandomAccessFile partial = new RandomAccessFile(dst.toPath().resolve("big.bin").toFile(), "rw")) {
+            partial.setLength(40_000);
+            partial.write(new byte[] {(byte) ~big[0]});
+        }
+        assertEquals(2, from.copyRecursiveToResumable(new DirScanner.Glob("**", null), to));
+        assertArrayEquals(big, Files.readAllBytes(dst.toPath().resolve("big.bin")));
+
+        // plain copies between two agents always send the files
+        File dst2 = new File(temp.getRoot(), "dst2");
+        assertEquals(2, from.copyRecursiveTo("**", new FilePath(channels.british, dst2.getPath())));
+        assertArrayEquals(big, Files.readAllBytes(dst2.toPath().resolve("big.bin")));
+        File small = dst2.toPath().resolve("sub/small.txt").toFile();
+        Files.writeString(small.toPath(), "SMALL");
+        assertTrue(small.setLastModified(src.toPath().resolve("sub/small.txt").toFile().lastModified()));
+        assertEquals(2, from.copyRecursiveTo(new DirScanner.Glob("**", null), new FilePath(channels.british, dst2.getPath()), "copy", FilePath.TarCompression.NONE));
+        assertEquals("small", Files.readString(small.toPath()));
+    }
+
+    @Test public void syncToSendsOnlyChanges() throws Exception {
+        File src = temp.newFolder("src");
+        Random random = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            byte[] data = new byte[10_000];
+            random.nextBytes(data);
+            Files.write(src.toPath().resolve("f" + i), data);
+        }
+        File dst = new File(temp.getRoot(), "dst");
+        FilePath from = new FilePath(channels.french, src.getPath());
+        FilePath to = new FilePath(channels.british, dst.getPath());
+
+        FilePath.SyncResult result = from.syncTo(new DirScanner.Glob("**", null), to, true);
+        assertEquals(100, result.getFiles());
+        assertEquals(1_000_000, result.getTransferredBytes());
+
+        // change 1% of the files, and leave a file which is not in the source
+        byte[] changed = new byte[10_000];
+        random.nextBytes(changed);
+        Files.write(src.toPath().resolve("f42"), changed);
+        Files.setLastModifiedTime(src.toPath().resolve("f42"), FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        Files.writeString(dst.toPath().resolve("stale"), "stale");
+        result = from.syncTo(new DirScanner.Glob("**", null), to, true);
+        assertEquals(1, result.getChangedFiles());
+        assertEquals(1, result.getDeletedFiles());
+        assertEquals(10_000, result.getTransferredBytes());
+        assertArrayEquals(changed, Files.readAllBytes(dst.toPath().resolve("f42")));
+        assertFalse(new File(dst, "stale").exists());
+
+        // files the scanner would not include are kept
+        Files.createDirectories(dst.toPath().resolve(".git/objects"));
+        Files.writeString(dst.toPath().resolve(".git/objects/abc"), "object");
+        Files.createDirectories(dst.toPath().resolve("gone/sub"));
+        Files.writeString(dst.toPath().resolve("gone/sub/file"), "stale");
+        result = from.syncTo(new DirScanner.Glob("**", null), to, true);
+        assertEquals(1, result.getDeletedFiles());
+        assertEquals("object", Files.readString(dst.toPath().resolve(".git/objects/abc")));
+        assertFalse(new File(dst, "gone").exists());
+
+        // change a few bytes in the middle of a large file
+        byte[] big = new byte[4 * 1024 * 1024];
+        random.nextBytes(big);
+        Files.write(src.toPath().resolve("big"), big);
+        from.syncTo(new DirScanner.Glob("**", null), to, true);
+        big[2_000_000]++;
+        Files.write(src.toPath().resolve("big"), big);
+        Files.setLastModifiedTime(src.toPath().resolve("big"), FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        result = from.syncTo(new DirScanner.Glob("**", null), to, true);
+        assertEquals(1, result.getChangedFiles());
+        assertThat(result.getTransferredBytes(), lessThan(big.length / 20L));
+        assertArrayEquals(big, Files.readAllBytes(dst.toPath().resolve("big")));
+        assertEquals(src.toPath().resolve("big").toFile().lastModified(), dst.toPath().resolve("big").toFile().lastModified());
+    }
+
+    @Test public void syncToDoesNotDeleteThroughLinks() throws Exception {
+        assumeFalse(Functions.isWindows());
+        File src = temp.newFolder("src");
+        Files.writeString(src.toPath().resolve("a.txt"), "a");
+        File elsewhere = temp.newFolder("elsewhere");
+        Files.writeString(elsewhere.toPath().resolve("x"), "precious");
+        File dst = temp.newFolder("dst");
+        Files.createSymbolicLink(dst.toPath().resolve("cache"), elsewhere.toPath());
+        FilePath from = new FilePath(channels.french, src.getPath());
+
+        FilePath.SyncResult result = from.syncTo(new DirScanner.Glob("**", null), new FilePath(channels.british, dst.getPath()), true);
+        assertEquals("the link itself is deleted", 1, result.getDeletedFiles());
+        assertFalse(Files.exists(dst.toPath().resolve("cache"), LinkOption.NOFOLLOW_LINKS));
+        assertEquals("precious", Files.readString(elsewhere.toPath().resolve("x")));
+
+        Files.createSymbolicLink(dst.toPath().resolve("cache"), elsewhere.toPath());
+        from.syncTo(new DirScanner.Full(), new FilePath(channels.british, dst.getPath()), true);
+        assertEquals("precious", Files.readString(elsewhere.toPath().resolve("x")));
+    }
+
+    @Test public void copyRecursiveToResumableChecksFilesWithCloseTimestamps() throws Exception {
+        File src = temp.newFolder("src");
+        byte[] data = new byte[10_000];
+        new Random(0).nextBytes(data);
+        Files.write(src.toPath().resolve("f"), data);
+        File dst = new File(temp.getRoot(), "dst");
+        FilePath from = new FilePath(channels.french, src.getPath());
+        FilePath to = new FilePath(channels.british, dst.getPath());
+        from.copyRecursiveToResumable(new DirScanner.Glob("**", null), to);
+
+        // as if a block update had been interrupted shortly after the source was modified
+        try (RandomAccessFile partial = new RandomAccessFile(new File(dst, "f"), "rw")) {
+            partial.seek(5_000);
+            partial.write(new byte[100]);
+        }
+        assertTrue(new File(dst, "f").setLastModified(new File(src, "f").lastModified() + 1000));
+        from.copyRecursiveToResumable(new DirScanner.Glob("**", null), to);
+        assertArrayEquals(data, Files.readAllBytes(dst.toPath().resolve("f")));
+    }
+
+    @Test public void syncToReplacesEntriesOfAnotherKind() throws Exception {
+        File src = temp.newFolder("src");
+        Files.writeString(src.toPath().resolve("was-dir"), "file");
+        Files.createDirectories(src.toPath().resolve("was-file"));
+        Files.writeString(src.toPath().resolve("was-file/inside"), "inside");
+        File dst = temp.newFolder("dst");
+        Files.createDirectories(dst.toPath().resolve("was-dir/sub"));
+        Files.writeString(dst.toPath().resolve("was-dir/sub/old"), "old");
+        Files.writeString(dst.toPath().resolve("was-file"), "old");
+        FilePath from = new FilePath(channels.french, src.getPath());
+
+        for (boolean deleteExtraneous : new boolean[] {false, true}) {
+            from.syncTo(new DirScanner.Glob("**", null), new FilePath(channels.british, dst.getPath()), deleteExtraneous);
+            assertEquals("file", Files.readString(dst.toPath().resolve("was-dir")));
+            assertEquals("inside", Files.readString(dst.toPath().resolve("was-file/inside")));
+        }
+    }
 }
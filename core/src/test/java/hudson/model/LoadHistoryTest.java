@@ -0,0 +1,109 @@
+package hudson.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LoadHistoryTest {
+
+    private static final long CLOCK = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * 2023-03-01T00:00Z, the start of an hour.
+     */
+    private static final long START = 1677628800000L;
+
+    @Test
+    void keepsRawSamplesAndAggregates() {
+        LoadHistory h = new LoadHistory(CLOCK);
+        assertEquals(-1, h.getTiers().get(0).getEnd());
+
+        // a spike lasting a single sample
+        for (int i = 0; i < 60; i++) {
+            h.record(START + i * CLOCK + 3, i == 10 ? 8 : 0, 2, i == 10 ? 0 : 1);
+        }
+        List<LoadHistory.Tier> tiers = h.getTiers();
+
+        LoadHistory.Tier raw = tiers.get(0);
+        assertEquals(CLOCK, raw.getPeriod());
+        assertEquals(60, raw.getQueueLength().length);
+        assertEquals(8, raw.getQueueLength()[10]);
+        assertEquals(0, raw.getIdleExecutors()[10]);
+        assertNull(raw.getQueueLengthMax());
+        assertEquals(START + 59 * CLOCK + 3, raw.getEnd());
+
+        LoadHistory.Tier medium = tiers.get(1);
+        assertEquals(TimeUnit.MINUTES.toMillis(5), medium.getPeriod());
+        assertArrayEquals(new float[] {8f / 30, 0}, medium.getQueueLength());
+        assertArrayEquals(new float[] {8, 0}, medium.getQueueLengthMax());
+        assertArrayEquals(new float[] {2, 2}, medium.getBusyExecutors());
+        assertEquals(START + TimeUnit.MINUTES.toMillis(5), medium.getEnd(), "the current period is included");
+
+        LoadHistory.Tier hour = tiers.get(2);
+        assertEquals(1, hour.getQueueLength().length);
+        assertEquals(START, hour.getEnd());
+    }
+
+    @Test
+    void recordsGaps() {
+        LoadHistory h = new LoadHistory(CLOCK);
+        h.record(START, 1, 1, 1);
+        h.record(START + CLOCK + 500, 2, 2, 2);
+        h.record(START + 4 * CLOCK, 3, 3, 3);
+        assertArrayEquals(new float[] {1, 2, -1, -1, 3}, h.getTiers().get(0).getQueueLength());
+
+        h.record(START + TimeUnit.MINUTES.toMillis(20), 4, 4, 4);
+        assertArrayEquals(new float[] {2, -1, -1, -1, 4}, h.getTiers().get(1).getQueueLength());
+    }
+
+    @Test
+    void wrapsAround() {
+        LoadHistory h = new LoadHistory(CLOCK);
+        for (int i = 0; i < 1000; i++) {
+            h.record(START + i * CLOCK, i, 0, 0);
+        }
+        float[] queue = h.getTiers().get(0).getQueueLength();
+        assertEquals(360, queue.length);
+        assertEquals(640, queue[0]);
+        assertEquals(999, queue[359]);
+    }
+
+    @Test
+    void survivesRestarts() throws IOException {
+        LoadHistory h = new LoadHistory(CLOCK);
+        for (int i = 0; i < 100; i++) {
+            h.record(START + i * CLOCK, i % 7, i % 3, 1);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            h.write(out);
+        }
+        LoadHistory restored = new LoadHistory(CLOCK);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored.read(in);
+        }
+        for (int t = 0; t < 3; t++) {
+            LoadHistory.Tier expected = h.getTiers().get(t);
+            LoadHistory.Tier actual = restored.getTiers().get(t);
+            assertEquals(expected.getEnd(), actual.getEnd());
+            assertArrayEquals(expected.getQueueLength(), actual.getQueueLength());
+            assertArrayEquals(expected.getBusyExecutorsMax(), actual.getBusyExecutorsMax());
+        }
+
+        // a different sampling period makes the raw samples meaningless
+        LoadHistory other = new LoadHistory(CLOCK * 2);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            other.read(in);
+        }
+        assertEquals(-1, other.getTiers().get(0).getEnd());
+    }
+}
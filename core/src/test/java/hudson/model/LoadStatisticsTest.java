@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import javax.imageio.ImageIO;
 import org.jfree.chart.JFreeChart;
 import org.junit.Test;
@@ -107,6 +108,27 @@ public class LoadStatisticsTest {
         assertThat(LoadStatistics.isModern(LoadStatistics.class), is(false));
     }
 
+    @Test
+    public void customSnapshotsAreNotComputedFromSharedCounts() {
+        LoadStatistics.LoadStatisticsSnapshot custom = LoadStatistics.LoadStatisticsSnapshot.builder().withQueueLength(7).build();
+        LoadStatistics.Counts counts = new LoadStatistics.Counts(List.of());
+        LoadStatistics snapshot = new Modern(0, 0) {
+            @Override
+            public LoadStatisticsSnapshot computeSnapshot() {
+                return custom;
+            }
+        };
+        assertThat(snapshot.computeSnapshot(counts), is(custom));
+        LoadStatistics queueSnapshot = new Modern(0, 0) {
+            @Override
+            protected LoadStatisticsSnapshot computeSnapshot(Iterable<Queue.BuildableItem> queue) {
+                return custom;
+            }
+        };
+        assertThat(queueSnapshot.computeSnapshot(counts), is(custom));
+        assertThat(new Modern(0, 0).computeSnapshot(counts).getQueueLength(), is(0));
+    }
+
     private static class Modern extends LoadStatistics {
 
         protected Modern(int initialOnlineExecutors, int initialBusyExecutors) {
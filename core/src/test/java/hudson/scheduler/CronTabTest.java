@@ -33,11 +33,14 @@ import static org.junit.Assert.assertThrows;
 
 import antlr.ANTLRException;
 import java.text.DateFormat;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 import java.util.TimeZone;
 import org.junit.Test;
 import org.jvnet.hudson.test.Issue;
@@ -353,4 +356,41 @@ public class CronTabTest {
         cal.set(Calendar.MONTH, Calendar.NOVEMBER);
         new CronTab("0 0 31 * *").ceil(cal); // would infinite loop
     }
+
+    @Test public void calendarFreeEvaluation() {
+        List<CronTab> tabs = List.of(
+                new CronTab("* * * * *"),
+                new CronTab("H/15 * * * *", Hash.from("stuff")),
+                new CronTab("H H(0-7) * * *", Hash.from("stuff")),
+                new CronTab("H 8 * * 1-5", Hash.from("stuff")),
+                new CronTab("0 0 1 */3 *"),
+                new CronTab("30 2 15 2 *"),
+                new CronTab("0 0 13 * 5"),
+                new CronTab("H 9 * * *", 1, Hash.from("stuff"), "Asia/Tokyo"));
+        Random random = new Random(1);
+        for (CronTab tab : tabs) {
+            TimeZone zone = tab.getTimeZone() == null ? TimeZone.getTimeZone("UTC") : tab.getTimeZone();
+            for (int i = 0; i < 200; i++) {
+                long t = 1_600_000_000_000L + Math.floorMod(random.nextLong(), 10 * 365 * 86_400_000L);
+                Calendar cal = new GregorianCalendar(zone, Locale.US);
+                cal.setTimeInMillis(t);
+                assertEquals(tab + " check " + t, tab.check(cal), tab.check(t, ZoneOffset.UTC));
+                assertEquals(tab + " ceil " + t, tab.ceil((Calendar) cal.clone()).getTimeInMillis(), tab.ceil(t, ZoneOffset.UTC));
+                assertEquals(tab + " floor " + t, tab.floor((Calendar) cal.clone()).getTimeInMillis(), tab.floor(t, ZoneOffset.UTC));
+            }
+        }
+    }
+
+    @Test public void calendarFreeEvaluationAcrossDaylightSavingTime() {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        CronTab tab = new CronTab("30 2 * * *");
+        // 2023-03-26 02:30 does not exist in Berlin
+        long beforeGap = 1679787000000L; // 2023-03-26T00:30+01:00
+        assertEquals(1679877000000L /* 2023-03-27T02:30+02:00 */, tab.ceil(beforeGap, berlin));
+        // 2023-10-29 02:30 happens twice
+        long firstOccurrence = 1698539400000L; // 2023-10-29T02:30+02:00
+        assertEquals(firstOccurrence, tab.ceil(firstOccurrence - 60_000L, berlin));
+        assertEquals(firstOccurrence + 3_600_000L, tab.ceil(firstOccurrence + 60_000L, berlin));
+        assertThrows(RareOrImpossibleDateException.class, () -> new CronTab("0 0 31 2 *").ceil(beforeGap, berlin));
+    }
 }
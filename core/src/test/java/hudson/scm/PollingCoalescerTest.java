@@ -0,0 +1,85 @@
+package hudson.scm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class PollingCoalescerTest {
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @Test
+    void concurrentPollsShareOneQuery() throws Exception {
+        PollingCoalescer coalescer = new PollingCoalescer(0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<PollingResult> first = executor.submit(() -> coalescer.poll("repo", "a", TaskListener.NULL, () -> {
+                started.countDown();
+                release.await();
+                return query(PollingResult.SIGNIFICANT);
+            }));
+            started.await();
+            // the first poll completes once the second one reports that it waits for it
+            TaskListener waiting = new StreamTaskListener(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    release.countDown();
+                }
+            }, StandardCharsets.UTF_8);
+            PollingResult second = coalescer.poll("repo", "b", waiting, () -> query(PollingResult.NO_CHANGES));
+            assertSame(PollingResult.SIGNIFICANT, second);
+            assertSame(PollingResult.SIGNIFICANT, first.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, queries.get());
+        assertEquals(2, coalescer.getRequestCount());
+        assertEquals(1, coalescer.getSharedCount());
+        assertEquals(50, coalescer.getHitRate());
+
+        // completed polls are not reused without a window
+        assertSame(PollingResult.NO_CHANGES, coalescer.poll("repo", "c", TaskListener.NULL, () -> query(PollingResult.NO_CHANGES)));
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void recentResultsAreReused() throws Exception {
+        PollingCoalescer coalescer = new PollingCoalescer(60_000);
+        assertSame(PollingResult.NO_CHANGES, coalescer.poll("repo", "a", TaskListener.NULL, () -> query(PollingResult.NO_CHANGES)));
+        assertSame(PollingResult.NO_CHANGES, coalescer.poll("repo", "b", TaskListener.NULL, () -> query(PollingResult.SIGNIFICANT)));
+        assertSame(PollingResult.SIGNIFICANT, coalescer.poll("other", "c", TaskListener.NULL, () -> query(PollingResult.SIGNIFICANT)));
+        assertEquals(2, queries.get());
+        assertEquals(1, coalescer.getSharedCount());
+    }
+
+    @Test
+    void failuresAreNotShared() throws Exception {
+        PollingCoalescer coalescer = new PollingCoalescer(60_000);
+        assertThrows(IOException.class, () -> coalescer.poll("repo", "a", TaskListener.NULL, () -> {
+            queries.incrementAndGet();
+            throw new IOException("unreachable");
+        }));
+        assertSame(PollingResult.NO_CHANGES, coalescer.poll("repo", "b", TaskListener.NULL, () -> query(PollingResult.NO_CHANGES)));
+        assertEquals(2, queries.get());
+        assertEquals(0, coalescer.getSharedCount());
+    }
+
+    private PollingResult query(PollingResult result) {
+        queries.incrementAndGet();
+        return result;
+    }
+}
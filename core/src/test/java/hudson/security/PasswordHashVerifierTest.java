@@ -0,0 +1,87 @@
+package hudson.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+class PasswordHashVerifierTest {
+
+    private final AtomicInteger hashed = new AtomicInteger();
+    private final BiPredicate<CharSequence, String> matcher = (raw, encoded) -> {
+        hashed.incrementAndGet();
+        return encoded.equals("hash-of-" + raw);
+    };
+
+    @Test
+    void delegatesToMatcher() {
+        PasswordHashVerifier verifier = new PasswordHashVerifier(2, 2, TimeUnit.SECONDS.toMillis(10), 0);
+        assertTrue(verifier.matches("secret", "hash-of-secret", matcher));
+        assertFalse(verifier.matches("wrong", "hash-of-secret", matcher));
+        assertTrue(verifier.matches("secret", "hash-of-secret", matcher));
+        assertEquals(3, hashed.get());
+        assertEquals(3, verifier.getVerificationCount());
+        assertEquals(0, verifier.getCacheHitCount());
+    }
+
+    @Test
+    void remembersSuccessfulVerifications() {
+        PasswordHashVerifier verifier = new PasswordHashVerifier(2, 2, TimeUnit.SECONDS.toMillis(10), 60);
+        assertTrue(verifier.matches("secret", "hash-of-secret", matcher));
+        assertTrue(verifier.matches("secret", "hash-of-secret", matcher));
+        assertEquals(1, hashed.get());
+        assertEquals(1, verifier.getCacheHitCount());
+
+        // a wrong password is never answered from the cache
+        assertFalse(verifier.matches("wrong", "hash-of-secret", matcher));
+        assertFalse(verifier.matches("wrong", "hash-of-secret", matcher));
+        assertEquals(3, hashed.get());
+
+        // nor is the same password against another stored hash, e.g. after a password change
+        assertFalse(verifier.matches("secret", "hash-of-other", matcher));
+        assertEquals(4, hashed.get());
+    }
+
+    @Test
+    void refusesWhenSaturated() throws Exception {
+        PasswordHashVerifier verifier = new PasswordHashVerifier(1, 1, TimeUnit.SECONDS.toMillis(10), 0);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BiPredicate<CharSequence, String> slow = (raw, encoded) -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        };
+
+        ExecutorService requests = Executors.newFixedThreadPool(2);
+        Future<Boolean> first = requests.submit(() -> verifier.matches("a", "a", slow));
+        running.await();
+        Future<Boolean> queued = requests.submit(() -> verifier.matches("b", "b", slow));
+        // wait for the second verification to be queued
+        while (verifier.getQueuedCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        assertThrows(AuthenticationServiceException.class, () -> verifier.matches("c", "c", slow));
+        assertEquals(1, verifier.getRejectedCount());
+
+        release.countDown();
+        assertTrue(first.get());
+        assertTrue(queued.get());
+        requests.shutdown();
+    }
+}
@@ -0,0 +1,166 @@
+package hudson.slaves;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Replays a recorded queue trace against a simulated label and cloud
+ * to measure the time builds wait for an executor.
+ */
+class PredictiveStrategyImplTest {
+
+    /**
+     * Seconds for the cloud to bring an agent online, also used as {@link NodeProvisioner.PredictiveStrategyImpl#LEAD_TIME}.
+     */
+    private static final int LEAD_TIME = 60;
+
+    /**
+     * Seconds an idle agent from the cloud is kept.
+     */
+    private static final int RETENTION = 60;
+
+    private static final int STATIC_EXECUTORS = 2;
+
+    private static List<int[]> trace;
+
+    @BeforeAll
+    static void readTrace() throws IOException {
+        trace = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                PredictiveStrategyImplTest.class.getResourceAsStream("queue-trace.txt"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    String[] fields = line.split(" ");
+                    trace.add(new int[] {Integer.parseInt(fields[0]), Integer.parseInt(fields[1])});
+                }
+            }
+        }
+    }
+
+    @Test
+    void excessWorkload() {
+        assertEquals(0, NodeProvisioner.PredictiveStrategyImpl.excessWorkload(3, 3, 0, 0, 0));
+        assertEquals(4, NodeProvisioner.PredictiveStrategyImpl.excessWorkload(10, 1, 2, 2, 1));
+        assertEquals(0, NodeProvisioner.PredictiveStrategyImpl.excessWorkload(2, 0, 0, 0, 5));
+    }
+
+    @Test
+    void replayTrace() {
+        Simulation predictive = new Simulation(true).run();
+        Simulation snapshotOnly = new Simulation(false).run();
+
+        assertEquals(trace.size(), predictive.started);
+        assertThat("no build waits longer than it takes to bring an agent online",
+                predictive.maxWait, lessThanOrEqualTo(LEAD_TIME + 1));
+        assertThat(predictive.totalWait / predictive.started, lessThan((long) LEAD_TIME));
+        assertThat(predictive.provisioned, greaterThan(0));
+        assertThat("executors about to become available are waited for",
+                predictive.provisioned, lessThan(snapshotOnly.provisioned));
+        assertThat(predictive.unused, lessThan(snapshotOnly.unused));
+    }
+
+    private static final class Executor {
+        final boolean cloud;
+        int busyUntil;
+        int idleSince;
+        int builds;
+
+        Executor(boolean cloud, int now) {
+            this.cloud = cloud;
+            this.idleSince = now;
+        }
+    }
+
+    /**
+     * Reviews provisioning every second, as {@link NodeProvisioner#suggestReviewNow} does while items become buildable.
+     */
+    private static final class Simulation {
+        private final boolean countEndingSoon;
+        final List<Executor> executors = new ArrayList<>();
+        final List<Integer> planned = new ArrayList<>();
+        final Deque<int[]> queue = new ArrayDeque<>();
+        int started;
+        int maxWait;
+        long totalWait;
+        int provisioned;
+        int unused;
+
+        Simulation(boolean countEndingSoon) {
+            this.countEndingSoon = countEndingSoon;
+        }
+
+        Simulation run() {
+            for (int i = 0; i < STATIC_EXECUTORS; i++) {
+                executors.add(new Executor(false, 0));
+            }
+            int next = 0;
+            for (int now = 0; next < trace.size() || !queue.isEmpty() || !planned.isEmpty(); now++) {
+                final int t = now;
+                int planning = planned.size();
+                planned.removeIf(online -> online == t);
+                for (int i = planning - planned.size(); i > 0; i--) {
+                    executors.add(new Executor(true, now));
+                }
+                while (next < trace.size() && trace.get(next)[0] == now) {
+                    queue.add(trace.get(next++));
+                }
+                for (Executor e : executors) {
+                    if (e.busyUntil <= now && !queue.isEmpty()) {
+                        int[] build = queue.poll();
+                        int wait = now - build[0];
+                        maxWait = Math.max(maxWait, wait);
+                        totalWait += wait;
+                        started++;
+                        e.busyUntil = now + build[1];
+                        e.builds++;
+                    }
+                }
+                executors.removeIf(e -> {
+                    if (e.cloud && e.busyUntil <= t && t - Math.max(e.idleSince, e.busyUntil) >= RETENTION) {
+                        if (e.builds == 0) {
+                            unused++;
+                        }
+                        return true;
+                    }
+                    return false;
+                });
+
+                int available = 0;
+                int endingSoon = 0;
+                for (Executor e : executors) {
+                    if (e.busyUntil <= now) {
+                        available++;
+                    } else if (countEndingSoon && e.busyUntil - now <= LEAD_TIME) {
+                        endingSoon++;
+                    }
+                }
+                int excess = NodeProvisioner.PredictiveStrategyImpl.excessWorkload(queue.size(), available, 0, planned.size(), endingSoon);
+                for (int i = 0; i < excess; i++) {
+                    planned.add(now + LEAD_TIME);
+                    provisioned++;
+                }
+            }
+            for (Executor e : executors) {
+                if (e.cloud && e.builds == 0) {
+                    unused++;
+                }
+            }
+            return this;
+        }
+    }
+}
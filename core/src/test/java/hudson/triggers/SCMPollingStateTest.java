@@ -0,0 +1,81 @@
+package hudson.triggers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.scheduler.CronTabList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SCMPollingStateTest {
+
+    @Test
+    void backsOffAfterFailures() {
+        SCMPollingState state = new SCMPollingState();
+        poll(state, SCMPollingState.Outcome.FAILED);
+        assertEquals(1, state.getSkippedPollCount());
+        assertTrue(state.skipScheduledPoll());
+        assertFalse(state.skipScheduledPoll());
+
+        poll(state, SCMPollingState.Outcome.FAILED);
+        poll(state, SCMPollingState.Outcome.FAILED);
+        assertEquals(7, state.getSkippedPollCount());
+        poll(state, SCMPollingState.Outcome.FAILED);
+        assertEquals(7, state.getSkippedPollCount(), "at most 8 times slower by default");
+
+        poll(state, SCMPollingState.Outcome.NO_CHANGES);
+        assertEquals(0, state.getSkippedPollCount(), "unchanged results do not back off by default");
+        assertFalse(state.skipScheduledPoll());
+        assertEquals(5, state.getPollCount());
+        assertEquals(4, state.getFailureCount());
+    }
+
+    @Test
+    void reportedErrorsAreFailures() {
+        SCMPollingState state = new SCMPollingState();
+        state.started(System.currentTimeMillis());
+        state.pollingFailed();
+        state.finished(SCMPollingState.Outcome.NO_CHANGES);
+        assertEquals(1, state.getFailureCount());
+        assertEquals(1, state.getSkippedPollCount());
+
+        poll(state, SCMPollingState.Outcome.NO_CHANGES);
+        assertEquals(1, state.getFailureCount(), "forgotten by the next poll");
+    }
+
+    @Test
+    void nextScheduledPoll() {
+        long now = TimeUnit.HOURS.toMillis(1000) + TimeUnit.MINUTES.toMillis(20) + 1234;
+        assertEquals(now - 1234 + TimeUnit.MINUTES.toMillis(1), SCMPollingState.nextScheduledPoll(null, now));
+        long next = SCMPollingState.nextScheduledPoll(CronTabList.create("0 * * * *"), now);
+        assertTrue(next > now + TimeUnit.MINUTES.toMillis(1));
+        assertTrue(next <= now + TimeUnit.HOURS.toMillis(1));
+    }
+
+    @Test
+    void recordsQueueDelay() throws Exception {
+        SCMPollingState state = new SCMPollingState();
+        state.submitted();
+        Thread.sleep(20);
+        state.started(System.currentTimeMillis());
+        state.finished(SCMPollingState.Outcome.CHANGES);
+        assertTrue(state.getLastQueueDelay() >= 20);
+        assertEquals(state.getLastQueueDelay(), state.getAverageQueueDelay());
+    }
+
+    @Test
+    void hostOfKey() {
+        assertEquals("github.com", SCMPollingState.hostOf("git https://github.com/jenkinsci/jenkins.git"));
+        assertEquals("scm.example.com", SCMPollingState.hostOf("git ssh://git@SCM.example.com:2222/repo.git"));
+        assertEquals("scm.example.com", SCMPollingState.hostOf("git git@scm.example.com:org/repo.git"));
+        assertEquals("svn.example.com", SCMPollingState.hostOf("svn https://user@svn.example.com/repos/trunk"));
+        assertNull(SCMPollingState.hostOf("none"));
+    }
+
+    private static void poll(SCMPollingState state, SCMPollingState.Outcome outcome) {
+        state.started(System.currentTimeMillis());
+        state.finished(outcome);
+    }
+}
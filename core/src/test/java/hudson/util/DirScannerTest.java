@@ -24,11 +24,21 @@
 
 package hudson.util;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
 
 import hudson.FilePath;
+import hudson.Util;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.tools.ant.types.FileSet;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -85,6 +95,72 @@ public class DirScannerTest {
         }
     }
 
+    @Test public void streamingGlobMatchesLikeGlob() throws Exception {
+        FilePath tmp = new FilePath(tmpRule.getRoot());
+        for (String path : new String[] {"a.txt", "A.TXT", "src/main/X.java", "src/test/Y.java", "target/app.jar", "target/classes/Z.class",
+                                         "target/classes/a.txt", ".git/HEAD", "deep/er/than/that/b.txt", "notes~"}) {
+            tmp.child(path).touch(0);
+        }
+        File dir = new File(tmp.getRemote());
+        for (String[] patterns : new String[][] {{"**", null}, {"**/*.txt", null}, {"*.txt", null}, {"src/**", "**/test/**"},
+                                                 {"target/", null}, {"target/*.jar, **/*.java", ""}, {"**/?.*", "src/"}, {"deep/**/that/*", null}}) {
+            for (boolean caseSensitive : new boolean[] {true, false}) {
+                for (boolean defaultExcludes : new boolean[] {true, false}) {
+                    FileSet fs = Util.createFileSet(dir, patterns[0], patterns[1]);
+                    fs.setCaseSensitive(caseSensitive);
+                    fs.setDefaultexcludes(defaultExcludes);
+                    Set<String> expected = new TreeSet<>();
+                    for (String f : fs.getDirectoryScanner().getIncludedFiles()) {
+                        expected.add(f.replace(File.separatorChar, '/'));
+                    }
+                    for (int parallelism : new int[] {1, 3}) {
+                        DirScanner.StreamingGlob glob = new DirScanner.StreamingGlob(patterns[0], patterns[1], defaultExcludes);
+                        glob.setCaseSensitive(caseSensitive);
+                        glob.setParallelism(parallelism);
+                        Set<String> actual = new TreeSet<>();
+                        glob.scan(dir, new FileVisitor() {
+                            @Override
+                            public void visit(File f, String relativePath) {
+                                assertTrue(relativePath, actual.add(relativePath));
+                            }
+                        });
+                        assertEquals(Arrays.toString(patterns) + " caseSensitive=" + caseSensitive + " defaultExcludes=" + defaultExcludes,
+                                expected, actual);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test public void streamingGlobReplacesAntOnlyWhereEquivalent() {
+        assertTrue(DirScanner.StreamingGlob.isEquivalentToAnt("**/*.jar, *.txt", true));
+        assertTrue(DirScanner.StreamingGlob.isEquivalentToAnt("", true));
+        assertTrue(DirScanner.StreamingGlob.isEquivalentToAnt("target/**/*.class", true));
+        assertFalse(DirScanner.StreamingGlob.isEquivalentToAnt("**/*.jar", false));
+        assertFalse(DirScanner.StreamingGlob.isEquivalentToAnt("target/**", true));
+        assertFalse(DirScanner.StreamingGlob.isEquivalentToAnt("*.txt, target/", true));
+        assertFalse(DirScanner.StreamingGlob.isEquivalentToAnt("target\\**", true));
+        assertFalse("off by default", DirScanner.StreamingGlob.isEnabled("**/*.jar", true));
+    }
+
+    @Test public void streamingGlobStopsAtSymlinkCycles() throws Exception {
+        FilePath tmp = new FilePath(tmpRule.getRoot());
+        tmp.child("a/b.txt").touch(0);
+        try {
+            Files.createSymbolicLink(new File(tmp.getRemote(), "a/loop").toPath(), Paths.get(".."));
+        } catch (IOException | UnsupportedOperationException x) {
+            assumeNoException(x);
+        }
+        Set<String> visited = new TreeSet<>();
+        new DirScanner.StreamingGlob("**", null, true).scan(new File(tmp.getRemote()), new FileVisitor() {
+            @Override
+            public void visit(File f, String relativePath) {
+                visited.add(relativePath);
+            }
+        });
+        assertEquals(Set.of("a/b.txt"), visited);
+    }
+
     private static class MatchingFileVisitor extends FileVisitor {
 
         public boolean found = false;
@@ -1,11 +1,20 @@
 package hudson.util.io;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import org.junit.Assume;
@@ -72,4 +81,55 @@ public class ZipArchiverTest {
             assertEquals(length, zipEntry.getSize());
         }
     }
+
+    @Test
+    public void storesCompressedFiles() throws IOException {
+        int available = ZipArchiver.READ_AHEAD.availablePermits();
+        archiveCompressedAndUncompressedFiles();
+        assertEquals("read-ahead budget is given back", available, ZipArchiver.READ_AHEAD.availablePermits());
+    }
+
+    @Test
+    public void writesInTurnWithoutReadAheadBudget() throws IOException {
+        int all = ZipArchiver.READ_AHEAD.drainPermits();
+        try {
+            archiveCompressedAndUncompressedFiles();
+            assertEquals(0, ZipArchiver.READ_AHEAD.availablePermits());
+        } finally {
+            ZipArchiver.READ_AHEAD.release(all);
+        }
+    }
+
+    private void archiveCompressedAndUncompressedFiles() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        byte[] random = new byte[ZipArchiver.MAX_BUFFERED_SIZE + 1];
+        new Random(0).nextBytes(random);
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            files.put("text" + i + ".txt", ("line " + i + "\n").repeat(100 * (i + 1)).getBytes(StandardCharsets.UTF_8));
+        }
+        files.put("small.jar", Arrays.copyOf(random, 1000));
+        files.put("large.jar", random);
+        files.put("large.log", "some log line\n".repeat(ZipArchiver.MAX_BUFFERED_SIZE / 10).getBytes(StandardCharsets.UTF_8));
+        Path zipFile = Files.createTempFile(tmp.getRoot().toPath(), "test", ".zip");
+        try (ZipArchiver archiver = new ZipArchiver(Files.newOutputStream(zipFile))) {
+            for (Map.Entry<String, byte[]> e : files.entrySet()) {
+                Path file = dir.resolve(e.getKey());
+                Files.write(file, e.getValue());
+                archiver.visit(file.toFile(), e.getKey());
+            }
+        }
+
+        try (ZipFile zipFileVerify = new ZipFile(zipFile.toFile())) {
+            assertEquals("entries are in the order visited", new ArrayList<>(files.keySet()),
+                    zipFileVerify.stream().map(ZipEntry::getName).collect(Collectors.toList()));
+            for (Map.Entry<String, byte[]> e : files.entrySet()) {
+                ZipEntry zipEntry = zipFileVerify.getEntry(e.getKey());
+                assertEquals(e.getKey(), e.getKey().endsWith(".jar") ? ZipEntry.STORED : ZipEntry.DEFLATED, zipEntry.getMethod());
+                try (InputStream in = zipFileVerify.getInputStream(zipEntry)) {
+                    assertArrayEquals(e.getKey(), e.getValue(), in.readAllBytes());
+                }
+            }
+        }
+    }
 }
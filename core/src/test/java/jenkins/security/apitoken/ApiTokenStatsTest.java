@@ -105,6 +105,7 @@ public class ApiTokenStatsTest {
 
                 ApiTokenStats.SingleTokenStats stats = tokenStats.updateUsageForId(ID_1);
                 assertEquals(1, stats.getUseCounter());
+                ApiTokenStats.flushAll();
 
                 lastUsage = stats.getLastUseDate();
                 assertNotNull(lastUsage);
@@ -121,6 +122,7 @@ public class ApiTokenStatsTest {
 
                 ApiTokenStats.SingleTokenStats stats = tokenStats.updateUsageForId(ID_1);
                 assertEquals(2, stats.getUseCounter());
+                ApiTokenStats.flushAll();
                 assertThat(lastUsage, lessThan(stats.getLastUseDate()));
 
                 // to avoid flaky test in case the test is run at midnight, normally it's 0
@@ -142,6 +144,7 @@ public class ApiTokenStatsTest {
                     assertNotNull(lastUsage);
                     assertThat(stats.getNumDaysUse(), lessThanOrEqualTo(1L));
                 }
+                ApiTokenStats.flushAll();
             }
 
             { // reload the stats, check the counter are correct
@@ -166,6 +169,26 @@ public class ApiTokenStatsTest {
         }
     }
 
+    @Test
+    public void usagesAreOnlyWrittenOnFlush() throws Exception {
+        final String ID = UUID.randomUUID().toString();
+
+        ApiTokenPropertyConfiguration mockConfig = mock(ApiTokenPropertyConfiguration.class);
+        try (MockedStatic<ApiTokenPropertyConfiguration> mocked = mockStatic(ApiTokenPropertyConfiguration.class)) {
+            mocked.when(ApiTokenPropertyConfiguration::get).thenReturn(mockConfig);
+            Mockito.when(mockConfig.isUsageStatisticsEnabled()).thenReturn(true);
+
+            ApiTokenStats tokenStats = createFromFile(tmp.getRoot());
+            for (int i = 0; i < 10; i++) {
+                tokenStats.updateUsageForId(ID);
+            }
+            assertEquals(0, createFromFile(tmp.getRoot()).findTokenStatsById(ID).getUseCounter());
+
+            ApiTokenStats.flushAll();
+            assertEquals(10, createFromFile(tmp.getRoot()).findTokenStatsById(ID).getUseCounter());
+        }
+    }
+
     @Test
     public void testResilientIfFileDoesNotExist() {
         ApiTokenPropertyConfiguration mockConfig = mock(ApiTokenPropertyConfiguration.class);
@@ -199,6 +222,7 @@ public class ApiTokenStatsTest {
                 tokenStats.updateUsageForId(ID_3);
                 // only the most recent information is kept
                 tokenStats.updateUsageForId(ID_2);
+                ApiTokenStats.flushAll();
             }
 
             { // replace the ID_1 with ID_2 in the file
@@ -334,6 +358,7 @@ public class ApiTokenStatsTest {
             );
 
             assertThat(stats.getNumDaysUse(), greaterThanOrEqualTo(2L));
+            ApiTokenStats.flushAll();
         }
     }
 
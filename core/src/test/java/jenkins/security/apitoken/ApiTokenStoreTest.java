@@ -0,0 +1,57 @@
+package jenkins.security.apitoken;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class ApiTokenStoreTest {
+
+    @Test
+    public void findMatchingToken() {
+        ApiTokenStore store = new ApiTokenStore();
+        TokenUuidAndPlainValue first = store.generateNewToken("first");
+        TokenUuidAndPlainValue second = store.generateNewToken("second");
+
+        ApiTokenStore.HashedToken match = store.findMatchingToken(first.plainValue);
+        assertNotNull(match);
+        assertEquals(first.tokenUuid, match.getUuid());
+        match = store.findMatchingToken(second.plainValue);
+        assertNotNull(match);
+        assertEquals(second.tokenUuid, match.getUuid());
+
+        assertNull(store.findMatchingToken("11" + "0".repeat(32)));
+        assertNull(store.findMatchingToken("not-a-token"));
+    }
+
+    @Test
+    public void revokedTokensDoNotMatch() {
+        ApiTokenStore store = new ApiTokenStore();
+        TokenUuidAndPlainValue first = store.generateNewToken("first");
+        TokenUuidAndPlainValue second = store.generateNewToken("second");
+        TokenUuidAndPlainValue third = store.generateNewToken("third");
+
+        store.revokeToken(first.tokenUuid);
+        assertNull(store.findMatchingToken(first.plainValue));
+        assertNotNull(store.findMatchingToken(second.plainValue));
+
+        store.revokeAllTokensExcept(third.tokenUuid);
+        assertNull(store.findMatchingToken(second.plainValue));
+        assertNotNull(store.findMatchingToken(third.plainValue));
+
+        store.revokeAllTokens();
+        assertNull(store.findMatchingToken(third.plainValue));
+    }
+
+    @Test
+    public void fixedTokenMatches() {
+        ApiTokenStore store = new ApiTokenStore();
+        String plainValue = "11" + "0123456789abcdef0123456789ABCDEF";
+        String uuid = store.addFixedNewToken("fixed", plainValue);
+
+        ApiTokenStore.HashedToken match = store.findMatchingToken("11" + "0123456789abcdef0123456789abcdef");
+        assertNotNull(match);
+        assertEquals(uuid, match.getUuid());
+    }
+}
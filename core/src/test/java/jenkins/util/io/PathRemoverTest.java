@@ -30,6 +30,8 @@ import static org.hamcrest.Matchers.arrayWithSize;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -59,6 +61,7 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Rule;
 import org.junit.Test;
@@ -446,6 +449,96 @@ public class PathRemoverTest {
         assertThat(dir.listFiles().length, equalTo(lockedFiles));
     }
 
+    @Test
+    public void testForceRemoveRecursive_Parallel() throws IOException {
+        File dir = tmp.newFolder();
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            File sub = new File(dir, "d" + i);
+            mkdirs(sub);
+            for (int j = 0; j < 300; j++) {
+                files.add(new File(sub, "f" + j));
+            }
+        }
+        touchWithFileName(files.toArray(new File[0]));
+        File outside = tmp.newFile();
+        touchWithFileName(outside);
+        if (!Functions.isWindows()) {
+            Files.createSymbolicLink(new File(dir, "d0/sym-file").toPath(), outside.toPath());
+        }
+
+        PathRemover remover = PathRemover.newSimpleRemover().parallel();
+        remover.forceRemoveRecursive(dir.toPath());
+
+        assertFalse(dir.exists());
+        assertTrue(outside.exists());
+    }
+
+    @Test
+    public void testForceRemoveRecursive_ParallelStopsOnCheckerFailure() throws IOException {
+        File dir = tmp.newFolder();
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            File sub = new File(dir, "d" + i);
+            mkdirs(sub);
+            for (int j = 0; j < 300; j++) {
+                files.add(new File(sub, "f" + j));
+            }
+        }
+        touchWithFileName(files.toArray(new File[0]));
+        AtomicInteger checked = new AtomicInteger();
+
+        PathRemover remover = PathRemover.newFilteredRobustRemover(path -> {
+            if (checked.incrementAndGet() == 10) {
+                throw new SecurityException("refusing " + path);
+            }
+        }, 0, false, 0).parallel();
+        assertThrows(SecurityException.class, () -> remover.forceRemoveRecursive(dir.toPath()));
+
+        assertTrue(dir.exists());
+        long remaining = files.stream().filter(File::exists).count();
+        assertThat("most files are left alone once a task failed", remaining, greaterThan(files.size() / 2L));
+    }
+
+    @Test
+    public void testRemoveRecursiveInBackground() throws Exception {
+        File dir = tmp.newFolder();
+        File d1 = new File(dir, "d1");
+        File d1f1 = new File(d1, "d1f1");
+        File f2 = new File(dir, "f2");
+        mkdirs(d1);
+        touchWithFileName(d1f1, f2);
+
+        PathRemover remover = PathRemover.newSimpleRemover();
+        remover.removeRecursiveInBackground(dir.toPath()).get(5, TimeUnit.SECONDS);
+
+        assertFalse(dir.exists());
+    }
+
+    @Test
+    public void testThrottledRemoverKeepsToRate() throws Exception {
+        File dir = tmp.newFolder();
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            files.add(new File(dir, "f" + i));
+        }
+        touchWithFileName(files.toArray(new File[0]));
+
+        int deletionsPerSecond = PathRemover.BACKGROUND_DELETIONS_PER_SECOND;
+        PathRemover.BACKGROUND_DELETIONS_PER_SECOND = 50;
+        try {
+            long start = System.nanoTime();
+            PathRemover.newSimpleRemover().throttled().forceRemoveRecursive(dir.toPath());
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertFalse(dir.exists());
+            // 21 deletions 20ms apart; the first one may go right away
+            assertThat(elapsed, greaterThanOrEqualTo(380L));
+        } finally {
+            PathRemover.BACKGROUND_DELETIONS_PER_SECOND = deletionsPerSecond;
+        }
+    }
+
     private static void mkdirs(File... dirs) {
         for (File dir : dirs) {
             assertTrue("Could not mkdir " + dir, dir.mkdir());
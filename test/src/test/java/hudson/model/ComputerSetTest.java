@@ -32,14 +32,20 @@ import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import hudson.cli.CLICommandInvoker;
+import hudson.node_monitors.ArchitectureMonitor;
 import hudson.slaves.DumbSlave;
 import hudson.slaves.OfflineCause;
 import java.net.HttpURLConnection;
+import java.util.List;
 import jenkins.model.Jenkins;
 import jenkins.widgets.ExecutorsWidget;
 import jenkins.widgets.HasWidgetHelper;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
 import org.htmlunit.Page;
 import org.htmlunit.html.HtmlForm;
 import org.htmlunit.html.HtmlPage;
@@ -97,6 +103,38 @@ public class ComputerSetTest {
         assertThat(ComputerSet.getComputerNames(), containsInAnyOrder("aNode", "anAnotherNode"));
     }
 
+    @Test
+    public void nodeStatus() throws Exception {
+        j.createSlave("a", "linux", null);
+        j.createSlave("b", "linux docker", null);
+        j.createSlave("c", "windows", null);
+
+        JSONObject page = j.getJSON("computer/nodeStatus?label=linux&limit=1").getJSONObject();
+        JSONArray computers = page.getJSONArray("computers");
+        assertEquals(1, computers.size());
+        JSONObject a = computers.getJSONObject(0);
+        assertEquals("a", a.getString("name"));
+        assertTrue(a.getBoolean("offline"));
+        assertEquals(1, a.getInt("numExecutors"));
+        assertEquals(List.of("linux"), a.getJSONArray("assignedLabels"));
+        assertTrue(a.getJSONObject("monitorData").containsKey(ArchitectureMonitor.class.getName()));
+        assertEquals("a", page.getString("next"));
+
+        page = j.getJSON("computer/nodeStatus?label=linux&limit=1&after=a").getJSONObject();
+        assertEquals("b", page.getJSONArray("computers").getJSONObject(0).getString("name"));
+        assertEquals(List.of("docker", "linux"), page.getJSONArray("computers").getJSONObject(0).getJSONArray("assignedLabels"));
+        page = j.getJSON("computer/nodeStatus?label=linux&limit=1&after=b").getJSONObject();
+        assertTrue(page.getJSONArray("computers").isEmpty());
+        assertFalse(page.containsKey("next"));
+
+        page = j.getJSON("computer/nodeStatus").getJSONObject();
+        assertEquals(4, page.getJSONArray("computers").size());
+        assertEquals("", page.getJSONArray("computers").getJSONObject(0).getString("name"));
+
+        JenkinsRule.WebClient wc = j.createWebClient().withThrowExceptionOnFailingStatusCode(false);
+        assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, wc.goTo("computer/nodeStatus?label=linux%26%26", null).getWebResponse().getStatusCode());
+    }
+
     @Test
     public void managePermissionCanConfigure() throws Exception {
         final String USER = "user";
@@ -33,9 +33,11 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -86,6 +88,8 @@ import org.apache.commons.io.IOUtils;
 import org.hamcrest.MatcherAssert;
 import org.htmlunit.Page;
 import org.htmlunit.UnexpectedPage;
+import org.htmlunit.WebRequest;
+import org.htmlunit.WebResponse;
 import org.htmlunit.html.HtmlPage;
 import org.htmlunit.util.NameValuePair;
 import org.junit.Assume;
@@ -1359,6 +1363,60 @@ public class DirectoryBrowserSupportTest {
         MatcherAssert.assertThat(page.getWebResponse().getContentAsString(), containsString(content));
     }
 
+    @Test
+    public void servesByteRanges() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.setScm(new SingleFileSCM("f.bin", "0123456789"));
+        p.getPublishersList().add(new ArtifactArchiver("f.bin"));
+        FreeStyleBuild b = j.buildAndAssertSuccess(p);
+        JenkinsRule.WebClient wc = j.createWebClient().withThrowExceptionOnFailingStatusCode(false);
+        wc.getCache().setMaxSize(0); // responses to the same URL differ by their headers
+        URL url = new URL(j.getURL(), b.getUrl() + "artifact/f.bin");
+
+        WebResponse whole = wc.getPage(url).getWebResponse();
+        assertEquals(HttpURLConnection.HTTP_OK, whole.getStatusCode());
+        assertEquals("bytes", whole.getResponseHeaderValue("Accept-Ranges"));
+        assertEquals("0123456789", whole.getContentAsString());
+
+        WebRequest request = new WebRequest(url);
+        request.setAdditionalHeader("Range", "bytes=2-5");
+        WebResponse part = wc.getPage(request).getWebResponse();
+        assertEquals(HttpURLConnection.HTTP_PARTIAL, part.getStatusCode());
+        assertEquals("bytes 2-5/10", part.getResponseHeaderValue("Content-Range"));
+        assertEquals("2345", part.getContentAsString());
+
+        request.setAdditionalHeader("Range", "bytes=-3");
+        assertEquals("789", wc.getPage(request).getWebResponse().getContentAsString());
+
+        request.setAdditionalHeader("Range", "bytes=10-");
+        WebResponse unsatisfiable = wc.getPage(request).getWebResponse();
+        assertEquals(416, unsatisfiable.getStatusCode());
+        assertEquals("bytes */10", unsatisfiable.getResponseHeaderValue("Content-Range"));
+
+        request.setAdditionalHeader("Range", "bytes=2-5");
+        request.setAdditionalHeader("If-Range", "\"some-etag\"");
+        WebResponse changed = wc.getPage(request).getWebResponse();
+        assertEquals(HttpURLConnection.HTTP_OK, changed.getStatusCode());
+        assertEquals("0123456789", changed.getContentAsString());
+
+        request = new WebRequest(new URL(url + "/*view*"));
+        request.setAdditionalHeader("Range", "bytes=8-");
+        assertEquals("89", wc.getPage(request).getWebResponse().getContentAsString());
+    }
+
+    @Test
+    public void parsesRanges() {
+        assertArrayEquals(new long[] {0, 9}, DirectoryBrowserSupport.parseRange("bytes=0-", null, 0, 10));
+        assertArrayEquals(new long[] {5, 9}, DirectoryBrowserSupport.parseRange("bytes=5-100", null, 0, 10));
+        assertArrayEquals(new long[] {0, 9}, DirectoryBrowserSupport.parseRange("bytes=-100", null, 0, 10));
+        assertEquals(0, DirectoryBrowserSupport.parseRange("bytes=-0", null, 0, 10).length);
+        assertNull("multiple ranges are ignored", DirectoryBrowserSupport.parseRange("bytes=0-1,3-4", null, 0, 10));
+        assertNull(DirectoryBrowserSupport.parseRange("bytes=5-2", null, 0, 10));
+        assertNull(DirectoryBrowserSupport.parseRange("lines=1-2", null, 0, 10));
+        assertArrayEquals(new long[] {1, 2}, DirectoryBrowserSupport.parseRange("bytes=1-2", "Wed, 21 Oct 2015 07:28:00 GMT", 1445412480000L, 10));
+        assertNull(DirectoryBrowserSupport.parseRange("bytes=1-2", "Wed, 21 Oct 2015 07:28:00 GMT", 1445412481000L, 10));
+    }
+
     public static final class SimulatedExternalArtifactManagerFactory extends ArtifactManagerFactory {
         @Override
         public ArtifactManager managerFor(Run<?, ?> build) {
@@ -180,6 +180,35 @@ public class LabelLoadStatisticsQueueLengthTest {
                 altLabelQueueLength > 0f);
     }
 
+    /**
+     * Verify that the snapshots computed from the counts shared by all labels
+     * are the same as those computed for each label on its own.
+     */
+    @Test
+    public void sharedCountsMatchSnapshots() throws Exception {
+        final Label label = Label.get(LABEL_STRING);
+        final Label altLabel = Label.get(ALT_LABEL_STRING);
+        final Label expression = Label.parseExpression(LABEL_STRING + " && " + ALT_LABEL_STRING);
+
+        FreeStyleProject project = createTestProject();
+        project.setAssignedLabel(label);
+        for (int i = 0; i < 2; i++) {
+            assertNotNull(project.scheduleBuild2(0, CAUSE,
+                    new ParametersAction(new StringParameterValue(
+                            PARAMETER_NAME, String.valueOf(i)))));
+        }
+        maintainQueueAndForceRunOfLoadStatisticsUpdater(project);
+
+        Queue queue = j.getInstance().getQueue();
+        LoadStatistics.Counts counts = new LoadStatistics.Counts(queue.getBuildableItems());
+        for (Label l : new Label[] {label, altLabel, expression}) {
+            assertEquals(l.loadStatistics.computeSnapshot(queue.getBuildableItems()), l.loadStatistics.computeSnapshot(counts));
+        }
+        assertEquals(2, label.loadStatistics.computeSnapshot(counts).getQueueLength());
+        assertEquals(0, altLabel.loadStatistics.computeSnapshot(counts).getQueueLength());
+        assertEquals(j.getInstance().unlabeledLoad.computeSnapshot(queue.getBuildableItems()), j.getInstance().unlabeledLoad.computeSnapshot(counts));
+    }
+
     private FreeStyleProject createTestProject() throws IOException {
         FreeStyleProject project = j.createFreeStyleProject(PROJECT_NAME);
         // In order to queue multiple builds of the job it needs to be
@@ -3,10 +3,13 @@ package hudson.model.labels;
 import static org.junit.Assert.assertTrue;
 
 import hudson.model.Label;
+import hudson.model.Node;
 import hudson.slaves.DumbSlave;
 import hudson.slaves.JNLPLauncher;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import jenkins.benchmark.jmh.JmhBenchmark;
 import jenkins.benchmark.jmh.JmhBenchmarkState;
@@ -58,6 +61,59 @@ public class LabelBenchmarkTest {
         }
     }
 
+    @JmhBenchmark
+    public static class LabelMatchBenchmark {
+        public static class StateImpl extends JmhBenchmarkState {
+            List<Node> nodes;
+            Set<LabelAtom> atoms;
+            Label simple;
+            Label complex;
+
+            @Override
+            public void setup() throws Exception {
+                for (int i = 0; i < 50; i++) {
+                    DumbSlave agent = new DumbSlave("agent" + i, "/tmp/agent" + i, new JNLPLauncher());
+                    agent.setLabelString((i % 2 == 0 ? "linux" : "windows") + " jdk" + (8 + i % 3) + " rack" + i % 5 + (i % 7 == 0 ? " docker" : ""));
+                    getJenkins().addNode(agent);
+                }
+                nodes = getJenkins().getNodes();
+                atoms = nodes.get(0).getAssignedLabels();
+                simple = getJenkins().getLabel("linux");
+                complex = getJenkins().getLabel("linux && (jdk11 || jdk17) && !docker && !rack3");
+            }
+        }
+
+        @Benchmark
+        public void matchesNodesSimple(StateImpl state, Blackhole blackhole) {
+            for (Node n : state.nodes) {
+                blackhole.consume(state.simple.matches(n));
+            }
+        }
+
+        @Benchmark
+        public void matchesNodesComplex(StateImpl state, Blackhole blackhole) {
+            for (Node n : state.nodes) {
+                blackhole.consume(state.complex.matches(n));
+            }
+        }
+
+        @Benchmark
+        public void matchesAtoms(StateImpl state, Blackhole blackhole) {
+            blackhole.consume(state.complex.matches(state.atoms));
+        }
+
+        /**
+         * What computing {@link Label#getNodes()} of every label costs.
+         */
+        @Benchmark
+        public void matchesAllLabels(StateImpl state, Blackhole blackhole) {
+            for (Label l : state.getJenkins().getLabels()) {
+                for (Node n : state.nodes) {
+                    blackhole.consume(l.matches(n));
+                }
+            }
+        }
+    }
 
     @JmhBenchmark
     public static class LabelBenchmark {
@@ -27,12 +27,14 @@ package hudson.model.labels;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeFalse;
 
 import antlr.ANTLRException;
+import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Functions;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
@@ -41,9 +43,13 @@ import hudson.model.BuildListener;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.model.Label;
+import hudson.model.LabelFinder;
+import hudson.model.Node;
 import hudson.slaves.DumbSlave;
+import hudson.slaves.JNLPLauncher;
 import hudson.slaves.RetentionStrategy;
 import java.lang.reflect.Field;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.Future;
@@ -54,6 +60,7 @@ import org.jvnet.hudson.test.Issue;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.SequenceLock;
 import org.jvnet.hudson.test.TestBuilder;
+import org.jvnet.hudson.test.TestExtension;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -154,6 +161,80 @@ public class LabelExpressionTest {
         assertSame("bar", s.getLabelString());
     }
 
+    /**
+     * Bit sets are cached for nodes parsing their labels on each call, and follow their dynamic labels.
+     */
+    @Test
+    public void labelBitsFollowLabelStringAndDynamicLabels() throws Exception {
+        PlainNode n = new PlainNode("plain", tempFolder.newFolder().getPath());
+        n.setLabelString("linux");
+        Label linux = j.jenkins.getLabel("linux");
+        Label dynamic = j.jenkins.getLabel("linux && dynamic");
+        assertTrue(linux.matches(n));
+        assertSame(n.getLabelBits(), n.getLabelBits());
+
+        n.setLabelString("windows");
+        assertFalse(linux.matches(n));
+
+        n.setLabelString("linux");
+        assertFalse(dynamic.matches(n));
+        DynamicLabels.labels = Set.of(j.jenkins.getLabelAtom("dynamic"));
+        try {
+            assertFalse("dynamic labels are looked up again once invalidated", dynamic.matches(n));
+            LabelBits.invalidate();
+            assertTrue(dynamic.matches(n));
+        } finally {
+            DynamicLabels.labels = Set.of();
+        }
+        LabelBits.invalidate();
+        assertFalse(dynamic.matches(n));
+    }
+
+    /**
+     * Parses its labels on each call, as {@link Node} does unless overridden.
+     */
+    private static final class PlainNode extends DumbSlave {
+        PlainNode(String name, String remoteFS) throws Exception {
+            super(name, remoteFS, new JNLPLauncher());
+        }
+
+        @Override
+        protected Set<LabelAtom> getLabelAtomSet() {
+            return Collections.unmodifiableSet(Label.parse(getLabelString()));
+        }
+    }
+
+    @TestExtension("labelBitsFollowLabelStringAndDynamicLabels")
+    public static final class DynamicLabels extends LabelFinder {
+        static volatile Set<LabelAtom> labels = Set.of();
+
+        @NonNull
+        @Override
+        public Collection<LabelAtom> findLabels(@NonNull Node node) {
+            return node.getNodeName().equals("plain") ? labels : Set.of();
+        }
+    }
+
+    /**
+     * Compiled expressions see the new labels of an agent.
+     */
+    @Test
+    public void matchesAfterLabelChange() throws Exception {
+        DumbSlave s = j.createSlave("foo", "linux x86", null);
+        Label l = j.jenkins.getLabel("linux && (x86 || arm) && !docker");
+        assertTrue(l.matches(s));
+
+        s.setLabelString("linux arm docker");
+        assertFalse(l.matches(s));
+        assertFalse(j.jenkins.getLabel("linux <-> windows").matches(s));
+        assertTrue(j.jenkins.getLabel("windows -> docker").matches(s));
+
+        s.setLabelString("linux arm");
+        assertTrue(l.matches(s));
+        assertTrue(l.matches(Set.of(j.jenkins.getLabelAtom("linux"), j.jenkins.getLabelAtom("x86"))));
+        assertFalse(l.matches(Set.of(j.jenkins.getLabelAtom("x86"))));
+    }
+
     /**
      * Tests the expression parser.
      */
@@ -0,0 +1,260 @@
+package hudson.node_monitors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.model.Computer;
+import hudson.remoting.Callable;
+import hudson.remoting.LocalChannel;
+import hudson.slaves.DumbSlave;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import jenkins.model.Jenkins;
+import jenkins.security.MasterToSlaveCallable;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+
+public class AbstractAsyncNodeMonitorDescriptorTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void updatesOnlyGivenComputers() throws Exception {
+        // not connected, so that they are not monitored when they come online
+        DumbSlave a = j.createSlave();
+        DumbSlave b = j.createSlave();
+        Computer ca = a.toComputer();
+        Computer cb = b.toComputer();
+        SequenceMonitor.DescriptorImpl d = j.jenkins.getDescriptorByType(SequenceMonitor.DescriptorImpl.class);
+
+        d.triggerUpdate().join();
+        // the first one may have been the update of the built-in node coming online
+        d.triggerUpdate().join();
+        String first = d.get(ca);
+        assertNotNull(first);
+        assertNotNull(d.get(cb));
+        assertNotNull(d.get(j.jenkins.toComputer()));
+        assertNotNull(d.getLatencyString());
+
+        d.triggerUpdate(List.of(cb)).join();
+        assertEquals("the other computers keep their data", first, d.get(ca));
+        assertEquals(cb.getName() + " #" + d.sequence.get(), d.get(cb));
+        assertNull(d.triggerUpdate(List.of()));
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutDownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrencyIsCapped() throws Exception {
+        GateMonitor.DescriptorImpl d = j.jenkins.getDescriptorByType(GateMonitor.DescriptorImpl.class);
+        for (int i = 0; i < 6; i++) {
+            d.computers.add(fakeComputer("fake" + i));
+        }
+        d.delay = 100;
+        int maxConcurrency = AbstractAsyncNodeMonitorDescriptor.MAX_CONCURRENCY;
+        AbstractAsyncNodeMonitorDescriptor.MAX_CONCURRENCY = 2;
+        try {
+            Map<Computer, String> data = d.monitorDetailed().getMonitoringData();
+            for (Computer c : d.computers) {
+                assertEquals(c.getName(), data.get(c));
+            }
+            assertThat(d.maxRunning.get(), lessThanOrEqualTo(2));
+        } finally {
+            AbstractAsyncNodeMonitorDescriptor.MAX_CONCURRENCY = maxConcurrency;
+        }
+    }
+
+    @Test
+    public void slowAgentTimesOut() throws Exception {
+        GateMonitor.DescriptorImpl d = j.jenkins.getDescriptorByType(GateMonitor.DescriptorImpl.class);
+        Computer fast = fakeComputer("fast");
+        Computer slow = fakeComputer("slow");
+        d.computers.add(slow);
+        d.computers.add(fast);
+        d.timeout = 500;
+        CountDownLatch gate = new CountDownLatch(1);
+        d.gates.put("slow", gate);
+        try {
+            long start = System.currentTimeMillis();
+            Map<Computer, String> data = d.monitorDetailed().getMonitoringData();
+            assertThat(System.currentTimeMillis() - start, lessThan(10_000L));
+            assertEquals("fast", data.get(fast));
+            assertTrue(data.containsKey(slow));
+            assertNull(data.get(slow));
+        } finally {
+            gate.countDown();
+        }
+    }
+
+    @Test
+    public void resultsArePublishedAsTheyArrive() throws Exception {
+        GateMonitor.DescriptorImpl d = j.jenkins.getDescriptorByType(GateMonitor.DescriptorImpl.class);
+        Computer fast = fakeComputer("fast");
+        Computer slow = fakeComputer("slow");
+        d.computers.add(slow);
+        d.computers.add(fast);
+        CountDownLatch gate = new CountDownLatch(1);
+        d.gates.put("slow", gate);
+        try {
+            Future<Map<Computer, String>> update = executor.submit(() -> d.monitorDetailed().getMonitoringData());
+            while (!d.arrived.contains("fast")) {
+                Thread.sleep(10);
+            }
+            assertFalse("still waiting for the slow agent", update.isDone());
+            assertFalse(d.arrived.contains("slow"));
+            gate.countDown();
+            assertEquals("slow", update.get().get(slow));
+            assertTrue(d.arrived.contains("slow"));
+        } finally {
+            gate.countDown();
+        }
+    }
+
+    private Computer fakeComputer(String name) {
+        Computer c = mock(Computer.class);
+        when(c.getName()).thenReturn(name);
+        when(c.getDisplayName()).thenReturn(name);
+        when(c.getChannel()).thenReturn(new LocalChannel(executor));
+        return c;
+    }
+
+    /**
+     * Numbers each result, including those of the computers without a channel.
+     */
+    public static class SequenceMonitor extends NodeMonitor {
+        @TestExtension
+        public static class DescriptorImpl extends AbstractAsyncNodeMonitorDescriptor<String> {
+            final AtomicInteger sequence = new AtomicInteger();
+
+            @Override
+            protected Callable<String, IOException> createCallable(Computer c) {
+                return new Name(c.getName() + " #" + sequence.incrementAndGet());
+            }
+
+            @Override
+            protected Map<Computer, String> monitor() throws InterruptedException {
+                Map<Computer, String> data = monitorDetailed().getMonitoringData();
+                data.replaceAll((c, v) -> v != null ? v : c.getName() + " #" + sequence.incrementAndGet());
+                return data;
+            }
+        }
+    }
+
+    /**
+     * Monitors only the computers a test gives it, and only when the test asks for it.
+     * Each computer answers after {@code delay}, or once its gate is opened.
+     */
+    public static class GateMonitor extends NodeMonitor {
+        @TestExtension({"concurrencyIsCapped", "slowAgentTimesOut", "resultsArePublishedAsTheyArrive"})
+        public static class DescriptorImpl extends AbstractAsyncNodeMonitorDescriptor<String> {
+            final List<Computer> computers = new ArrayList<>();
+            final Map<String, CountDownLatch> gates = new ConcurrentHashMap<>();
+            final Set<String> arrived = ConcurrentHashMap.newKeySet();
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            volatile long delay;
+            volatile long timeout = 30_000;
+
+            @Override
+            Collection<Computer> getComputersToMonitor() {
+                return computers;
+            }
+
+            @Override
+            protected long getMonitoringTimeOut() {
+                return timeout;
+            }
+
+            @Override
+            protected Callable<String, IOException> createCallable(Computer c) {
+                return new Gate(c.getName());
+            }
+
+            @Override
+            protected Map<Computer, String> monitor() {
+                // the tests call monitorDetailed themselves
+                return new HashMap<>();
+            }
+
+            @Override
+            void publish(Computer c, String value, long latency) {
+                super.publish(c, value, latency);
+                if (value != null) {
+                    arrived.add(value);
+                }
+            }
+
+            String pass(String name) throws IOException {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    CountDownLatch gate = gates.get(name);
+                    if (gate != null) {
+                        gate.await();
+                    } else {
+                        Thread.sleep(delay);
+                    }
+                    return name;
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static final class Gate extends MasterToSlaveCallable<String, IOException> {
+        private final String name;
+
+        Gate(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String call() throws IOException {
+            return Jenkins.get().getDescriptorByType(GateMonitor.DescriptorImpl.class).pass(name);
+        }
+    }
+
+    private static final class Name extends MasterToSlaveCallable<String, IOException> {
+        private final String name;
+
+        Name(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String call() {
+            return name;
+        }
+    }
+}
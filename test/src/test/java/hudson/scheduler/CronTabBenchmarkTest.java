@@ -0,0 +1,107 @@
+package hudson.scheduler;
+
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class CronTabBenchmarkTest {
+    @Test
+    public void runBenchmark() throws Exception {
+        // run the minimum possible number of iterations
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .mode(Mode.AverageTime)
+                .forks(1)
+                .result("jmh-report.json")
+                .resultFormat(ResultFormatType.JSON)
+                .operationsPerInvocation(1)
+                .threads(1)
+                .warmupForks(0)
+                .warmupIterations(0)
+                .measurementBatchSize(1)
+                .measurementIterations(1)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .shouldFailOnError(true)
+                .include(CronTabBenchmark.class.getName() + ".*");
+        new Runner(options.build()).run();
+        assertTrue(Files.exists(Paths.get("jmh-report.json")));
+    }
+
+    /**
+     * Compares the {@link Calendar} based and the calendar-free evaluation of {@link CronTab}s.
+     * Does not need a running Jenkins, so its state is not a {@code JmhBenchmarkState}.
+     */
+    @JmhBenchmark
+    public static class CronTabBenchmark {
+        @State(Scope.Benchmark)
+        public static class CronTabState {
+            /**
+             * Typical specs, then rarely matching ones (Friday the 13th, leap days) which make ceil search far.
+             */
+            @Param({"H/15 * * * *", "H H(0-7) * * 1-5", "0 0 13 * 5", "H 2 29 2 *"})
+            public String spec;
+
+            @Param({"", "Europe/Berlin"})
+            public String timezone;
+
+            CronTab tab;
+            ZoneId defaultZone;
+            TimeZone timeZone;
+            long time;
+
+            @Setup
+            public void setup() {
+                tab = new CronTab(spec, 1, Hash.from("benchmark"), timezone.isEmpty() ? null : timezone);
+                defaultZone = ZoneId.systemDefault();
+                timeZone = tab.getTimeZone() != null ? tab.getTimeZone() : TimeZone.getTimeZone(defaultZone);
+                // 2023-03-01T00:00Z, shortly before a daylight saving time change and a year before a leap day
+                time = 1677628800000L;
+            }
+
+            Calendar calendar() {
+                Calendar cal = new GregorianCalendar(timeZone, Locale.US);
+                cal.setTimeInMillis(time);
+                return cal;
+            }
+        }
+
+        @Benchmark
+        public void checkCalendar(CronTabState state, Blackhole blackhole) {
+            blackhole.consume(state.tab.check(state.calendar()));
+        }
+
+        @Benchmark
+        public void checkTime(CronTabState state, Blackhole blackhole) {
+            blackhole.consume(state.tab.check(state.time, state.defaultZone));
+        }
+
+        @Benchmark
+        public void ceilCalendar(CronTabState state, Blackhole blackhole) {
+            blackhole.consume(state.tab.ceil(state.calendar()));
+        }
+
+        @Benchmark
+        public void ceilTime(CronTabState state, Blackhole blackhole) {
+            blackhole.consume(state.tab.ceil(state.time, state.defaultZone));
+        }
+    }
+}
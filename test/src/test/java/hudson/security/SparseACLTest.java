@@ -0,0 +1,91 @@
+package hudson.security;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.Item;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jenkins.model.Jenkins;
+import org.acegisecurity.acls.sid.GrantedAuthoritySid;
+import org.acegisecurity.acls.sid.PrincipalSid;
+import org.acegisecurity.acls.sid.Sid;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+public class SparseACLTest {
+
+    @Rule
+    public JenkinsRule r = new JenkinsRule();
+
+    private final Authentication alice = new UsernamePasswordAuthenticationToken("alice", "", List.of(new SimpleGrantedAuthority("devs")));
+    private final Authentication bob = new UsernamePasswordAuthenticationToken("bob", "", List.of());
+
+    @Test
+    public void impliedPermissions() {
+        assertTrue(Item.CONFIGURE.isImpliedBy(Item.CONFIGURE));
+        assertTrue(Item.CONFIGURE.isImpliedBy(Jenkins.ADMINISTER));
+        assertFalse(Item.READ.isImpliedBy(Item.CONFIGURE));
+        assertFalse(Jenkins.ADMINISTER.isImpliedBy(Item.CONFIGURE));
+    }
+
+    @Test
+    public void mostSpecificEntryWins() {
+        SparseACL acl = new SparseACL(null);
+        acl.add(new GrantedAuthoritySid("devs"), Jenkins.ADMINISTER, true);
+        acl.add(new PrincipalSid("alice"), Item.DELETE, false);
+
+        assertTrue(acl.hasPermission2(alice, Item.CONFIGURE));
+        assertFalse(acl.hasPermission2(alice, Item.DELETE));
+        assertFalse(acl.hasPermission2(bob, Item.READ));
+    }
+
+    @Test
+    public void decisionsFollowChanges() {
+        long duration = SidACL.DECISION_CACHE_DURATION;
+        SidACL.DECISION_CACHE_DURATION = 10_000;
+        try {
+            SparseACL acl = new SparseACL(null);
+            acl.add(new PrincipalSid("alice"), Item.READ, true);
+            for (int i = 0; i < 3; i++) {
+                assertTrue(acl.hasPermission2(alice, Item.READ));
+                assertFalse(acl.hasPermission2(alice, Item.CONFIGURE));
+            }
+
+            acl.add(new PrincipalSid("alice"), Item.CONFIGURE, true);
+            assertTrue(acl.hasPermission2(alice, Item.CONFIGURE));
+
+            SparseACL parent = new SparseACL(null);
+            parent.add(new PrincipalSid("bob"), Item.READ, true);
+            SidACL inheriting = new SparseACL(null).newInheritingACL(parent);
+            assertTrue(inheriting.hasPermission2(bob, Item.READ));
+            assertFalse(inheriting.hasPermission2(bob, Item.DISCOVER));
+            assertFalse(inheriting.hasPermission2(bob, Item.DISCOVER));
+
+            parent.add(new PrincipalSid("bob"), Item.DISCOVER, true);
+            assertTrue(inheriting.hasPermission2(bob, Item.DISCOVER));
+        } finally {
+            SidACL.DECISION_CACHE_DURATION = duration;
+        }
+    }
+
+    @Test
+    public void decisionsNotRememberedByDefault() {
+        AtomicBoolean allowed = new AtomicBoolean(true);
+        SidACL acl = new SidACL() {
+            @Override
+            protected Boolean hasPermission(Sid p, Permission permission) {
+                return allowed.get();
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            assertTrue(acl.hasPermission2(alice, Item.READ));
+        }
+        allowed.set(false);
+        assertFalse(acl.hasPermission2(alice, Item.READ));
+    }
+}
@@ -0,0 +1,113 @@
+package hudson.slaves;
+
+import static org.junit.Assert.assertEquals;
+
+import hudson.model.Label;
+import hudson.model.LoadStatistics;
+import hudson.model.Node;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+/**
+ * Drives {@link NodeProvisioner.PredictiveStrategyImpl#apply} with a stub cloud.
+ * The simulation of its decisions is in {@code core/src/test}.
+ */
+public class PredictiveStrategyImplApplyTest {
+
+    @Rule
+    public JenkinsRule r = new JenkinsRule();
+
+    private final Label label = Label.get("predictive");
+
+    private StubCloud cloud;
+
+    private boolean enabled;
+
+    @Before
+    public void setUp() {
+        enabled = NodeProvisioner.PredictiveStrategyImpl.ENABLED;
+        NodeProvisioner.PredictiveStrategyImpl.ENABLED = true;
+        cloud = new StubCloud();
+        r.jenkins.clouds.add(cloud);
+    }
+
+    @After
+    public void tearDown() {
+        NodeProvisioner.PredictiveStrategyImpl.ENABLED = enabled;
+    }
+
+    @Test
+    public void provisionsForQueueLength() {
+        NodeProvisioner.StrategyState state = state(3, 0);
+        assertEquals(NodeProvisioner.StrategyDecision.PROVISIONING_COMPLETED, new NodeProvisioner.PredictiveStrategyImpl().apply(state));
+        assertEquals(List.of(3), cloud.requests);
+        assertEquals(3, state.getAdditionalPlannedCapacity());
+
+        // what was just planned is not provisioned again
+        assertEquals(NodeProvisioner.StrategyDecision.PROVISIONING_COMPLETED, new NodeProvisioner.PredictiveStrategyImpl().apply(state));
+        assertEquals(List.of(3), cloud.requests);
+    }
+
+    @Test
+    public void subtractsPlannedCapacity() {
+        assertEquals(NodeProvisioner.StrategyDecision.PROVISIONING_COMPLETED, new NodeProvisioner.PredictiveStrategyImpl().apply(state(3, 2)));
+        assertEquals(List.of(1), cloud.requests);
+
+        assertEquals(NodeProvisioner.StrategyDecision.PROVISIONING_COMPLETED, new NodeProvisioner.PredictiveStrategyImpl().apply(state(3, 3)));
+        assertEquals("nothing is missing", List.of(1), cloud.requests);
+    }
+
+    @Test
+    public void consultsOtherStrategiesWhenCloudsFallShort() {
+        cloud.capacity = 1;
+        assertEquals(NodeProvisioner.StrategyDecision.CONSULT_REMAINING_STRATEGIES, new NodeProvisioner.PredictiveStrategyImpl().apply(state(3, 0)));
+        assertEquals(List.of(3), cloud.requests);
+    }
+
+    @Test
+    public void disabledByDefault() {
+        NodeProvisioner.PredictiveStrategyImpl.ENABLED = false;
+        assertEquals(NodeProvisioner.StrategyDecision.CONSULT_REMAINING_STRATEGIES, new NodeProvisioner.PredictiveStrategyImpl().apply(state(3, 0)));
+        assertEquals(List.of(), cloud.requests);
+    }
+
+    private NodeProvisioner.StrategyState state(int queueLength, int planned) {
+        NodeProvisioner provisioner = new NodeProvisioner(label, label.loadStatistics);
+        LoadStatistics.LoadStatisticsSnapshot snapshot = LoadStatistics.LoadStatisticsSnapshot.builder().withQueueLength(queueLength).build();
+        return provisioner.new StrategyState(snapshot, label, planned);
+    }
+
+    /**
+     * Plans single-executor agents which never come online, up to {@link #capacity}.
+     */
+    private static final class StubCloud extends Cloud {
+        final List<Integer> requests = new ArrayList<>();
+        int capacity = Integer.MAX_VALUE;
+
+        StubCloud() {
+            super("stub");
+        }
+
+        @Override
+        public boolean canProvision(CloudState state) {
+            return true;
+        }
+
+        @Override
+        public Collection<NodeProvisioner.PlannedNode> provision(CloudState state, int excessWorkload) {
+            requests.add(excessWorkload);
+            List<NodeProvisioner.PlannedNode> r = new ArrayList<>();
+            for (int i = 0; i < Math.min(excessWorkload, capacity); i++) {
+                r.add(new NodeProvisioner.PlannedNode("stub-" + i, new CompletableFuture<Node>(), 1));
+            }
+            return r;
+        }
+    }
+}
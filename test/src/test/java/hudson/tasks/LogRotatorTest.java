@@ -42,7 +42,9 @@ import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.queue.QueueTaskFuture;
 import hudson.tasks.ArtifactArchiverTest.CreateArtifact;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Set;
@@ -202,6 +204,32 @@ public class LogRotatorTest {
         assertThat("we have artifacts in run3", run3.getHasArtifacts(), is(true));
     }
 
+    @Test
+    public void keptBuildsAreNotLoaded() throws Exception {
+        FreeStyleProject project = j.createFreeStyleProject();
+        for (int i = 0; i < 5; i++) {
+            j.buildAndAssertSuccess(project);
+        }
+        project.getBuildByNumber(1).keepLog(true);
+        project._getRuns().purgeCache();
+        new LogRotator(-1, 2, -1, -1).perform(project);
+        assertFalse("#1 is kept forever", project._getRuns().getLoadedBuilds().containsKey(1));
+        assertFalse("#4 is within the builds to keep", project._getRuns().getLoadedBuilds().containsKey(4));
+        assertEquals(Arrays.asList(1, 4, 5), project._getRuns().getNumbersOnDisk());
+    }
+
+    @Test
+    public void unloadableBuildsAreNotCounted() throws Exception {
+        FreeStyleProject project = j.createFreeStyleProject();
+        for (int i = 0; i < 5; i++) {
+            j.buildAndAssertSuccess(project);
+        }
+        Files.writeString(new File(project.getBuildByNumber(5).getRootDir(), "build.xml").toPath(), "not a build");
+        project._getRuns().purgeCache();
+        new LogRotator(-1, 2, -1, -1).perform(project);
+        assertEquals("#5 cannot be loaded, so #3 and #4 are kept", Arrays.asList(3, 4, 5), project._getRuns().getNumbersOnDisk());
+    }
+
     private static int numberOf(Run<?, ?> run) {
         return run != null ? run.getNumber() : -1;
     }
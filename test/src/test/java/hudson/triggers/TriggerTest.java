@@ -24,8 +24,12 @@
 
 package hudson.triggers;
 
+import static org.junit.Assert.assertEquals;
+
 import hudson.Extension;
+import hudson.model.FreeStyleProject;
 import hudson.model.Item;
+import hudson.model.PeriodicWork;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
@@ -34,6 +38,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.Issue;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 public class TriggerTest {
@@ -49,6 +54,43 @@ public class TriggerTest {
         Trigger.checkTriggers(cal);
     }
 
+    @Test
+    public void onlyDueTriggersAreRun() throws Exception {
+        FreeStyleProject p = jenkinsRule.createFreeStyleProject();
+        CountingTrigger t = new CountingTrigger("0 0 1 1 *");
+        p.addTrigger(t);
+        TriggerSchedule schedule = new TriggerSchedule();
+        schedule.update(p);
+        long due = t.tabs.ceil(System.currentTimeMillis());
+
+        schedule.checkTriggers(calendar(due - PeriodicWork.MIN));
+        assertEquals(0, t.count);
+        schedule.checkTriggers(calendar(due));
+        assertEquals(1, t.count);
+        schedule.checkTriggers(calendar(due));
+        assertEquals("rescheduled for next year", 1, t.count);
+    }
+
+    @Test
+    public void deletedItemsAreNotTriggered() throws Exception {
+        FreeStyleProject p = jenkinsRule.createFreeStyleProject();
+        CountingTrigger t = new CountingTrigger("0 0 1 1 *");
+        p.addTrigger(t);
+        TriggerSchedule schedule = new TriggerSchedule();
+        schedule.update(p);
+        long due = t.tabs.ceil(System.currentTimeMillis());
+        p.delete();
+
+        schedule.checkTriggers(calendar(due));
+        assertEquals(0, t.count);
+    }
+
+    private static Calendar calendar(long time) {
+        Calendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(time);
+        return cal;
+    }
+
     private String triggersSection() {
         String tagname = MockTrigger.class.getName().replace("$", "_-");
         return "<triggers> \n <" + tagname + ">\n </" + tagname + ">\n  </triggers>\n";
@@ -85,4 +127,24 @@ public class TriggerTest {
             }
         }
     }
+
+    public static class CountingTrigger extends Trigger<Item> {
+        private int count;
+
+        public CountingTrigger(String cron) {
+            super(cron);
+        }
+
+        @Override
+        public void run() {
+            count++;
+        }
+
+        @TestExtension
+        public static class DescriptorImpl extends TriggerDescriptor {
+            @Override public boolean isApplicable(Item item) {
+                return true;
+            }
+        }
+    }
 }
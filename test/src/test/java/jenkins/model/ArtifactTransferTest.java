@@ -0,0 +1,141 @@
+package jenkins.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.slaves.DumbSlave;
+import hudson.tasks.ArtifactArchiver;
+import hudson.util.StreamTaskListener;
+import hudson.util.io.CompressedFiles;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+
+public class ArtifactTransferTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private static final byte[] ZIP_LIKE = {0x50, 0x4b, 0x03, 0x04, 1, 2, 3};
+
+    @Test
+    public void archivesCompressedAndUncompressedFiles() throws Exception {
+        int streams = ArtifactTransfer.STREAMS;
+        ArtifactTransfer.STREAMS = 4;
+        try {
+            archiveCompressedAndUncompressedFiles();
+        } finally {
+            ArtifactTransfer.STREAMS = streams;
+        }
+    }
+
+    private void archiveCompressedAndUncompressedFiles() throws Exception {
+        DumbSlave agent = j.createOnlineSlave();
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.setAssignedNode(agent);
+        p.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                FilePath ws = build.getWorkspace();
+                ws.child("text.txt").write("some text", "UTF-8");
+                ws.child("dir/archive.zip").copyFrom(new ByteArrayInputStream(ZIP_LIKE));
+                ws.child("dir/no-extension").copyFrom(new ByteArrayInputStream(ZIP_LIKE));
+                return true;
+            }
+        });
+        p.getPublishersList().add(new ArtifactArchiver("**"));
+        FreeStyleBuild b = j.buildAndAssertSuccess(p);
+        j.assertLogContains("Archived 3 files", b);
+
+        assertEquals("some text", b.getArtifactManager().root().child("text.txt").readToString());
+        for (String path : new String[] {"dir/archive.zip", "dir/no-extension"}) {
+            try (InputStream in = b.getArtifactManager().root().child(path).open()) {
+                assertArrayEquals(ZIP_LIKE, in.readAllBytes());
+            }
+        }
+        assertEquals(3, b.getArtifacts().size());
+    }
+
+    @Test
+    public void splitsAcrossStreams() throws Exception {
+        int streams = ArtifactTransfer.STREAMS;
+        long minStreamSize = ArtifactTransfer.MIN_STREAM_SIZE;
+        ArtifactTransfer.STREAMS = 3;
+        ArtifactTransfer.MIN_STREAM_SIZE = 10;
+        try {
+            Map<String, String> files = new LinkedHashMap<>();
+            Map<String, ArtifactTransfer.Stat> stats = new HashMap<>();
+            long[] sizes = {10, 40, 20, 30, 10, 10, 30};
+            for (int i = 0; i < sizes.length; i++) {
+                files.put("f" + i, "f" + i);
+                stats.put("f" + i, new ArtifactTransfer.Stat(sizes[i], false));
+            }
+            List<ArtifactTransfer.Batch> batches = new ArrayList<>();
+            ArtifactTransfer.split(files, stats, FilePath.TarCompression.GZIP, batches);
+            assertEquals(3, batches.size());
+            Set<String> all = new HashSet<>();
+            for (ArtifactTransfer.Batch batch : batches) {
+                assertEquals(50, batch.size);
+                all.addAll(batch.files.keySet());
+            }
+            assertEquals(files.keySet(), all);
+
+            ArtifactTransfer.MIN_STREAM_SIZE = 100;
+            batches.clear();
+            ArtifactTransfer.split(files, stats, FilePath.TarCompression.GZIP, batches);
+            assertEquals("no stream below the minimum size", 1, batches.size());
+
+            DumbSlave agent = j.createOnlineSlave();
+            FilePath ws = agent.getRootPath().child("ws");
+            for (int i = 0; i < sizes.length; i++) {
+                ws.child("f" + i).write("content " + i, StandardCharsets.UTF_8.name());
+            }
+            ArtifactTransfer.MIN_STREAM_SIZE = 1;
+            FilePath target = j.jenkins.getRootPath().child("target");
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            assertEquals(sizes.length, ArtifactTransfer.copy(ws, files, target, FilePath.TarCompression.GZIP, new StreamTaskListener(log, StandardCharsets.UTF_8)));
+            assertThat(log.toString(StandardCharsets.UTF_8), containsString("Archived 7 files"));
+            for (int i = 0; i < sizes.length; i++) {
+                assertEquals("content " + i, target.child("f" + i).readToString());
+            }
+        } finally {
+            ArtifactTransfer.STREAMS = streams;
+            ArtifactTransfer.MIN_STREAM_SIZE = minStreamSize;
+        }
+    }
+
+    @Test
+    public void detectsCompressedFiles() throws Exception {
+        FilePath dir = j.jenkins.getRootPath().child("detect");
+        dir.child("plain").write("plain text", StandardCharsets.UTF_8.name());
+        dir.child("magic").copyFrom(new ByteArrayInputStream(ZIP_LIKE));
+        dir.child("named.GZ").write("not really", StandardCharsets.UTF_8.name());
+        assertFalse(CompressedFiles.isCompressed(Path.of(dir.child("plain").getRemote())));
+        assertTrue(CompressedFiles.isCompressed(Path.of(dir.child("magic").getRemote())));
+        assertTrue(CompressedFiles.isCompressed(Path.of(dir.child("named.GZ").getRemote())));
+    }
+}
@@ -0,0 +1,119 @@
+package jenkins.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import hudson.FilePath;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.StreamBuildListener;
+import hudson.tasks.ArtifactArchiver;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class DeduplicatingArtifactManagerTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Before
+    public void configure() {
+        assumeTrue(j.jenkins.getRootDir().toPath().getFileSystem().supportedFileAttributeViews().contains("unix"));
+        ArtifactManagerConfiguration.get().getArtifactManagerFactories().add(new DeduplicatingArtifactManagerFactory());
+    }
+
+    @Test
+    public void sharesContents() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        FilePath ws = j.jenkins.getWorkspaceFor(p);
+        ws.child("a.txt").write("same", null);
+        ws.child("sub/b.txt").write("same", null);
+        ws.child("c.txt").write("first", null);
+        p.getPublishersList().add(new ArtifactArchiver("**/*.txt"));
+
+        FreeStyleBuild b1 = j.buildAndAssertSuccess(p);
+        assertEquals(2, countBlobs());
+        ws.child("c.txt").write("second", null);
+        FreeStyleBuild b2 = j.buildAndAssertSuccess(p);
+        assertEquals(3, countBlobs());
+
+        assertEquals("same", b2.getArtifactManager().root().child("sub/b.txt").readToString());
+        assertEquals("second", b2.getArtifactManager().root().child("c.txt").readToString());
+        assertEquals(fileKey(b1, "a.txt"), fileKey(b1, "sub/b.txt"));
+        assertEquals(fileKey(b1, "a.txt"), fileKey(b2, "a.txt"));
+        assertNotEquals(fileKey(b1, "c.txt"), fileKey(b2, "c.txt"));
+
+        Path blobs = DeduplicatingArtifactManager.getBlobsDir();
+        assertEquals(0, DeduplicatingArtifactManager.collect(blobs));
+        b1.delete();
+        assertEquals("only the content of the first c.txt is no longer referenced", 1, DeduplicatingArtifactManager.collect(blobs));
+        assertEquals("same", b2.getArtifactManager().root().child("a.txt").readToString());
+        b2.delete();
+        assertEquals(2, DeduplicatingArtifactManager.collect(blobs));
+        assertEquals(0, countBlobs());
+    }
+
+    @Test
+    public void archivesSymlinksAsUsual() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        FilePath ws = j.jenkins.getWorkspaceFor(p);
+        ws.child("target.txt").write("content", null);
+        ws.child("link.txt").symlinkTo("target.txt", j.createTaskListener());
+        p.getPublishersList().add(new ArtifactArchiver("*.txt"));
+
+        FreeStyleBuild b = j.buildAndAssertSuccess(p);
+        assertEquals(1, countBlobs());
+        assertTrue(Files.isSymbolicLink(new File(b.getArtifactsDir(), "link.txt").toPath()));
+        assertFalse(Files.isSymbolicLink(new File(b.getArtifactsDir(), "target.txt").toPath()));
+    }
+
+    @Test
+    public void rejectsPathsAndHashesBreakingOut() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        FilePath ws = j.jenkins.getWorkspaceFor(p);
+        ws.child("a.txt").write("content", null);
+        p.getPublishersList().add(new ArtifactArchiver("a.txt"));
+        FreeStyleBuild b = j.buildAndAssertSuccess(p);
+
+        File outside = new File(b.getRootDir(), "outside.txt");
+        BuildListener listener = new StreamBuildListener(new ByteArrayOutputStream(), StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> b.getArtifactManager().archive(ws, j.jenkins.createLauncher(listener), listener,
+                Map.of("../outside.txt", "a.txt")));
+        assertFalse(outside.exists());
+
+        for (String hash : new String[] {"../../secrets/master.key", "/etc/passwd", "ab", "A".repeat(64)}) {
+            assertThrows(hash, IOException.class, () -> DeduplicatingArtifactManager.checkHashes(Map.of("a.txt", hash)));
+        }
+        DeduplicatingArtifactManager.checkHashes(Map.of("a.txt", "0123456789abcdef".repeat(4)));
+    }
+
+    private static Object fileKey(FreeStyleBuild b, String path) throws Exception {
+        return Files.readAttributes(new File(b.getArtifactsDir(), path).toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private static long countBlobs() throws Exception {
+        Path blobs = DeduplicatingArtifactManager.getBlobsDir();
+        if (!Files.isDirectory(blobs)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(blobs)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -126,4 +126,40 @@ public class GlobalBuildDiscarderTest {
             }
         }
     }
+
+    @Test
+    public void passStopsAtDeletionBudget() throws Exception {
+        FreeStyleProject a = j.createFreeStyleProject("a");
+        FreeStyleProject b = j.createFreeStyleProject("b");
+        FreeStyleProject c = j.createFreeStyleProject("c");
+        for (FreeStyleProject p : new FreeStyleProject[] {a, b, c}) {
+            for (int i = 0; i < 3; i++) {
+                j.buildAndAssertSuccess(p);
+            }
+        }
+        GlobalBuildDiscarderConfiguration.get().getConfiguredBuildDiscarders().add(new SimpleGlobalBuildDiscarderStrategy(new LogRotator(null, "1", null, null)));
+        BackgroundGlobalBuildDiscarder discarder = ExtensionList.lookupSingleton(BackgroundGlobalBuildDiscarder.class);
+        int max = BackgroundGlobalBuildDiscarder.MAX_DELETIONS_PER_MINUTE;
+        BackgroundGlobalBuildDiscarder.MAX_DELETIONS_PER_MINUTE = 3;
+        BackgroundGlobalBuildDiscarder.BUDGET.reset();
+        try {
+            discarder.execute(TaskListener.NULL);
+            Assert.assertArrayEquals(new int[] {3}, a.getBuilds().stream().mapToInt(Run::getNumber).toArray());
+            Assert.assertArrayEquals("stopped at the budget", new int[] {3, 2}, b.getBuilds().stream().mapToInt(Run::getNumber).toArray());
+            Assert.assertArrayEquals(new int[] {3, 2, 1}, c.getBuilds().stream().mapToInt(Run::getNumber).toArray());
+            Assert.assertEquals("a", discarder.getCursor());
+
+            discarder.execute(TaskListener.NULL);
+            Assert.assertArrayEquals("no more deletions within the same minute", new int[] {3, 2}, b.getBuilds().stream().mapToInt(Run::getNumber).toArray());
+            Assert.assertEquals("a", discarder.getCursor());
+
+            BackgroundGlobalBuildDiscarder.BUDGET.reset();
+            discarder.execute(TaskListener.NULL);
+            Assert.assertArrayEquals(new int[] {3}, b.getBuilds().stream().mapToInt(Run::getNumber).toArray());
+            Assert.assertArrayEquals("resumed with b", new int[] {3}, c.getBuilds().stream().mapToInt(Run::getNumber).toArray());
+            Assert.assertNull("completed", discarder.getCursor());
+        } finally {
+            BackgroundGlobalBuildDiscarder.MAX_DELETIONS_PER_MINUTE = max;
+        }
+    }
 }
@@ -24,8 +24,11 @@
 
 package jenkins.security;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 
 import hudson.security.HudsonPrivateSecurityRealm;
@@ -87,4 +90,50 @@ public class UserDetailsCacheTest {
         assertNull(bob);
     }
 
+    @Test
+    public void negativeAnswersAreCached() {
+        UserDetailsCache cache = UserDetailsCache.get();
+        assertThrows(UsernameNotFoundException.class, () -> cache.loadUserByUsername("bob"));
+        assertThrows(UsernameNotFoundException.class, () -> cache.loadUserByUsername("bob"));
+        UserDetailsCache.Statistics stats = cache.getStatistics();
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getNegativeHitCount());
+        assertEquals(1, stats.getNegativeSize());
+    }
+
+    @Test
+    public void reconfigureDiscardsEntries() throws Exception {
+        UserDetailsCache cache = UserDetailsCache.get();
+        cache.loadUserByUsername("alice");
+        assertNotNull(cache.getCached("alice"));
+        UserDetailsCacheConfiguration config = UserDetailsCacheConfiguration.get();
+        config.setMaximumSize(10);
+        config.setRefreshAfterWriteSec(30);
+        cache.reconfigure();
+        assertNull(cache.getCached("alice"));
+        assertNotNull(cache.loadUserByUsername("alice"));
+        assertEquals(1, cache.getStatistics().getSize());
+    }
+
+    @Test
+    public void staleEntriesAreRefreshedInTheBackground() throws Exception {
+        UserDetailsCacheConfiguration config = UserDetailsCacheConfiguration.get();
+        config.setRefreshAfterWriteSec(1);
+        UserDetailsCache cache = UserDetailsCache.get();
+        cache.reconfigure();
+        UserDetails first = cache.loadUserByUsername("alice");
+        assertSame("not yet due for a refresh", first, cache.loadUserByUsername("alice"));
+        assertEquals(0, cache.getStatistics().getRefreshCount());
+
+        Thread.sleep(1100);
+        assertSame("the current value is served while refreshing", first, cache.loadUserByUsername("alice"));
+        while (cache.getStatistics().getRefreshCount() == 0) {
+            Thread.sleep(10);
+        }
+        UserDetails refreshed = cache.getCached("alice");
+        assertNotNull(refreshed);
+        assertNotSame(first, refreshed);
+        assertEquals(0, cache.getStatistics().getRefreshFailureCount());
+    }
+
 }
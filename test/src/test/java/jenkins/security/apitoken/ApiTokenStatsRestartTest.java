@@ -118,6 +118,8 @@ public class ApiTokenStatsRestartTest {
                    HtmlSpan useCounterSpan = configWithStats.getDocumentElement().getOneHtmlElementByAttribute("span", "class", "token-use-counter");
                    assertThat(useCounterSpan.getTextContent(), containsString("" + NUM_CALL_WITH_TOKEN));
 
+                   // usages are written in batches
+                   ApiTokenStats.flushAll();
                    File apiTokenStatsFile = new File(u.getUserFolder(), "apiTokenStats.xml");
                    assertTrue("apiTokenStats.xml file should exist", apiTokenStatsFile.exists());
            });